@@ -0,0 +1,246 @@
+package com.google.ar.core.examples.java.helloar;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Per-stage frame timer for the render loop. Every stage of onDrawFrame is timed with
+ * {@link System#nanoTime()} and the samples are kept in preallocated ring buffers, so that
+ * recording a frame never allocates. A fixed-width histogram is maintained alongside each ring
+ * so p50/p95/p99 can be read without sorting.
+ *
+ * All recording methods must be called from the GL thread.
+ */
+public class FrameProfiler {
+    private static final String TAG = FrameProfiler.class.getSimpleName();
+
+    public enum Stage {
+        SESSION_UPDATE("session"),
+        BACKGROUND("background"),
+        PLANES("planes"),
+        EARTH("earth"),
+        SATELLITE("satellite"),
+        ORBIT("orbit"),
+        CLUSTER_UPLOAD("cl.upload"),
+        CLUSTER_DRAW("cl.draw"),
+        GL_JOBS("gl.jobs"),
+        FRAME("frame");
+
+        public final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    public static final long FRAME_BUDGET_NANOS = 33_000_000L; // 30 fps
+
+    private static final int RING_SIZE       = 512;     // frames of history per stage
+    private static final long BUCKET_NANOS   = 250_000L; // 0.25 ms histogram resolution
+    private static final int NUM_BUCKETS     = 200;     // 50 ms, anything slower is clamped
+    private static final long REPORT_NANOS   = 1_000_000_000L;
+    private static final long DUMP_NANOS     = 10_000_000_000L;
+
+    private final long[][] mRing      = new long[STAGES.length][RING_SIZE];
+    private final int[][] mHistogram  = new int[STAGES.length][NUM_BUCKETS];
+    private final int[] mRingHead     = new int[STAGES.length];
+    private final int[] mRingCount    = new int[STAGES.length];
+    private final long[] mStageStart  = new long[STAGES.length];
+    private final long[] mMaxNanos    = new long[STAGES.length];
+    private final int[] mOverBudget   = new int[STAGES.length];
+
+    private long mFrameStart;
+    private long mLastReport;
+    private long mLastDump;
+    private int mFramesSinceReport;
+    private float mFps;
+
+    private final StringBuilder mReport = new StringBuilder(512);
+    private final File mDumpFile;
+    private final ExecutorService mDumpExecutor = Executors.newSingleThreadExecutor();
+
+    /**
+     * @param dumpFile file the periodic CSV dump is appended to, or null to disable dumping
+     */
+    public FrameProfiler(File dumpFile) {
+        mDumpFile = dumpFile;
+    }
+
+    public void beginFrame() {
+        mFrameStart = System.nanoTime();
+        mStageStart[Stage.FRAME.ordinal()] = mFrameStart;
+    }
+
+    /**
+     * @return the time since {@link #beginFrame()}
+     */
+    public long getFrameElapsedNanos() {
+        return System.nanoTime() - mFrameStart;
+    }
+
+    public void begin(Stage stage) {
+        mStageStart[stage.ordinal()] = System.nanoTime();
+    }
+
+    public void end(Stage stage) {
+        record(stage.ordinal(), System.nanoTime() - mStageStart[stage.ordinal()]);
+    }
+
+    /**
+     * Finishes the frame. Returns true once per report interval, when {@link #getReport()} has
+     * been refreshed and the overlay should be updated.
+     */
+    public boolean endFrame() {
+        final long now = System.nanoTime();
+        record(Stage.FRAME.ordinal(), now - mFrameStart);
+        mFramesSinceReport++;
+
+        if (mLastReport == 0) {
+            mLastReport = now;
+            mLastDump = now;
+            return false;
+        }
+        if (now - mLastReport < REPORT_NANOS) {
+            return false;
+        }
+        mFps = mFramesSinceReport * 1.0e9f / (now - mLastReport);
+        mFramesSinceReport = 0;
+        mLastReport = now;
+        buildReport();
+
+        if (mDumpFile != null && now - mLastDump >= DUMP_NANOS) {
+            mLastDump = now;
+            dump(buildCsv());
+        }
+        return true;
+    }
+
+    /** @return the most recent human readable report, one line per stage */
+    public String getReport() {
+        return mReport.toString();
+    }
+
+    public float getFps() {
+        return mFps;
+    }
+
+    /**
+     * Reads a percentile of the given stage from its histogram.
+     *
+     * @param stage stage to query
+     * @param percentile in [0, 100]
+     * @return the upper edge of the bucket holding the percentile, in nanoseconds
+     */
+    public long percentileNanos(Stage stage, float percentile) {
+        final int s = stage.ordinal();
+        final int count = mRingCount[s];
+        if (count == 0) {
+            return 0;
+        }
+        final int rank = Math.max(1, (int) Math.ceil(count * percentile / 100.0f));
+        final int[] histogram = mHistogram[s];
+        int seen = 0;
+        for (int b = 0; b < NUM_BUCKETS; ++b) {
+            seen += histogram[b];
+            if (seen >= rank) {
+                return (b + 1) * BUCKET_NANOS;
+            }
+        }
+        return NUM_BUCKETS * BUCKET_NANOS;
+    }
+
+    public void shutdown() {
+        mDumpExecutor.shutdown();
+    }
+
+    private void record(int s, long nanos) {
+        final long[] ring = mRing[s];
+        final int[] histogram = mHistogram[s];
+        final int head = mRingHead[s];
+
+        // Evict the oldest sample from the histogram once the ring is full.
+        if (mRingCount[s] == RING_SIZE) {
+            histogram[bucket(ring[head])]--;
+        } else {
+            mRingCount[s]++;
+        }
+        ring[head] = nanos;
+        histogram[bucket(nanos)]++;
+        mRingHead[s] = (head + 1) % RING_SIZE;
+
+        if (nanos > mMaxNanos[s]) {
+            mMaxNanos[s] = nanos;
+        }
+        if (nanos > FRAME_BUDGET_NANOS) {
+            mOverBudget[s]++;
+        }
+    }
+
+    private static int bucket(long nanos) {
+        final long b = nanos / BUCKET_NANOS;
+        return b >= NUM_BUCKETS ? NUM_BUCKETS - 1 : (int) b;
+    }
+
+    private void buildReport() {
+        mReport.setLength(0);
+        mReport.append(String.format(Locale.US, "%.1f fps   p50 / p95 / p99 ms%n", mFps));
+        for (Stage stage : STAGES) {
+            if (mRingCount[stage.ordinal()] == 0) {
+                continue;
+            }
+            mReport.append(String.format(Locale.US, "%-10s %5.2f %5.2f %5.2f%n",
+                    stage.label,
+                    percentileNanos(stage, 50) / 1.0e6f,
+                    percentileNanos(stage, 95) / 1.0e6f,
+                    percentileNanos(stage, 99) / 1.0e6f));
+        }
+    }
+
+    private String buildCsv() {
+        StringBuilder sb = new StringBuilder();
+        final long timestamp = System.currentTimeMillis();
+        for (Stage stage : STAGES) {
+            final int s = stage.ordinal();
+            if (mRingCount[s] == 0) {
+                continue;
+            }
+            sb.append(String.format(Locale.US, "%d,%s,%d,%.3f,%.3f,%.3f,%.3f,%d%n",
+                    timestamp, stage.label, mRingCount[s],
+                    percentileNanos(stage, 50) / 1.0e6f,
+                    percentileNanos(stage, 95) / 1.0e6f,
+                    percentileNanos(stage, 99) / 1.0e6f,
+                    mMaxNanos[s] / 1.0e6f,
+                    mOverBudget[s]));
+        }
+        return sb.toString();
+    }
+
+    /*
+     * Appends the CSV snapshot on a background thread so file I/O never lands on the GL thread.
+     * Columns: wall clock ms, stage, samples, p50, p95, p99, max (ms), frames over budget.
+     */
+    private void dump(final String csv) {
+        mDumpExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final boolean header = !mDumpFile.exists();
+                try (FileWriter writer = new FileWriter(mDumpFile, true)) {
+                    if (header) {
+                        writer.write("time_ms,stage,samples,p50_ms,p95_ms,p99_ms,max_ms,over_budget\n");
+                    }
+                    writer.write(csv);
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to write frame profile: " + e.getMessage());
+                }
+            }
+        });
+    }
+}
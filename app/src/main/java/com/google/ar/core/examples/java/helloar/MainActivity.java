@@ -18,6 +18,7 @@ package com.google.ar.core.examples.java.helloar;
 
 import android.opengl.GLES20;
 import android.opengl.GLSurfaceView;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.support.design.widget.BaseTransientBottomBar;
 import android.support.design.widget.Snackbar;
@@ -45,7 +46,11 @@ import com.google.ar.core.PointCloud;
 import com.google.ar.core.Session;
 import com.google.ar.core.Trackable;
 import com.google.ar.core.Trackable.TrackingState;
+import com.google.ar.core.examples.java.helloar.FrameProfiler.Stage;
+import com.google.ar.core.examples.java.helloar.SGP4.EclipseClassifier;
 import com.google.ar.core.examples.java.helloar.SGP4.SGP4track;
+import com.google.ar.core.examples.java.helloar.SGP4.SimulationClock;
+import com.google.ar.core.examples.java.helloar.SGP4.SolarEphemeris;
 import com.google.ar.core.examples.java.helloar.SGP4.TLEdata;
 import com.google.ar.core.examples.java.helloar.download.AsyncDownload;
 import com.google.ar.core.examples.java.helloar.rendering.BackgroundRenderer;
@@ -53,14 +58,20 @@ import com.google.ar.core.examples.java.helloar.rendering.ClusterRenderer;
 import com.google.ar.core.examples.java.helloar.rendering.DottedLineRenderer;
 import com.google.ar.core.examples.java.helloar.rendering.EarthRenderer;
 import com.google.ar.core.examples.java.helloar.rendering.EarthShadowRenderer;
+import com.google.ar.core.examples.java.helloar.rendering.GlJobQueue;
 import com.google.ar.core.examples.java.helloar.rendering.OrbitRenderer;
 import com.google.ar.core.examples.java.helloar.rendering.PlaneRenderer;
 import com.google.ar.core.examples.java.helloar.rendering.PointCloudRenderer;
+import com.google.ar.core.examples.java.helloar.rendering.ProgramCache;
+import com.google.ar.core.examples.java.helloar.rendering.SatelliteRenderer;
+import com.google.ar.core.examples.java.helloar.rendering.SceneNode;
 import com.google.ar.core.exceptions.UnavailableApkTooOldException;
 import com.google.ar.core.exceptions.UnavailableArcoreNotInstalledException;
 import com.google.ar.core.exceptions.UnavailableSdkTooOldException;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 
 import javax.microedition.khronos.egl.EGLConfig;
@@ -85,6 +96,8 @@ public class MainActivity extends AppCompatActivity implements GLSurfaceView.Ren
     private Snackbar mMessageSnackbar;
     private DisplayRotationHelper mDisplayRotationHelper;
     private Button mConfirmButton;
+    private TextView mProfilerOverlay;
+    private FrameProfiler mProfiler;
 
     private final BackgroundRenderer mBackgroundRenderer = new BackgroundRenderer();
     private final EarthRenderer mEarthObject             = new EarthRenderer();
@@ -92,15 +105,59 @@ public class MainActivity extends AppCompatActivity implements GLSurfaceView.Ren
     private final DottedLineRenderer mLineRenderer       = new DottedLineRenderer();
     private final PlaneRenderer mPlaneRenderer           = new PlaneRenderer();
     private final PointCloudRenderer mPointCloud         = new PointCloudRenderer();
+    private final SatelliteRenderer mSatRenderer         = new SatelliteRenderer();
 
     Satellite mSat;
+    private TLEdata mSatTle;
     OrbitRenderer mOrbitRenderer1;
-    ClusterRenderer mClusterRenderer = new ClusterRenderer();
+
+    // The orbit line is resampled when the on-screen size of the earth changes by more than a
+    // factor of 2, so its chords stay within ORBIT_PIXEL_TOLERANCE of the true path. Sampling
+    // runs on a background thread, the uniform line of createOrbit is drawn until it is done.
+    private static final float ORBIT_PIXEL_TOLERANCE = 0.5f;
+    private static final float MIN_ORBIT_TOLERANCE   = 1.0e-4f; // earth radii
+    private static final long ORBIT_JOB_NANOS = 2_000_000L;
+    private double mOrbitJulianDate;
+    private float mOrbitTolerance = 0.0f; // Of the last requested sampling, 0 for none
+    private boolean mOrbitSampling = false;
+    private int mOrbitGeneration = 0;     // Drops samplings started for a previous line
+    private int mViewportHeight = 1;
+
+    // GL work spread over frames: runs after drawing, within what is left of the frame budget
+    // but never more than GL_JOB_BUDGET_NANOS.
+    private static final long GL_JOB_BUDGET_NANOS = 4_000_000L;
+    private static final long GL_JOB_MARGIN_NANOS = 2_000_000L;
+    private final GlJobQueue mGlJobs = new GlJobQueue();
+
+    ClusterRenderer mClusterRenderer = new ClusterRenderer(mGlJobs);
     SatelliteCluster mCluster = new SatelliteCluster();
 
+    // Cluster positions come from the ephemeris cache, and are moved at most this often in
+    // simulation time so the points are not re-uploaded every frame.
+    private static final double CLUSTER_UPDATE_DAYS = 1.0 / 86400.0;
+    private double mClusterJulianDate = Double.NaN;
+
+    // Simulation time, read once per frame so that everything drawn in a frame shares an epoch.
+    private final SimulationClock mClock = new SimulationClock();
+
+    // Sun position and satellite illumination, updated once per tick.
+    private final SolarEphemeris mSolarEphemeris = new SolarEphemeris();
+    private final EclipseClassifier mEclipseClassifier =
+            new EclipseClassifier(EclipseClassifier.Model.CONICAL);
+    private final double[] mSunEcef = new double[3];
+    private final double[] mSunEarthFrame = new double[3];
+
     // Temporary matrix allocated here to reduce number of allocations for each frame.
     private final float[] mAnchorMatrix = new float[16];
 
+    // Scene hierarchy. The earth frame is placed by the anchor and the gestures, everything
+    // orbiting the earth is expressed relative to it.
+    private final SceneNode mEarthFrame     = new SceneNode();
+    private final SceneNode mEarthNode      = mEarthFrame.createChild();
+    private final SceneNode mSatelliteNode  = mEarthFrame.createChild();
+    private final SceneNode mOrbitNode      = mEarthFrame.createChild();
+    private final SceneNode mClusterNode    = mEarthFrame.createChild();
+
     // Tap handling and UI.
     private final ArrayBlockingQueue<MotionEvent> mQueuedSingleTaps = new ArrayBlockingQueue<>(16);
 
@@ -130,8 +187,12 @@ public class MainActivity extends AppCompatActivity implements GLSurfaceView.Ren
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
         mSurfaceView = findViewById(R.id.surfaceview);
+        mEarthNode.setRotation(90.0f); // Align the earth texture with the orbit coordinates
         mDisplayRotationHelper = new DisplayRotationHelper(/*context=*/ this);
 
+        mProfilerOverlay = findViewById(R.id.profiler_overlay);
+        mProfiler = new FrameProfiler(new File(getFilesDir(), "frame_profile.csv"));
+
         mConfirmButton = findViewById(R.id.confirm_button);
         mConfirmButton.setOnClickListener(new View.OnClickListener() {
             @Override
@@ -320,6 +381,12 @@ public class MainActivity extends AppCompatActivity implements GLSurfaceView.Ren
         }
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mProfiler.shutdown();
+    }
+
     @Override
     public void onRequestPermissionsResult(int requestCode, String[] permissions, int[] results) {
         if (!CameraPermissionHelper.hasCameraPermission(this)) {
@@ -357,6 +424,8 @@ public class MainActivity extends AppCompatActivity implements GLSurfaceView.Ren
     @Override
     public void onSurfaceCreated(GL10 gl, EGLConfig config) {
         GLES20.glClearColor(0.1f, 0.1f, 0.1f, 1.0f);
+        mGlJobs.clear(); // Jobs of a previous context refer to objects that no longer exist
+        ProgramCache.clear(); // Likewise the cached programs
 
         // Create the texture and pass it to ARCore session to be filled during update().
         mBackgroundRenderer.createOnGlThread(/*context=*/ this);
@@ -370,17 +439,32 @@ public class MainActivity extends AppCompatActivity implements GLSurfaceView.Ren
                 "2 25544  51.6417  94.5927 0003240 348.1782  11.9295 15.54288204 13688"
         );
         mSat = new Satellite(tle);
-        mSat.initRenderer(this);
+        mSatTle = tle;
 
         // Prepare the other rendering objects.
         try {
+            mSatRenderer.createOnGlThread(/*context=*/this, "iss.obj", 0xCC0000FF);
+            mSatRenderer.setMaterialProperties(1.0f, 3.5f, 1.0f, 6.0f);
+
             mEarthObject.createOnGlThread(/*context=*/this,"Albedo.jpg");
             mEarthObject.setMaterialProperties(0.0f, 3.5f, 1.0f, 6.0f);
 
             mShadowRenderer.createOnGlThread(this);
 
-            mOrbitRenderer1 = new OrbitRenderer(SGP4track.getSatellitePath(mSat, 80, true));
-            mOrbitRenderer1.createOnGlThread(this);
+            // The orbit is propagated in the first frames, see createOrbit.
+            mOrbitRenderer1 = null;
+            mGlJobs.post(new GlJobQueue.Job() {
+                @Override
+                public long estimateNanos() {
+                    return ORBIT_JOB_NANOS;
+                }
+
+                @Override
+                public boolean run() {
+                    createOrbit();
+                    return true;
+                }
+            });
 
             mLineRenderer.createOnGlThread(this);
 
@@ -400,23 +484,26 @@ public class MainActivity extends AppCompatActivity implements GLSurfaceView.Ren
     public void onSurfaceChanged(GL10 gl, int width, int height) {
         mDisplayRotationHelper.onSurfaceChanged(width, height);
         GLES20.glViewport(0, 0, width, height);
+        mViewportHeight = height;
     }
 
-    long prev = 0;
-    long frames = 0;
     @Override
     public void onDrawFrame(GL10 gl) {
+        mProfiler.beginFrame();
+        try {
+            drawFrame();
+            runGlJobs();
+        } finally {
+            if (mProfiler.endFrame()) {
+                showProfilerReport(mProfiler.getReport());
+            }
+        }
+    }
+
+    private void drawFrame() {
         // Clear screen to notify driver it should not load any pixels from previous frame.
         GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
 
-        long curr = System.currentTimeMillis();
-        frames++;
-        if ( (curr - prev) >= 1000.0) {
-            System.out.println("FPS: " + frames);
-            frames = 0;
-            prev = curr;
-        }
-
         if (mSession == null) {
             return;
         }
@@ -428,7 +515,12 @@ public class MainActivity extends AppCompatActivity implements GLSurfaceView.Ren
             // Obtain the current frame from ARSession. When the configuration is set to
             // UpdateMode.BLOCKING (it is by default), this will throttle the rendering to the
             // camera framerate.
+            mProfiler.begin(Stage.SESSION_UPDATE);
             Frame frame = mSession.update();
+            mProfiler.end(Stage.SESSION_UPDATE);
+            final double julianDate = mClock.tick();
+            updateCluster(julianDate);
+            updateSun(julianDate);
             Camera camera = frame.getCamera();
 
             // Handle taps. Handling only one tap per frame, as taps are usually low frequency
@@ -454,7 +546,9 @@ public class MainActivity extends AppCompatActivity implements GLSurfaceView.Ren
             }
 
             // Draw background.
+            mProfiler.begin(Stage.BACKGROUND);
             mBackgroundRenderer.draw(frame);
+            mProfiler.end(Stage.BACKGROUND);
 
             // If not tracking, don't draw 3d objects.
             if (camera.getTrackingState() == TrackingState.PAUSED) {
@@ -485,6 +579,8 @@ public class MainActivity extends AppCompatActivity implements GLSurfaceView.Ren
 
             // Visualize planes and point cloud if not in positioning mode
             if (isPositioning) {
+                mProfiler.begin(Stage.PLANES);
+
                 // Visualize tracked points.
                 PointCloud pointCloud = frame.acquirePointCloud();
                 mPointCloud.update(pointCloud);
@@ -498,6 +594,8 @@ public class MainActivity extends AppCompatActivity implements GLSurfaceView.Ren
                 mPlaneRenderer.drawPlanes(
                         mSession.getAllTrackables(Plane.class),
                         camera.getDisplayOrientedPose(), projmtx);
+
+                mProfiler.end(Stage.PLANES);
             }
 
 
@@ -513,24 +611,41 @@ public class MainActivity extends AppCompatActivity implements GLSurfaceView.Ren
                 // Get the current pose of an Anchor in world space. The Anchor pose is updated
                 // during calls to session.update() as ARCore refines its estimate of the world.
                 mEarthAnchor.getPose().toMatrix(mAnchorMatrix, 0);
-                float[] origin = new float[4];
-                mEarthAnchor.getPose().getTranslation(origin, 0);
+
+                // Only invalidates the scene when the anchor moved or a gesture changed it.
+                mEarthFrame.setAnchorTransform(mAnchorMatrix, mScaleFactor, mTranslateFactor,
+                        mRotateAngle);
 
                 // Update and draw the model and its shadow.
-                mEarthObject.updateModelMatrix(mAnchorMatrix, mScaleFactor, mTranslateFactor, mRotateAngle);
-                mEarthObject.draw(viewmtx, projmtx, lightIntensity, isPositioning);
+                mProfiler.begin(Stage.EARTH);
+                mEarthObject.draw(mEarthNode, viewmtx, projmtx, lightIntensity, isPositioning);
 
                 mShadowRenderer.updateModelMatrix(mAnchorMatrix, mScaleFactor);
                 mShadowRenderer.draw(viewmtx, projmtx, mTranslateFactor / 2 + 1);
+                mProfiler.end(Stage.EARTH);
+
+                mProfiler.begin(Stage.SATELLITE);
+                mSat.update(julianDate);
+                final Point3D satPosition = mSat.getPosition();
+                mSatelliteNode.setTranslation((float) satPosition.x, (float) satPosition.y,
+                        (float) satPosition.z);
+                mSatRenderer.draw(mSatelliteNode, viewmtx, projmtx, lightIntensity);
+                mProfiler.end(Stage.SATELLITE);
+
+                mProfiler.begin(Stage.ORBIT);
+                if (mOrbitRenderer1 != null) {
+                    updateOrbit(viewmtx, projmtx);
+                    mOrbitRenderer1.draw(mOrbitNode, viewmtx, projmtx);
+                }
+                mProfiler.end(Stage.ORBIT);
 
-                mSat.update(mAnchorMatrix, mScaleFactor, mTranslateFactor, mRotateAngle);
-                mSat.draw(viewmtx, projmtx, lightIntensity);
-                mOrbitRenderer1.updateModelMatrix(mAnchorMatrix, mScaleFactor, mTranslateFactor, mRotateAngle);
-                mOrbitRenderer1.draw(viewmtx, projmtx);
+                mProfiler.begin(Stage.CLUSTER_UPLOAD);
+                mClusterRenderer.update(mCluster, mClusterNode, viewmtx, projmtx);
+                mProfiler.end(Stage.CLUSTER_UPLOAD);
 
-                mClusterRenderer.update(mCluster);
-                mClusterRenderer.updateModelMatrix(mAnchorMatrix, mScaleFactor, mTranslateFactor, mRotateAngle);
-                mClusterRenderer.draw(viewmtx, projmtx);
+                mProfiler.begin(Stage.CLUSTER_DRAW);
+                mClusterRenderer.draw(mClusterNode, viewmtx, projmtx);
+                mProfiler.end(Stage.CLUSTER_DRAW);
 
                 // Only render y-axis if in positioning stage
                 if (isPositioning) {
@@ -546,6 +661,125 @@ public class MainActivity extends AppCompatActivity implements GLSurfaceView.Ren
         }
     }
 
+    /*
+     * Runs queued GL work with the time left in this frame.
+     */
+    private void runGlJobs() {
+        mProfiler.begin(Stage.GL_JOBS);
+        final long budget = Math.min(GL_JOB_BUDGET_NANOS, FrameProfiler.FRAME_BUDGET_NANOS
+                - GL_JOB_MARGIN_NANOS - mProfiler.getFrameElapsedNanos());
+        mGlJobs.run(budget);
+        mProfiler.end(Stage.GL_JOBS);
+    }
+
+    /*
+     * Propagates the orbit line and creates its renderer. Uniform until the adaptive line for the
+     * on-screen scale arrives, see updateOrbit.
+     */
+    private void createOrbit() {
+        mOrbitJulianDate = mClock.getJulianDate();
+        mOrbitTolerance = 0.0f;
+        mOrbitSampling = false;
+        mOrbitGeneration++;
+        OrbitRenderer orbit = new OrbitRenderer(
+                SGP4track.getSatellitePath(mSat, 80, true, mOrbitJulianDate));
+        try {
+            orbit.createOnGlThread(this);
+            mOrbitRenderer1 = orbit;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to create orbit renderer");
+        }
+    }
+
+    /*
+     * Resamples the orbit line for the current on-screen size of the earth, if it changed
+     * enough since the last sampling. Sampling can take thousands of propagations, so it runs
+     * on a background thread, on its own copy of the satellite, and the new line is uploaded
+     * through the GL job queue. One sampling runs at a time.
+     */
+    private void updateOrbit(float[] viewmtx, float[] projmtx) {
+        mOrbitNode.updateView(viewmtx, projmtx);
+        final float tolerance = Math.max(MIN_ORBIT_TOLERANCE, OrbitRenderer.chordTolerance(
+                mOrbitNode, projmtx, mViewportHeight, ORBIT_PIXEL_TOLERANCE));
+        if (mOrbitSampling || (mOrbitTolerance > 0.0f && tolerance > 0.5f * mOrbitTolerance
+                && tolerance < 2.0f * mOrbitTolerance)) {
+            return;
+        }
+        mOrbitTolerance = tolerance;
+        mOrbitSampling = true;
+        final int generation = mOrbitGeneration;
+        final TLEdata tle = mSatTle;
+        final double julianDate = mOrbitJulianDate;
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<Point3D> points = SGP4track.getSatellitePathAdaptive(
+                        new Satellite(tle), tolerance, true, julianDate);
+                mGlJobs.post(new GlJobQueue.Job() {
+                    @Override
+                    public long estimateNanos() {
+                        return ORBIT_JOB_NANOS;
+                    }
+
+                    @Override
+                    public boolean run() {
+                        if (generation == mOrbitGeneration && mOrbitRenderer1 != null) {
+                            mOrbitRenderer1.setPoints(points);
+                            mOrbitSampling = false;
+                        }
+                        return true;
+                    }
+                });
+            }
+        });
+    }
+
+    /*
+     * Moves the cluster to the frame time, if the ephemeris cache covers it.
+     */
+    private void updateCluster(double julianDate) {
+        if (Math.abs(julianDate - mClusterJulianDate) < CLUSTER_UPDATE_DAYS) {
+            return;
+        }
+        if (mCluster.updatePositions(julianDate)) {
+            mClusterJulianDate = julianDate;
+        }
+    }
+
+    /*
+     * Moves the light to the sun and classifies the illumination of the cluster. Positions in
+     * the earth frame are earth fixed with x = ecef y, y = ecef z and z = ecef x, in earth radii,
+     * see SGP4track.updateSatellite.
+     */
+    private void updateSun(double julianDate) {
+        mSolarEphemeris.update(julianDate);
+        mSolarEphemeris.getEarthFixedPosition(mSunEcef);
+        mSunEarthFrame[0] = mSunEcef[1] / EarthRenderer.EARTH_RADIUS;
+        mSunEarthFrame[1] = mSunEcef[2] / EarthRenderer.EARTH_RADIUS;
+        mSunEarthFrame[2] = mSunEcef[0] / EarthRenderer.EARTH_RADIUS;
+
+        final double length = Math.sqrt(mSunEarthFrame[0] * mSunEarthFrame[0]
+                + mSunEarthFrame[1] * mSunEarthFrame[1] + mSunEarthFrame[2] * mSunEarthFrame[2]);
+        final float x = (float) (mSunEarthFrame[0] / length);
+        final float y = (float) (mSunEarthFrame[1] / length);
+        final float z = (float) (mSunEarthFrame[2] / length);
+        mSatRenderer.setLightDirection(x, y, z);
+        // The earth mesh is rotated by 90 degrees about y within the earth frame.
+        mEarthObject.setLightDirection(-z, y, x);
+
+        mEclipseClassifier.setSun(mSunEarthFrame, 1.0,
+                SolarEphemeris.SUN_RADIUS / EarthRenderer.EARTH_RADIUS);
+        mCluster.updateEclipseStates(mEclipseClassifier);
+    }
+
+    /**
+     * @return the simulation clock driving propagation. Use it to fast-forward, reverse, pause or
+     * jump in time.
+     */
+    public SimulationClock getSimulationClock() {
+        return mClock;
+    }
+
     private void showSnackbarMessage(String message, boolean finishOnDismiss) {
         mMessageSnackbar = Snackbar.make(
             MainActivity.this.findViewById(android.R.id.content),
@@ -572,6 +806,15 @@ public class MainActivity extends AppCompatActivity implements GLSurfaceView.Ren
         mMessageSnackbar.show();
     }
 
+    private void showProfilerReport(final String report) {
+        runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                mProfilerOverlay.setText(report);
+            }
+        });
+    }
+
     private void showLoadingMessage() {
         runOnUiThread(new Runnable() {
             @Override
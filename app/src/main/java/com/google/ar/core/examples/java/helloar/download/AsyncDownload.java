@@ -8,7 +8,10 @@ import android.view.View;
 import android.widget.ProgressBar;
 import android.widget.RelativeLayout;
 
+import com.google.ar.core.examples.java.helloar.CatalogStore;
+import com.google.ar.core.examples.java.helloar.EphemerisCache;
 import com.google.ar.core.examples.java.helloar.R;
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4SatData;
 import com.google.ar.core.examples.java.helloar.SGP4.SGP4track;
 import com.google.ar.core.examples.java.helloar.SGP4.TLEdata;
 import com.google.ar.core.examples.java.helloar.Satellite;
@@ -24,28 +27,39 @@ import java.net.CookieManager;
 import java.net.CookiePolicy;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.Arrays;
 
 /**
  * Created by TY on 1/8/2018.
  *
- * Retrieves a TLE file from internal storage or over the network if TLE is file is old. After each
- * TLE is processed, the data is sent to onProgressUpdate() so that a new satellite may be added
- * to the satelliteList output array
+ * Retrieves a TLE file from internal storage or over the network if TLE is file is old. The file
+ * is parsed into a compact {@link CatalogStore}, whose version keys the ephemeris cache of the
+ * last launch. Satellites are then built from the store in batches, placed from the cache if it
+ * covers the current time and only propagated otherwise, and each batch is sent to
+ * onProgressUpdate() so that the cluster fills in while the rest is placed.
  *
  * Edited version of AsyncUpdate from SatTracker application
  */
 
 //TODO ensure that AsyncDownload is canceled so that context isn't leaked
 
-public class AsyncDownload extends AsyncTask<String, Satellite, Boolean> {
+public class AsyncDownload extends AsyncTask<String, Satellite[], Boolean> {
     private static final String TAG = AsyncDownload.class.getSimpleName();
 
+    // Satellites placed per progress update, each added to the cluster under one lock.
+    private static final int PUBLISH_BATCH = 500;
+
     private final Context context;
     private final RelativeLayout background;
     private final ProgressBar progressBar;
     private final SatelliteCluster cluster;
     private String mFileName = "tle.txt";
 
+    // Elements of the parsed satellites, in the order they are published to the cluster in.
+    // They key and extend the ephemeris cache.
+    private final CatalogStore mElements = new CatalogStore();
+    private EphemerisCache mCache;
+
     private boolean isFinishedDownloading = false; // Used to indicate that download is done so user can continue to main activity
 
     public AsyncDownload(Context context, SatelliteCluster cluster) {
@@ -99,14 +113,11 @@ public class AsyncDownload extends AsyncTask<String, Satellite, Boolean> {
                 while(((name  = br.readLine()) != null) &&
                       ((line1 = br.readLine()) != null) &&
                       ((line2 = br.readLine()) != null)) {
-                    TLEdata tle = new TLEdata(name, line1, line2);
                     // Saving TLE file to internal storage
                     writer.write(name + "\n");
                     writer.write(line1 + "\n");
                     writer.write(line2 + "\n");
-                    Satellite newSat = new Satellite(tle);
-                    SGP4track.updateSatellite(newSat);
-                    publishProgress(newSat);
+                    addSatellite(new TLEdata(name, line1, line2));
                     writer.flush();
                 }
                 br.close();
@@ -117,6 +128,7 @@ public class AsyncDownload extends AsyncTask<String, Satellite, Boolean> {
                 Log.i(TAG,"Failed to connect to server");
                 publishProgress(null); // Unsuccessful connection
             }
+            publishSatellites();
             return true;    // File downloaded
 
         } else {
@@ -131,28 +143,71 @@ public class AsyncDownload extends AsyncTask<String, Satellite, Boolean> {
                 while(((name  = br.readLine()) != null) &&
                       ((line1 = br.readLine()) != null) &&
                       ((line2 = br.readLine()) != null)) {
-                    TLEdata tle = new TLEdata(name, line1, line2);
-                    Satellite newSat = new Satellite(tle);
-                    SGP4track.updateSatellite(newSat);
-                    publishProgress(newSat);
+                    addSatellite(new TLEdata(name, line1, line2));
                 }
                 br.close();
 
             } catch (Exception e) {
-                Log.e(TAG, "Error reading TLE file: " + mFileName + e.getMessage());
+                Log.e(TAG, "Error reading TLE file: " + mFileName, e);
             }
 
+            publishSatellites();
             return false;   // File not downloaded as it already exists
         }
     }
 
+    /*
+     * Initializes a parsed satellite and keeps only its elements, see CatalogStore.
+     */
+    private void addSatellite(TLEdata tle) {
+        SGP4SatData data = SGP4track.initSatellite(tle);
+        if (data != null) {
+            mElements.add(data);
+        }
+    }
+
+    /*
+     * Places the parsed satellites at the current time and publishes them in batches. Positions
+     * come from the ephemeris cache when it holds this catalog and covers the time, so a relaunch
+     * shows the cluster without propagating; otherwise each batch is propagated before it is
+     * published. Only one batch of satellites is held at a time.
+     */
+    private void publishSatellites() {
+        final double julianDate = SGP4track.getJulianTime();
+        final int count = mElements.size();
+        mCache = AsyncEphemeris.open(context, mElements, julianDate);
+        float[] positions = new float[3 * count];
+        if (mCache == null || !mCache.getPositions(julianDate, positions)) {
+            positions = null;
+        }
+        Log.d(TAG, positions != null ? "Placing satellites from the ephemeris cache"
+                : "Propagating satellites");
+
+        for (int first = 0; first < count; first += PUBLISH_BATCH) {
+            final Satellite[] batch = new Satellite[Math.min(PUBLISH_BATCH, count - first)];
+            for (int j = 0; j < batch.length; ++j) {
+                final int i = first + j;
+                final Satellite sat = mElements.getSatellite(i);
+                // NaN where the cache could not propagate the satellite, SGP4 then logs why.
+                if (positions != null && !Float.isNaN(positions[3 * i])) {
+                    SGP4track.setPosition(sat, positions[3 * i], positions[3 * i + 1],
+                            positions[3 * i + 2]);
+                } else {
+                    SGP4track.updateSatellite(sat, julianDate, SGP4track.Fidelity.RENDER);
+                }
+                batch[j] = sat;
+            }
+            publishProgress(batch);
+        }
+    }
+
     @Override
-    protected void onProgressUpdate(Satellite... res) {
+    protected void onProgressUpdate(Satellite[]... res) {
 //        Satellite sat = res[0];
 
-        // If downloaded succeeded, add the satellite to the adapter so that it may be rendered
+        // If downloaded succeeded, add the satellites to the cluster so that they may be rendered
         if(res != null && res.length > 0) {
-            cluster.addSatellite(res[0]);
+            cluster.addSatellite(Arrays.asList(res[0]));
         }
 
         // If downloaded failed, display notification
@@ -194,9 +249,15 @@ public class AsyncDownload extends AsyncTask<String, Satellite, Boolean> {
             progressBar.setVisibility(View.GONE);
         }
 
+        // Positions for the next hours, so the cluster follows the clock without propagating.
+        if (mCache != null) {
+            new AsyncEphemeris(cluster, mElements, mCache)
+                    .executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+        }
+
         // If the file was not downloaded, then satellites need to be read from the pre-existing file.
 //        if(!downloaded) {
-//            cluster.addSatellite(SGP4track.readTLE(context, mFileName));
+//            cluster.addSatellite(SGP4track.readTLE(new File(context.getFilesDir(), mFileName)));
 //        }
 
         Log.d(TAG, "AsyncDownload finished executing");
@@ -0,0 +1,77 @@
+package com.google.ar.core.examples.java.helloar.download;
+
+import android.content.Context;
+import android.os.AsyncTask;
+import android.util.Log;
+
+import com.google.ar.core.examples.java.helloar.CatalogStore;
+import com.google.ar.core.examples.java.helloar.EphemerisCache;
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4track;
+import com.google.ar.core.examples.java.helloar.SatelliteCluster;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Extends the ephemeris cache of the loaded catalog to cover the next hours. The cache is opened
+ * with {@link #open} while the catalog loads, so that positions kept from the last launch place
+ * the satellites without propagating, and handed to the cluster as soon as this task starts.
+ */
+public class AsyncEphemeris extends AsyncTask<Void, Void, Integer> {
+    private static final String TAG = AsyncEphemeris.class.getSimpleName();
+
+    private static final String CACHE_FILE = "ephemeris.bin";
+    private static final double STEP_MINUTES  = 1.0;
+    private static final double HORIZON_HOURS = 3.0;
+    private static final int CAPACITY = (int) (HORIZON_HOURS * 60.0 / STEP_MINUTES) + 1;
+
+    private final SatelliteCluster cluster;
+    private final CatalogStore elements;
+    private final EphemerisCache cache;
+
+    /**
+     * @param elements elements of the satellites in the cluster, in the same order
+     * @param cache cache opened for {@code elements}, see {@link #open}
+     */
+    public AsyncEphemeris(SatelliteCluster cluster, CatalogStore elements, EphemerisCache cache) {
+        this.cluster   = cluster;
+        this.elements  = elements;
+        this.cache     = cache;
+    }
+
+    /**
+     * Maps the cache file of the app for a catalog, resetting it if it was written for another
+     * one. Call from a background thread.
+     *
+     * @param elements elements of the whole catalog
+     * @param julianDate the current time
+     * @return the cache, or null if it cannot be opened
+     */
+    public static EphemerisCache open(Context context, CatalogStore elements, double julianDate) {
+        final File cacheFile = new File(context.getCacheDir(), CACHE_FILE);
+        try {
+            return EphemerisCache.open(cacheFile, elements, julianDate, STEP_MINUTES, CAPACITY);
+        } catch (IOException e) {
+            Log.e(TAG, "Error opening ephemeris cache: " + cacheFile, e);
+            return null;
+        }
+    }
+
+    @Override
+    protected void onPreExecute() {
+        cluster.setEphemeris(cache);
+    }
+
+    @Override
+    protected Integer doInBackground(Void... params) {
+        final double julianDate = SGP4track.getJulianTime();
+        final int steps = cache.extend(elements, julianDate, julianDate + HORIZON_HOURS / 24.0);
+        cache.force();
+        return steps;
+    }
+
+    @Override
+    protected void onPostExecute(Integer steps) {
+        Log.d(TAG, "Ephemeris cache extended by " + steps + " steps");
+    }
+}
@@ -97,15 +97,8 @@ public class BackgroundRenderer {
         bbTexCoordsTransformed.order(ByteOrder.nativeOrder());
         mQuadTexCoordTransformed = bbTexCoordsTransformed.asFloatBuffer();
 
-        int vertexShader = ShaderUtil.loadGLShader(TAG, context,
-                GLES20.GL_VERTEX_SHADER, R.raw.screenquad_vertex);
-        int fragmentShader = ShaderUtil.loadGLShader(TAG, context,
-                GLES20.GL_FRAGMENT_SHADER, R.raw.screenquad_fragment_oes);
-
-        mQuadProgram = GLES20.glCreateProgram();
-        GLES20.glAttachShader(mQuadProgram, vertexShader);
-        GLES20.glAttachShader(mQuadProgram, fragmentShader);
-        GLES20.glLinkProgram(mQuadProgram);
+        mQuadProgram = ProgramCache.getProgram(TAG, context,
+                R.raw.screenquad_vertex, R.raw.screenquad_fragment_oes);
         GLES20.glUseProgram(mQuadProgram);
 
         ShaderUtil.checkGLError(TAG, "Program creation");
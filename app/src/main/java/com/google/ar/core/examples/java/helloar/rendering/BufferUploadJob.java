@@ -0,0 +1,96 @@
+package com.google.ar.core.examples.java.helloar.rendering;
+
+import android.opengl.GLES20;
+
+import java.nio.Buffer;
+
+/**
+ * Uploads an array into a vertex buffer in chunks, one chunk per {@link GlJobQueue} run, so that
+ * a large upload does not stall a single frame. The buffer is first (re)allocated if requested.
+ * The source must not change until {@link #isDone()}; draw from another buffer meanwhile.
+ */
+public class BufferUploadJob implements GlJobQueue.Job {
+    private static final String TAG = BufferUploadJob.class.getSimpleName();
+
+    private static final int CHUNK_BYTES = 64 * 1024; // per run
+
+    // Upload speed measured over all jobs, for the estimates. Starts at a conservative 1 GB/s.
+    private static float sNanosPerByte = 1.0f;
+    private static final float SPEED_SMOOTHING = 0.2f;
+
+    private final int mBuffer;
+    private final int mAllocateBytes;
+    private final Buffer mSource;
+    private final int mBytesPerElement;
+    private final int mChunkElements;
+    private final int mCount;
+
+    private boolean mAllocated;
+    private int mUploaded = 0;
+    private volatile boolean mDone = false;
+
+    /**
+     * @param buffer name of the GL_ARRAY_BUFFER to upload to
+     * @param allocateBytes size to allocate the buffer to first with GL_DYNAMIC_DRAW, or 0 if it
+     *     is already large enough
+     * @param source elements to upload, from index 0, e.g. a FloatBuffer or ShortBuffer
+     * @param bytesPerElement size of one element of {@code source}
+     * @param count number of elements
+     */
+    public BufferUploadJob(int buffer, int allocateBytes, Buffer source, int bytesPerElement,
+                           int count) {
+        mBuffer = buffer;
+        mAllocateBytes = allocateBytes;
+        mSource = source;
+        mBytesPerElement = bytesPerElement;
+        mChunkElements = CHUNK_BYTES / bytesPerElement;
+        mCount = count;
+        mAllocated = allocateBytes == 0;
+    }
+
+    /**
+     * @return true once every element has been uploaded
+     */
+    public boolean isDone() {
+        return mDone;
+    }
+
+    @Override
+    public long estimateNanos() {
+        final int bytes = mAllocated ? Math.min(mChunkElements, mCount - mUploaded)
+                * mBytesPerElement : mAllocateBytes;
+        return (long) (bytes * sNanosPerByte);
+    }
+
+    @Override
+    public boolean run() {
+        final long start = System.nanoTime();
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mBuffer);
+        final int bytes;
+        if (!mAllocated) {
+            // Reallocation is not charged to the upload speed, it is timed like an upload of
+            // the whole buffer in the estimate above.
+            GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, mAllocateBytes, null,
+                    GLES20.GL_DYNAMIC_DRAW);
+            mAllocated = true;
+            bytes = 0;
+        } else {
+            final int elements = Math.min(mChunkElements, mCount - mUploaded);
+            mSource.limit(mUploaded + elements);
+            mSource.position(mUploaded);
+            GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, mUploaded * mBytesPerElement,
+                    elements * mBytesPerElement, mSource);
+            mUploaded += elements;
+            bytes = elements * mBytesPerElement;
+        }
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        ShaderUtil.checkGLError(TAG, "buffer upload");
+
+        if (bytes > 0) {
+            final float nanosPerByte = (float) (System.nanoTime() - start) / bytes;
+            sNanosPerByte += SPEED_SMOOTHING * (nanosPerByte - sNanosPerByte);
+        }
+        mDone = mUploaded >= mCount;
+        return mDone;
+    }
+}
@@ -7,9 +7,15 @@ import android.opengl.GLSurfaceView;
 import android.opengl.Matrix;
 import android.util.Log;
 
+import com.google.ar.core.examples.java.helloar.DirtyRangeTracker;
+import com.google.ar.core.examples.java.helloar.OrbitRegime;
+import com.google.ar.core.examples.java.helloar.PointQuantizer;
 import com.google.ar.core.examples.java.helloar.R;
+import com.google.ar.core.examples.java.helloar.SGP4.EclipseClassifier;
 import com.google.ar.core.examples.java.helloar.SatelliteCluster;
 
+import java.nio.ShortBuffer;
+
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
@@ -21,30 +27,90 @@ public class ClusterRenderer {
 
     private static final String TAG = ClusterRenderer.class.getSimpleName();
 
-    private static final int BYTES_PER_FLOAT = Float.SIZE / 8;
-    private static final int COORDS_PER_POINT = 3;  // X,Y,Z
-    private static final int BYTES_PER_POINT = BYTES_PER_FLOAT * COORDS_PER_POINT;
+    // Points are quantized and interleaved with their style, see PointQuantizer.
+    private static final int BYTES_PER_SHORT = Short.SIZE / 8;
+    private static final int SHORTS_PER_POINT = PointQuantizer.SHORTS_PER_POINT;
+    private static final int BYTES_PER_POINT = PointQuantizer.BYTES_PER_POINT;
     private static final int INITIAL_BUFFER_POINTS = 1000;
+    // Larger uploads, or any that needs a bigger buffer, go through the job queue.
+    private static final int IMMEDIATE_UPLOAD_BYTES = 64 * 1024;
+    // Changed ranges closer than 64 points are uploaded as one, in at most 32 calls.
+    private static final int MERGE_GAP_SHORTS = 64 * SHORTS_PER_POINT;
+    private static final int MAX_DIRTY_RANGES = 32;
+
+    // Point color by orbit regime, dimmed by eclipse state. Palette index is
+    // regime * ECLIPSE_STATES + eclipse state.
+    private static final float[][] REGIME_COLORS = {
+            {31.0f / 255.0f, 188.0f / 255.0f, 210.0f / 255.0f},  // LEO
+            {120.0f / 255.0f, 200.0f / 255.0f, 90.0f / 255.0f},  // MEO
+            {240.0f / 255.0f, 190.0f / 255.0f, 60.0f / 255.0f},  // GEO
+            {220.0f / 255.0f, 100.0f / 255.0f, 200.0f / 255.0f}, // HEO
+    };
+    private static final int ECLIPSE_STATES = 3;
+    private static final float[] ECLIPSE_BRIGHTNESS = {1.0f, 0.6f, 0.35f}; // Sunlit, penumbra, umbra
+    private static final int[] ECLIPSE_POINT_SIZES = {5, 4, 3};               // pixels
+    private static final int PALETTE_SIZE = OrbitRegime.values().length * ECLIPSE_STATES;
+    private static final float[] PALETTE = new float[4 * PALETTE_SIZE];
+
+    static {
+        for (int regime = 0; regime < REGIME_COLORS.length; ++regime) {
+            for (int state = 0; state < ECLIPSE_STATES; ++state) {
+                final int i = 4 * (regime * ECLIPSE_STATES + state);
+                for (int c = 0; c < 3; ++c) {
+                    PALETTE[i + c] = REGIME_COLORS[regime][c] * ECLIPSE_BRIGHTNESS[state];
+                }
+                PALETTE[i + 3] = 1.0f;
+            }
+        }
+    }
 
-    private int mVbo;
-    private int mVboSize;
+    // Two buffers: the front one is drawn while a large upload fills the back one over several
+    // frames, then they are swapped.
+    private final int[] mVbos = new int[2];
+    private final int[] mVboSizes = new int[2];
+    private int mFront = 0;
+
+    private final GlJobQueue mJobs;
+    private BufferUploadJob mPendingUpload;
+    private int mPendingPoints;
 
     private int mProgramName;
     private int mPositionAttribute;
+    private int mStyleAttribute;
     private int mModelViewProjectionUniform;
-    private int mColorUniform;
-    private int mPointSizeUniform;
+    private int mScaleUniform;
+    private int mPaletteUniform;
+    private int mCameraUniform;
+    private final float[] mInverseModelView = new float[16];
 
     private int mNumPoints = 0;
 
     private SatelliteCluster mPrevCluster;
+    private int mPrevVersion;
+
+    // Every sampled point keeps its slot in the buffer, so that moving the camera changes
+    // nothing and a cluster update only uploads the points that changed. Points are culled
+    // against the earth in the vertex shader, and against the frustum by clipping.
+    private final VisibilityCuller mCuller = new VisibilityCuller();
+    private int[] mIndices = new int[0]; // 0, 1, 2, ... for PointQuantizer.encode
+    private short[] mStyles = new short[INITIAL_BUFFER_POINTS]; // Indexed like the cluster points
+    private short[] mEncoded = new short[INITIAL_BUFFER_POINTS * SHORTS_PER_POINT];
+    private ShortBuffer mUploadBuffer = ShortBuffer.wrap(mEncoded);
+
+    // What each VBO holds, so that only the ranges that differ from the new points are uploaded.
+    // The arrays rotate with mEncoded instead of being copied.
+    private final short[][] mContents = new short[2][0];
+    private final ShortBuffer[] mContentBuffers = new ShortBuffer[2];
+    private final int[] mContentShorts = new int[2];
+    private final float[] mContentRadius = {1.0f, 1.0f};
+    private final DirtyRangeTracker mDirty =
+            new DirtyRangeTracker(MERGE_GAP_SHORTS, MAX_DIRTY_RANGES);
 
-    // Temporary matrices allocated here to reduce number of allocations for each frame.
-    private float[] mModelMatrix = new float[16];
-    private float[] mModelViewMatrix = new float[16];
-    private float[] mModelViewProjectionMatrix = new float[16];
-
-    public ClusterRenderer() {
+    /**
+     * @param jobs queue that spreads large uploads over frames
+     */
+    public ClusterRenderer(GlJobQueue jobs) {
+        mJobs = jobs;
     }
 
     /**
@@ -57,118 +123,225 @@ public class ClusterRenderer {
     public void createOnGlThread(Context context) {
         ShaderUtil.checkGLError(TAG, "before create");
 
-        int[] buffers = new int[1];
-        GLES20.glGenBuffers(1, buffers, 0);
-        mVbo = buffers[0];
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVbo);
-
-        mVboSize = INITIAL_BUFFER_POINTS * BYTES_PER_POINT;
-        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, mVboSize, null, GLES20.GL_DYNAMIC_DRAW);
+        GLES20.glGenBuffers(2, mVbos, 0);
+        for (int i = 0; i < 2; ++i) {
+            GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVbos[i]);
+            mVboSizes[i] = INITIAL_BUFFER_POINTS * BYTES_PER_POINT;
+            GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, mVboSizes[i], null,
+                    GLES20.GL_DYNAMIC_DRAW);
+        }
         GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        mContentShorts[0] = 0;
+        mContentShorts[1] = 0;
+        mFront = 0;
+        mPendingUpload = null;
+        mNumPoints = 0;
+        mPrevCluster = null;
 
         ShaderUtil.checkGLError(TAG, "buffer alloc");
 
-        int vertexShader = ShaderUtil.loadGLShader(TAG, context,
-                GLES20.GL_VERTEX_SHADER, R.raw.point_cloud_vertex);
-        int passthroughShader = ShaderUtil.loadGLShader(TAG, context,
-                GLES20.GL_FRAGMENT_SHADER, R.raw.passthrough_fragment);
-
-        mProgramName = GLES20.glCreateProgram();
-        GLES20.glAttachShader(mProgramName, vertexShader);
-        GLES20.glAttachShader(mProgramName, passthroughShader);
-        GLES20.glLinkProgram(mProgramName);
+        mProgramName = ProgramCache.getProgram(TAG, context,
+                R.raw.cluster_vertex, R.raw.passthrough_fragment);
         GLES20.glUseProgram(mProgramName);
 
         ShaderUtil.checkGLError(TAG, "program");
 
         mPositionAttribute = GLES20.glGetAttribLocation(mProgramName, "a_Position");
-        mColorUniform = GLES20.glGetUniformLocation(mProgramName, "u_Color");
+        mStyleAttribute = GLES20.glGetAttribLocation(mProgramName, "a_Style");
         mModelViewProjectionUniform = GLES20.glGetUniformLocation(
                 mProgramName, "u_ModelViewProjection");
-        mPointSizeUniform = GLES20.glGetUniformLocation(mProgramName, "u_PointSize");
+        mScaleUniform = GLES20.glGetUniformLocation(mProgramName, "u_Scale");
+        mPaletteUniform = GLES20.glGetUniformLocation(mProgramName, "u_Palette");
+        mCameraUniform = GLES20.glGetUniformLocation(mProgramName, "u_Camera");
 
         ShaderUtil.checkGLError(TAG, "program  params");
     }
 
     /**
-     * Updates the OpenGL buffer contents to the provided point.  Repeated calls with the same
-     * cluster will be ignored.
+     * Updates the OpenGL buffer contents to the sampled points of the cluster, quantized and
+     * styled by orbit regime and eclipse state. Calls are ignored unless the cluster changed
+     * since the last upload; camera moves need no upload, see {@link #draw}.  Only the ranges of
+     * the buffer that changed are uploaded.
+     * Small uploads are done right away; large ones are queued on the job queue and the previous
+     * points are drawn until they complete.
+     *
+     * @param cluster           the satellites to draw
+     * @param node              scene node the points are expressed in
+     * @param cameraView        the camera view matrix for this frame
+     * @param cameraPerspective the camera projection matrix for this frame
      */
-    public void update(SatelliteCluster cluster) {
-        if (mPrevCluster == cluster) {
-            // Redundant call.
-            return;
+    public void update(SatelliteCluster cluster, SceneNode node, float[] cameraView,
+                       float[] cameraPerspective) {
+        node.updateView(cameraView, cameraPerspective);
+        mCuller.setCamera(node.getModelViewMatrix(), node.getModelViewProjectionMatrix());
+        if (mPendingUpload != null) {
+            if (!mPendingUpload.isDone()) {
+                return; // Updated again once the upload in flight has landed
+            }
+            mFront ^= 1;
+            mNumPoints = mPendingPoints;
+            mPendingUpload = null;
         }
-
         ShaderUtil.checkGLError(TAG, "before update");
 
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVbo);
-        mPrevCluster = cluster;
-
-        // If the VBO is not large enough to fit the new point cloud, resize it.
-        mNumPoints = mPrevCluster.getPoints().remaining() / COORDS_PER_POINT;
-        if (mNumPoints * BYTES_PER_POINT > mVboSize) {
-            while (mNumPoints * BYTES_PER_POINT > mVboSize) {
-                mVboSize *= 2;
+        // Satellites are added from the UI thread, the lock keeps the points, their indices and
+        // the version consistent while they are encoded.
+        final int numPoints;
+        final float radius;
+        synchronized (cluster) {
+            if (mPrevCluster == cluster && mPrevVersion == cluster.getVersion()) {
+                // Redundant call.
+                return;
+            }
+            mPrevCluster = cluster;
+            mPrevVersion = cluster.getVersion();
+
+            numPoints = cluster.getNumPoints();
+            final float[] positions = cluster.getPositions();
+            if (numPoints > mIndices.length) {
+                final int capacity = Math.max(numPoints, mIndices.length * 2);
+                mIndices = new int[capacity];
+                for (int i = 0; i < capacity; ++i) {
+                    mIndices[i] = i;
+                }
+                mStyles = new short[capacity];
+                if (mEncoded.length < capacity * SHORTS_PER_POINT) {
+                    mEncoded = new short[capacity * SHORTS_PER_POINT];
+                    mUploadBuffer = ShortBuffer.wrap(mEncoded);
+                }
             }
-            GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, mVboSize, null, GLES20.GL_DYNAMIC_DRAW);
+            updateStyles(cluster, numPoints);
+            radius = PointQuantizer.boundingRadius(positions, numPoints);
+            PointQuantizer.encode(positions, mStyles, mIndices, numPoints, radius, mEncoded);
+        }
+        final int shorts = numPoints * SHORTS_PER_POINT;
+        final int bytes = numPoints * BYTES_PER_POINT;
+
+        mDirty.clear();
+        if (radius == mContentRadius[mFront]) {
+            mDirty.markChanges(mContents[mFront], mContentShorts[mFront], mEncoded, shorts);
+        } else {
+            mDirty.mark(0, shorts);
+        }
+        if (mDirty.getDirtyLength() * BYTES_PER_SHORT <= IMMEDIATE_UPLOAD_BYTES
+                && bytes <= mVboSizes[mFront]) {
+            GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVbos[mFront]);
+            for (int i = 0; i < mDirty.getRangeCount(); ++i) {
+                final int start = mDirty.getStart(i);
+                final int end = mDirty.getEnd(i);
+                mUploadBuffer.limit(end);
+                mUploadBuffer.position(start);
+                GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, start * BYTES_PER_SHORT,
+                        (end - start) * BYTES_PER_SHORT, mUploadBuffer);
+            }
+            GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+            mNumPoints = numPoints;
+            swapContents(mFront, shorts, radius);
+        } else {
+            // If the back VBO is not large enough to fit the new point cloud, resize it as the
+            // first step of the upload.
+            final int back = mFront ^ 1;
+            int allocateBytes = 0;
+            if (bytes > mVboSizes[back]) {
+                while (bytes > mVboSizes[back]) {
+                    mVboSizes[back] *= 2;
+                }
+                allocateBytes = mVboSizes[back];
+            }
+            mPendingUpload = new BufferUploadJob(mVbos[back], allocateBytes, mUploadBuffer,
+                    BYTES_PER_SHORT, shorts);
+            mPendingPoints = numPoints;
+            mJobs.post(mPendingUpload);
+            swapContents(back, shorts, radius);
         }
-        GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, 0, mNumPoints * BYTES_PER_POINT,
-                mPrevCluster.getPoints());
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
 
         ShaderUtil.checkGLError(TAG, "after update");
-        Log.d(TAG, "CLUSTER SIZE: " + cluster.getPoints().limit());
     }
 
-    /**
-     * Updates the lines origin and end points
-     *
-     * @param modelMatrix A 4x4 model-to-world transformation matrix, stored in column-major order.
-     * @see android.opengl.Matrix
+    /*
+     * Sets the style of the points: palette entry and size from the orbit regime and the eclipse
+     * state of the satellite. Satellites are sunlit until eclipse states are computed.
      */
-    public void updateModelMatrix(float[] modelMatrix, float scaleFactor, float translateFactor,
-                                  float rotateAngle) {
-        float[] scaleMatrix = new float[16];
-        Matrix.setIdentityM(scaleMatrix, 0);
-        scaleMatrix[0]  = scaleFactor;
-        scaleMatrix[5]  = scaleFactor;
-        scaleMatrix[10] = scaleFactor;
-        Matrix.multiplyMM(mModelMatrix, 0, modelMatrix, 0, scaleMatrix, 0);
-        Matrix.rotateM(mModelMatrix, 0, rotateAngle, 0.0f, 1.0f, 0.0f);
-
-        mModelMatrix[13] = translateFactor;
+    private void updateStyles(SatelliteCluster cluster, int numPoints) {
+        final int[] samples = cluster.getSampleIndices();
+        final byte[] regimes = cluster.getRegimes();
+        final byte[] eclipse = cluster.getEclipseStates();
+        final boolean hasEclipse = eclipse.length >= cluster.size();
+        for (int i = 0; i < numPoints; ++i) {
+            final int satellite = samples[i];
+            final int state = hasEclipse ? eclipse[satellite] : EclipseClassifier.SUNLIT;
+            mStyles[i] = PointQuantizer.style(regimes[satellite] * ECLIPSE_STATES + state,
+                    ECLIPSE_POINT_SIZES[state]);
+        }
     }
 
+    /*
+     * Records that a VBO now holds the points encoded into mEncoded. Its previous contents
+     * become the array encoded into next.
+     */
+    private void swapContents(int vbo, int shorts, float radius) {
+        final short[] encoded = mContents[vbo];
+        final ShortBuffer buffer = mContentBuffers[vbo];
+        mContents[vbo] = mEncoded;
+        mContentBuffers[vbo] = mUploadBuffer;
+        mContentShorts[vbo] = shorts;
+        mContentRadius[vbo] = radius;
+        // The spare array may be smaller than the points if it predates a resize.
+        if (encoded.length < mEncoded.length) {
+            mEncoded = new short[mEncoded.length];
+            mUploadBuffer = ShortBuffer.wrap(mEncoded);
+        } else {
+            mEncoded = encoded;
+            mUploadBuffer = buffer != null ? buffer : ShortBuffer.wrap(encoded);
+        }
+    }
+
+    /**
+     * @return the culler holding this frame's camera, to skip per-satellite work such as labels
+     *     for points that are not visible. The points themselves are culled on the GPU.
+     */
+    public VisibilityCuller getCuller() {
+        return mCuller;
+    }
 
     /**
-     * Renders the satellite cluster
+     * Renders the satellite cluster. Points behind the earth, the unit sphere of the node, are
+     * dropped by the vertex shader with the same horizon test as {@link VisibilityCuller}.
      *
+     * @param node              scene node the points are expressed in
      * @param cameraView        the camera view matrix for this frame, typically from {@link
      *                          com.google.ar.core.Camera#getViewMatrix(float[], int)}.
      * @param cameraPerspective the camera projection matrix for this frame, typically from {@link
      *                          com.google.ar.core.Camera#getProjectionMatrix(float[], int, float, float)}.
      */
-    public void draw(float[] cameraView, float[] cameraPerspective) {
-        // Build the ModelView and ModelViewProjection matrices
-        // for calculating object position and light.
-        Matrix.multiplyMM(mModelViewMatrix, 0, cameraView, 0, mModelMatrix, 0);
-        Matrix.multiplyMM(mModelViewProjectionMatrix, 0, cameraPerspective, 0, mModelViewMatrix, 0);
+    public void draw(SceneNode node, float[] cameraView, float[] cameraPerspective) {
+        // The ModelViewProjection matrix is cached by the scene node.
+        node.updateView(cameraView, cameraPerspective);
 
 
         ShaderUtil.checkGLError(TAG, "Before draw");
 
         GLES20.glUseProgram(mProgramName);
         GLES20.glEnableVertexAttribArray(mPositionAttribute);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVbo);
-        GLES20.glVertexAttribPointer(
-                mPositionAttribute, 4, GLES20.GL_FLOAT, false, BYTES_PER_POINT, 0);
-        GLES20.glUniform4f(mColorUniform, 31.0f / 255.0f, 188.0f / 255.0f, 210.0f / 255.0f, 1.0f);
-        GLES20.glUniformMatrix4fv(mModelViewProjectionUniform, 1, false, mModelViewProjectionMatrix, 0);
-        GLES20.glUniform1f(mPointSizeUniform, 5.0f);
+        GLES20.glEnableVertexAttribArray(mStyleAttribute);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVbos[mFront]);
+        // Unnormalized, the shader scales the positions back.
+        GLES20.glVertexAttribPointer(mPositionAttribute, 3, GLES20.GL_SHORT, false,
+                BYTES_PER_POINT, PointQuantizer.POSITION_OFFSET);
+        GLES20.glVertexAttribPointer(mStyleAttribute, 2, GLES20.GL_UNSIGNED_BYTE, false,
+                BYTES_PER_POINT, PointQuantizer.STYLE_OFFSET);
+        GLES20.glUniform1f(mScaleUniform, PointQuantizer.scale(mContentRadius[mFront]));
+        GLES20.glUniform4fv(mPaletteUniform, PALETTE_SIZE, PALETTE, 0);
+        GLES20.glUniformMatrix4fv(mModelViewProjectionUniform, 1, false,
+                node.getModelViewProjectionMatrix(), 0);
+        // The camera sits at the origin of view space.
+        Matrix.invertM(mInverseModelView, 0, node.getModelViewMatrix(), 0);
+        GLES20.glUniform3f(mCameraUniform, mInverseModelView[12], mInverseModelView[13],
+                mInverseModelView[14]);
 
         GLES20.glDrawArrays(GLES20.GL_POINTS, 0, mNumPoints);
         GLES20.glDisableVertexAttribArray(mPositionAttribute);
+        GLES20.glDisableVertexAttribArray(mStyleAttribute);
         GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
 
         ShaderUtil.checkGLError(TAG, "Draw");
@@ -81,15 +81,7 @@ public class DottedLineRenderer {
 
         ShaderUtil.checkGLError(TAG, "OBJ buffer load");
 
-        final int vertexShader = ShaderUtil.loadGLShader(TAG, context,
-                GLES20.GL_VERTEX_SHADER, R.raw.line_vertex);
-        final int fragmentShader = ShaderUtil.loadGLShader(TAG, context,
-                GLES20.GL_FRAGMENT_SHADER, R.raw.line_fragment);
-
-        mProgram = GLES20.glCreateProgram();
-        GLES20.glAttachShader(mProgram, vertexShader);
-        GLES20.glAttachShader(mProgram, fragmentShader);
-        GLES20.glLinkProgram(mProgram);
+        mProgram = ProgramCache.getProgram(TAG, context, R.raw.line_vertex, R.raw.line_fragment);
         GLES20.glUseProgram(mProgram);
 
         ShaderUtil.checkGLError(TAG, "Program creation");
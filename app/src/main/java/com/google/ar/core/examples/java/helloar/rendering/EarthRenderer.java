@@ -27,8 +27,11 @@ import android.opengl.GLUtils;
 import android.opengl.Matrix;
 
 import com.google.ar.core.examples.java.helloar.R;
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4track;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 import java.nio.ShortBuffer;
 
@@ -36,30 +39,51 @@ import java.nio.ShortBuffer;
  * Renders an object loaded from an OBJ file in OpenGL.
  */
 public class EarthRenderer extends ObjectRenderer {
-    public static final float EARTH_RADIUS = 6371.0f; // in kilometers
+    public static final float EARTH_RADIUS = SGP4track.EARTH_RADIUS; // in kilometers
     private static final String TAG = EarthRenderer.class.getSimpleName();
 
     public EarthRenderer() {}
 
-    private final int stacks = 40;
-    private final int slices = 40;
+    // Sphere resolutions (stacks == slices) from coarsest to finest. All levels share a single
+    // interleaved vertex buffer and a single index buffer.
+    private static final int[] LOD_SEGMENTS = {10, 20, 40, 64};
 
-    private final int verticesSize  = (stacks + 1) * (slices + 1) * 3;
-    private final int texCoordsSize = (stacks + 1) * (slices + 1) * 3;
-    private final int indicesSize   = (slices * stacks + slices) * 6;
+    // Projected Earth diameter, as a fraction of the viewport height, above which the next finer
+    // level is selected. One entry per transition between LOD_SEGMENTS levels.
+    private static final float[] LOD_THRESHOLDS = {0.15f, 0.40f, 0.90f};
 
-    private float[] vertices = new float[verticesSize];
-    private float[] normals = new float[verticesSize];
-    private float[] texCoords = new float[texCoordsSize];
-    private short[] indices = new short[indicesSize];
+    // Interleaved vertex layout: position (xyz), normal (xyz), texture coordinates (uv).
+    private static final int FLOATS_PER_VERTEX = 3 + 3 + 2;
+    private static final int BYTES_PER_FLOAT   = Float.SIZE / 8;
+    private static final int VERTEX_STRIDE     = FLOATS_PER_VERTEX * BYTES_PER_FLOAT;
+    private static final int NORMAL_OFFSET     = 3 * BYTES_PER_FLOAT;
+    private static final int TEXCOORD_OFFSET   = 6 * BYTES_PER_FLOAT;
 
-    private void create_sphere() {
+    // Index range of each level within the shared index buffer.
+    private final int[] mLodIndexOffset = new int[LOD_SEGMENTS.length];
+    private final int[] mLodIndexCount  = new int[LOD_SEGMENTS.length];
+    private int mLod = LOD_SEGMENTS.length - 1;
+
+    /**
+     * Appends a unit sphere with the given resolution to the interleaved vertex array and the
+     * index array.
+     *
+     * @param segments number of stacks and slices of the sphere
+     * @param vertices interleaved output array, written starting at {@code vertexOffset}
+     * @param vertexOffset offset, in floats, of the first vertex of this sphere
+     * @param indices output index array, written starting at {@code indexOffset}
+     * @param indexOffset offset, in indices, of the first index of this sphere
+     * @return the number of indices written
+     */
+    private static int createSphere(int segments, float[] vertices, int vertexOffset,
+                                    short[] indices, int indexOffset) {
         // Credit mostly to:
         // https://stackoverflow.com/questions/26116923/modern-opengl-draw-a-sphere-and-cylinder
-        int vertex_idx = 0;
-        int normal_idx = 0;
-        int tex_idx = 0;
-        int indices_idx = 0;
+        final int stacks = segments;
+        final int slices = segments;
+        final int baseVertex = vertexOffset / FLOATS_PER_VERTEX;
+        int vertex_idx = vertexOffset;
+        int indices_idx = indexOffset;
 
         for (int i = 0; i <= stacks; ++i){
 
@@ -86,27 +110,31 @@ public class EarthRenderer extends ObjectRenderer {
                 vertices[vertex_idx++] = y;
                 vertices[vertex_idx++] = z;
 
-                // Add normal point
-                normals[normal_idx++] = x;
-                normals[normal_idx++] = y;
-                normals[normal_idx++] = z;
+                // Add normal point. Unit sphere, so the normal is the position.
+                vertices[vertex_idx++] = x;
+                vertices[vertex_idx++] = y;
+                vertices[vertex_idx++] = z;
 
-                texCoords[tex_idx++] = (1.0f - theta/ ((float)Math.PI * 2.0f));
-                texCoords[tex_idx++] = (1.0f - phi/(float)Math.PI); // FLIP Orientation with 1 - ...
+                vertices[vertex_idx++] = (1.0f - theta/ ((float)Math.PI * 2.0f));
+                vertices[vertex_idx++] = (1.0f - phi/(float)Math.PI); // FLIP Orientation with 1 - ...
             }
         }
 
-        // Calc The Index Position
-        for (short i = 0; i < slices * stacks + slices; ++i){
-            indices[indices_idx++] = (i);
-            indices[indices_idx++] = (short) (i + slices + 1);
-            indices[indices_idx++] = (short) (i + slices);
-
-            indices[indices_idx++] = (short) (i + slices + 1);
-            indices[indices_idx++] = (i);
-            indices[indices_idx++] = (short) (i + 1);
+        // Calc The Index Position. Indices are absolute within the shared vertex buffer, since
+        // GLES 2.0 has no base vertex draw call.
+        for (int i = 0; i < slices * stacks + slices; ++i){
+            final int k = baseVertex + i;
+            indices[indices_idx++] = (short) (k);
+            indices[indices_idx++] = (short) (k + slices + 1);
+            indices[indices_idx++] = (short) (k + slices);
+
+            indices[indices_idx++] = (short) (k + slices + 1);
+            indices[indices_idx++] = (short) (k);
+            indices[indices_idx++] = (short) (k + 1);
         }
+        return indices_idx - indexOffset;
     }
+
     /**
      * Creates and initializes OpenGL resources needed for rendering the model.
      *
@@ -140,52 +168,54 @@ public class EarthRenderer extends ObjectRenderer {
         mVertexBufferId = buffers[0];
         mIndexBufferId = buffers[1];
 
-        // Generate sphere
-        create_sphere();
+        // Generate every level of detail into one interleaved vertex array and one index array.
+        int totalVertices = 0;
+        int totalIndices  = 0;
+        for (int segments : LOD_SEGMENTS) {
+            totalVertices += (segments + 1) * (segments + 1);
+            totalIndices  += (segments * segments + segments) * 6;
+        }
+        float[] vertices = new float[totalVertices * FLOATS_PER_VERTEX];
+        short[] indices  = new short[totalIndices];
+
+        int vertexOffset = 0;
+        int indexOffset  = 0;
+        for (int lod = 0; lod < LOD_SEGMENTS.length; ++lod) {
+            final int segments = LOD_SEGMENTS[lod];
+            mLodIndexOffset[lod] = indexOffset;
+            mLodIndexCount[lod]  = createSphere(segments, vertices, vertexOffset, indices, indexOffset);
+            vertexOffset += (segments + 1) * (segments + 1) * FLOATS_PER_VERTEX;
+            indexOffset  += mLodIndexCount[lod];
+        }
 
         // Load buffers
-        FloatBuffer vertBuffer = FloatBuffer.allocate(verticesSize);
-        FloatBuffer texBuffer  = FloatBuffer.allocate(texCoordsSize);
-        FloatBuffer normBuffer = FloatBuffer.allocate(verticesSize);
-        vertBuffer.position(0); vertBuffer.put(vertices); vertBuffer.rewind();
-        texBuffer.position(0); texBuffer.put(texCoords); texBuffer.rewind();
-        normBuffer.position(0); normBuffer.put(normals); normBuffer.rewind();
-        ShortBuffer indicesBuf = ShortBuffer.allocate(indicesSize);
-        indicesBuf.position(0); indicesBuf.put(indices); indicesBuf.rewind();
-
-        mVerticesBaseAddress = 0;
-        mTexCoordsBaseAddress = mVerticesBaseAddress + 4 * vertBuffer.limit();
-        mNormalsBaseAddress = mTexCoordsBaseAddress + 4 * texBuffer.limit();
-        final int totalBytes = mNormalsBaseAddress + 4 * normBuffer.limit();
+        FloatBuffer vertBuffer = ByteBuffer.allocateDirect(BYTES_PER_FLOAT * vertices.length)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        vertBuffer.put(vertices); vertBuffer.rewind();
+        ShortBuffer indicesBuf = ByteBuffer.allocateDirect(2 * indices.length)
+                .order(ByteOrder.nativeOrder()).asShortBuffer();
+        indicesBuf.put(indices); indicesBuf.rewind();
+
+        mVerticesBaseAddress  = 0;
+        mNormalsBaseAddress   = NORMAL_OFFSET;
+        mTexCoordsBaseAddress = TEXCOORD_OFFSET;
 
         GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVertexBufferId);
-        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, totalBytes, null, GLES20.GL_STATIC_DRAW);
-        GLES20.glBufferSubData(
-                GLES20.GL_ARRAY_BUFFER, mVerticesBaseAddress, 4 * vertices.length, vertBuffer);
-        GLES20.glBufferSubData(
-                GLES20.GL_ARRAY_BUFFER, mTexCoordsBaseAddress, 4 * texCoords.length, texBuffer);
-        GLES20.glBufferSubData(
-                GLES20.GL_ARRAY_BUFFER, mNormalsBaseAddress, 4 * normals.length, normBuffer);
+        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, BYTES_PER_FLOAT * vertices.length, vertBuffer,
+                GLES20.GL_STATIC_DRAW);
         GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
 
         // Load index buffer
         GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mIndexBufferId);
-        mIndexCount = indicesBuf.limit();
         GLES20.glBufferData(
-                GLES20.GL_ELEMENT_ARRAY_BUFFER, 2 * mIndexCount, indicesBuf, GLES20.GL_STATIC_DRAW);
+                GLES20.GL_ELEMENT_ARRAY_BUFFER, 2 * indices.length, indicesBuf, GLES20.GL_STATIC_DRAW);
         GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+        mIndexCount = mLodIndexCount[mLod];
 
         ShaderUtil.checkGLError(TAG, "OBJ buffer load");
 
-        final int vertexShader = ShaderUtil.loadGLShader(TAG, context,
-                GLES20.GL_VERTEX_SHADER, R.raw.object_vertex);
-        final int fragmentShader = ShaderUtil.loadGLShader(TAG, context,
-                GLES20.GL_FRAGMENT_SHADER, R.raw.object_fragment);
-
-        mProgram = GLES20.glCreateProgram();
-        GLES20.glAttachShader(mProgram, vertexShader);
-        GLES20.glAttachShader(mProgram, fragmentShader);
-        GLES20.glLinkProgram(mProgram);
+        mProgram = ProgramCache.getProgram(TAG, context,
+                R.raw.object_vertex, R.raw.object_fragment);
         GLES20.glUseProgram(mProgram);
 
         ShaderUtil.checkGLError(TAG, "Program creation");
@@ -204,66 +234,40 @@ public class EarthRenderer extends ObjectRenderer {
         mMaterialParametersUniform = GLES20.glGetUniformLocation(mProgram, "u_MaterialParameters");
 
         ShaderUtil.checkGLError(TAG, "Program parameters");
-
-        Matrix.setIdentityM(mModelMatrix, 0);
-    }
-
-    /**
-     * Updates the object model matrix and applies scaling.
-     *
-     * @param modelMatrix A 4x4 model-to-world transformation matrix, stored in column-major order.
-     * @param scaleFactor A separate scaling factor to apply before the {@code modelMatrix}.
-     * @param translateFactor A constant scalar to apply for translation along the y-axis
-     * @param rotateAngle Angle for rotation about y-axis
-     * @see android.opengl.Matrix
-     */
-    public void updateModelMatrix(float[] modelMatrix, float scaleFactor, float translateFactor,
-                                  float rotateAngle) {
-        // Matrix structure:
-        // [ 0  4  8   12 ]
-        // [ 1  5  9   13 ]
-        // [ 2  6  10  14 ]
-        // [ 3  7  11  15 ]
-        // 0, 5, 10 may be used to scale x, y, z respectively.
-        // 12, 13, 14 may be used to translate along x, y, z respectively
-        float[] scaleMatrix = new float[16];
-        Matrix.setIdentityM(scaleMatrix, 0);
-        scaleMatrix[0]  = scaleFactor;
-        scaleMatrix[5]  = scaleFactor;
-        scaleMatrix[10] = scaleFactor;
-        Matrix.multiplyMM(mModelMatrix, 0, modelMatrix, 0, scaleMatrix, 0);
-        Matrix.rotateM(mModelMatrix, 0, rotateAngle + 90.0f, 0.0f, 1.0f, 0.0f);
-
-        // Translate along the y-axis only
-        mModelMatrix[13] = translateFactor;
     }
 
     /**
      * Draws the model.
      *
+     * @param node Scene node placing the earth mesh.
      * @param cameraView  A 4x4 view matrix, in column-major order.
      * @param cameraPerspective  A 4x4 projection matrix, in column-major order.
      * @param lightIntensity  Illumination intensity.  Combined with diffuse and specular material
      *     properties.
      * @param isPositioning Indicates whether earth is in positioning stage. Will draw wireframe if so.
      * @see #setBlendMode(BlendMode)
-     * @see #updateModelMatrix(float[], float)
      * @see #setMaterialProperties(float, float, float, float)
      * @see android.opengl.Matrix
      */
-    public void draw(float[] cameraView, float[] cameraPerspective, float lightIntensity, boolean isPositioning) {
+    public void draw(SceneNode node, float[] cameraView, float[] cameraPerspective,
+                     float lightIntensity, boolean isPositioning) {
 
         ShaderUtil.checkGLError(TAG, "Before draw");
 
-        // Build the ModelView and ModelViewProjection matrices
-        // for calculating object position and light.
-        Matrix.multiplyMM(mModelViewMatrix, 0, cameraView, 0, mModelMatrix, 0);
-        Matrix.multiplyMM(mModelViewProjectionMatrix, 0, cameraPerspective, 0, mModelViewMatrix, 0);
+        // The ModelView and ModelViewProjection matrices are cached by the scene node and only
+        // rebuilt when the earth or the camera moved.
+        node.updateView(cameraView, cameraPerspective);
+        final float[] modelViewMatrix = node.getModelViewMatrix();
+        final float[] modelViewProjectionMatrix = node.getModelViewProjectionMatrix();
+
+        // Pick the sphere resolution from how large the earth appears on screen.
+        mLod = selectLod(modelViewMatrix, cameraPerspective, node.getScaleFactor());
+        mIndexCount = mLodIndexCount[mLod];
 
         GLES20.glUseProgram(mProgram);
 
         // Set the lighting environment properties.
-        Matrix.multiplyMV(mViewLightDirection, 0, mModelViewMatrix, 0, LIGHT_DIRECTION, 0);
+        Matrix.multiplyMV(mViewLightDirection, 0, modelViewMatrix, 0, mLightDirection, 0);
         normalizeVec3(mViewLightDirection);
         GLES20.glUniform4f(mLightingParametersUniform,
                 mViewLightDirection[0], mViewLightDirection[1], mViewLightDirection[2], lightIntensity);
@@ -289,19 +293,20 @@ public class EarthRenderer extends ObjectRenderer {
         GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVertexBufferId);
 
         GLES20.glVertexAttribPointer(
-                mPositionAttribute, COORDS_PER_VERTEX, GLES20.GL_FLOAT, false, 0, mVerticesBaseAddress);
+                mPositionAttribute, COORDS_PER_VERTEX, GLES20.GL_FLOAT, false, VERTEX_STRIDE,
+                mVerticesBaseAddress);
         GLES20.glVertexAttribPointer(
-                mNormalAttribute, 3, GLES20.GL_FLOAT, false, 0, mNormalsBaseAddress);
+                mNormalAttribute, 3, GLES20.GL_FLOAT, false, VERTEX_STRIDE, mNormalsBaseAddress);
         GLES20.glVertexAttribPointer(
-                mTexCoordAttribute, 2, GLES20.GL_FLOAT, false, 0, mTexCoordsBaseAddress);
+                mTexCoordAttribute, 2, GLES20.GL_FLOAT, false, VERTEX_STRIDE, mTexCoordsBaseAddress);
 
         GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
 
         // Set the ModelViewProjection matrix in the shader.
         GLES20.glUniformMatrix4fv(
-                mModelViewUniform, 1, false, mModelViewMatrix, 0);
+                mModelViewUniform, 1, false, modelViewMatrix, 0);
         GLES20.glUniformMatrix4fv(
-                mModelViewProjectionUniform, 1, false, mModelViewProjectionMatrix, 0);
+                mModelViewProjectionUniform, 1, false, modelViewProjectionMatrix, 0);
 
         // Enable vertex arrays
         GLES20.glEnableVertexAttribArray(mPositionAttribute);
@@ -327,10 +332,12 @@ public class EarthRenderer extends ObjectRenderer {
 
         // When positioning, draw a wireframe earth. Just looks kinda cool
         if (isPositioning) {
-            GLES20.glDrawElements(GLES20.GL_LINE_STRIP, mIndexCount, GLES20.GL_UNSIGNED_SHORT, 0);
+            GLES20.glDrawElements(GLES20.GL_LINE_STRIP, mIndexCount, GLES20.GL_UNSIGNED_SHORT,
+                    2 * mLodIndexOffset[mLod]);
 
         } else {
-            GLES20.glDrawElements(GLES20.GL_TRIANGLES, mIndexCount, GLES20.GL_UNSIGNED_SHORT, 0);
+            GLES20.glDrawElements(GLES20.GL_TRIANGLES, mIndexCount, GLES20.GL_UNSIGNED_SHORT,
+                    2 * mLodIndexOffset[mLod]);
         }
         GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
 
@@ -349,4 +356,32 @@ public class EarthRenderer extends ObjectRenderer {
         ShaderUtil.checkGLError(TAG, "After draw");
     }
 
+    /**
+     * Selects the level of detail from the projected size of the earth. The earth is a unit
+     * sphere scaled by {@code scaleFactor}, so its projected diameter relative to the viewport
+     * height is approximately {@code scaleFactor * P[5] / distance}.
+     *
+     * @param modelView The model view matrix of the earth, used for the camera distance.
+     * @param cameraPerspective The camera projection matrix.
+     * @param scaleFactor Scale applied to the unit sphere.
+     * @return index into {@link #LOD_SEGMENTS}
+     */
+    private static int selectLod(float[] modelView, float[] cameraPerspective, float scaleFactor) {
+        final float x = modelView[12];
+        final float y = modelView[13];
+        final float z = modelView[14];
+        final float distance = (float) Math.sqrt(x * x + y * y + z * z);
+
+        // Camera is inside (or touching) the earth, use the finest level.
+        if (distance <= scaleFactor) {
+            return LOD_SEGMENTS.length - 1;
+        }
+
+        final float projectedSize = scaleFactor * cameraPerspective[5] / distance;
+        int lod = 0;
+        while (lod < LOD_THRESHOLDS.length && projectedSize > LOD_THRESHOLDS[lod]) {
+            lod++;
+        }
+        return lod;
+    }
 }
@@ -0,0 +1,100 @@
+package com.google.ar.core.examples.java.helloar.rendering;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Queue of OpenGL work that is spread over frames instead of done in one shot. Every frame the
+ * GL thread calls {@link #run(long)} with the time left in the frame, and jobs run in order for
+ * as long as their estimated cost fits. A job may do part of its work per run, e.g. one chunk of
+ * a large buffer upload, and stays at the head of the queue until it reports that it is done.
+ *
+ * When frames are always over budget, which is common on mid-range devices, the head job is
+ * starved: after a few frames without a run it becomes forced, and then runs at least one step
+ * every frame until it is done, so e.g. a large upload takes one frame per chunk rather than
+ * waiting for spare time that never comes.
+ *
+ * Jobs can be posted from any thread, they always run on the GL thread.
+ */
+public class GlJobQueue {
+
+    /**
+     * A unit of GL work, run on the GL thread.
+     */
+    public interface Job {
+        /**
+         * @return the estimated duration of the next {@link #run()} in nanoseconds
+         */
+        long estimateNanos();
+
+        /**
+         * Does the next part of the work.
+         *
+         * @return true when the job is complete, false to run again in a later frame
+         */
+        boolean run();
+    }
+
+    // After this many frames without budget the head job is forced.
+    private static final int MAX_SKIPPED_FRAMES = 3;
+
+    private final ConcurrentLinkedQueue<Job> mJobs = new ConcurrentLinkedQueue<>();
+    private int mSkippedFrames = 0;
+    private Job mForcedJob; // Runs a step every frame until done, budget or not
+
+    /**
+     * Appends a job. Safe to call from any thread.
+     */
+    public void post(Job job) {
+        mJobs.add(job);
+    }
+
+    /**
+     * Drops every waiting job, e.g. when the GL context was lost along with the objects the jobs
+     * refer to.
+     */
+    public void clear() {
+        mJobs.clear();
+        mSkippedFrames = 0;
+        mForcedJob = null;
+    }
+
+    /**
+     * @return true if no jobs are waiting
+     */
+    public boolean isEmpty() {
+        return mJobs.isEmpty();
+    }
+
+    /**
+     * Runs jobs while the budget lasts. Must be called on the GL thread, once per frame after
+     * drawing.
+     *
+     * @param budgetNanos time left for GL work in this frame
+     * @return the number of job runs
+     */
+    public int run(long budgetNanos) {
+        final long start = System.nanoTime();
+        int runs = 0;
+        Job job;
+        while ((job = mJobs.peek()) != null) {
+            final long remaining = budgetNanos - (System.nanoTime() - start);
+            final boolean forced = runs == 0
+                    && (job == mForcedJob || mSkippedFrames >= MAX_SKIPPED_FRAMES);
+            if (job.estimateNanos() > remaining && !forced) {
+                break;
+            }
+            mSkippedFrames = 0;
+            runs++;
+            if (job.run()) {
+                mJobs.poll();
+                mForcedJob = null;
+            } else if (forced) {
+                mForcedJob = job;
+            }
+        }
+        if (runs == 0 && job != null) {
+            mSkippedFrames++;
+        }
+        return runs;
+    }
+}
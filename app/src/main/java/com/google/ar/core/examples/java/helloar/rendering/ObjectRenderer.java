@@ -58,6 +58,7 @@ public class ObjectRenderer {
     // Note: the last component must be zero to avoid applying the translational part of the matrix.
     protected static final float[] LIGHT_DIRECTION = new float[] { 0.250f, 0.866f, 0.433f, 0.0f };
     protected float[] mViewLightDirection = new float[4];
+    protected final float[] mLightDirection = LIGHT_DIRECTION.clone();
 
     // Object vertex buffer variables.
     protected int mVertexBufferId;
@@ -191,15 +192,8 @@ public class ObjectRenderer {
 
         ShaderUtil.checkGLError(TAG, "OBJ buffer load");
 
-        final int vertexShader = ShaderUtil.loadGLShader(TAG, context,
-                GLES20.GL_VERTEX_SHADER, R.raw.object_vertex);
-        final int fragmentShader = ShaderUtil.loadGLShader(TAG, context,
-                GLES20.GL_FRAGMENT_SHADER, R.raw.object_fragment);
-
-        mProgram = GLES20.glCreateProgram();
-        GLES20.glAttachShader(mProgram, vertexShader);
-        GLES20.glAttachShader(mProgram, fragmentShader);
-        GLES20.glLinkProgram(mProgram);
+        mProgram = ProgramCache.getProgram(TAG, context,
+                R.raw.object_vertex, R.raw.object_fragment);
         GLES20.glUseProgram(mProgram);
 
         ShaderUtil.checkGLError(TAG, "Program creation");
@@ -247,6 +241,16 @@ public class ObjectRenderer {
         Matrix.multiplyMM(mModelMatrix, 0, modelMatrix, 0, scaleMatrix, 0);
     }
 
+    /**
+     * Sets the direction towards the light, in the model space of the rendered object. Defaults
+     * to a fixed direction above the object.
+     */
+    public void setLightDirection(float x, float y, float z) {
+        mLightDirection[0] = x;
+        mLightDirection[1] = y;
+        mLightDirection[2] = z;
+    }
+
     /**
      * Sets the surface characteristics of the rendered model.
      *
@@ -288,7 +292,7 @@ public class ObjectRenderer {
         GLES20.glUseProgram(mProgram);
 
         // Set the lighting environment properties.
-        Matrix.multiplyMV(mViewLightDirection, 0, mModelViewMatrix, 0, LIGHT_DIRECTION, 0);
+        Matrix.multiplyMV(mViewLightDirection, 0, mModelViewMatrix, 0, mLightDirection, 0);
         normalizeVec3(mViewLightDirection);
         GLES20.glUniform4f(mLightingParametersUniform,
                 mViewLightDirection[0], mViewLightDirection[1], mViewLightDirection[2], lightIntensity);
@@ -2,7 +2,6 @@ package com.google.ar.core.examples.java.helloar.rendering;
 
 import android.content.Context;
 import android.opengl.GLES20;
-import android.opengl.Matrix;
 
 import com.google.ar.core.examples.java.helloar.Point3D;
 import com.google.ar.core.examples.java.helloar.R;
@@ -35,12 +34,9 @@ public class OrbitRenderer {
     // Shader location: color
     private int mColorUniform;
 
-    // Temporary matrices allocated here to reduce number of allocations for each frame.
-    private float[] mModelMatrix = new float[16];
-    private float[] mModelViewMatrix = new float[16];
-    private float[] mModelViewProjectionMatrix = new float[16];
     private float[] mColor = {1.0f, 0.0f, 0.0f, 1.0f};
     private float mLineVertices[];
+    private boolean mCreated = false;
 
     public OrbitRenderer(List<Point3D> points) {
         initVertices(points);
@@ -52,6 +48,43 @@ public class OrbitRenderer {
         mColor = color;
     }
 
+    /**
+     * Replaces the line, e.g. after resampling it for a new zoom level. Must be called on the GL
+     * thread once {@link #createOnGlThread} has run.
+     */
+    public void setPoints(List<Point3D> points) {
+        initVertices(points);
+        if (mCreated) {
+            uploadVertices();
+        }
+    }
+
+    /**
+     * Converts a tolerance in pixels into the units of a scene node, at the distance of its
+     * origin from the camera. Sample lines in the node with it, e.g.
+     * {@code SGP4track.getSatellitePathAdaptive}, to keep their chord error below the pixel
+     * tolerance on screen.
+     *
+     * @param node scene node the line is expressed in, with {@link SceneNode#updateView} done
+     * @param cameraPerspective A 4x4 projection matrix, in column-major order.
+     * @param viewportHeight height of the viewport in pixels
+     * @param pixels tolerance on screen
+     * @return the tolerance in node units
+     */
+    public static float chordTolerance(SceneNode node, float[] cameraPerspective,
+                                       int viewportHeight, float pixels) {
+        final float[] modelView = node.getModelViewMatrix();
+        // The scale is uniform, the length of any basis vector of the model view matrix.
+        final float scale = (float) Math.sqrt(modelView[0] * modelView[0]
+                + modelView[1] * modelView[1] + modelView[2] * modelView[2]);
+        final float distance = (float) Math.sqrt(modelView[12] * modelView[12]
+                + modelView[13] * modelView[13] + modelView[14] * modelView[14]);
+        // cameraPerspective[5] is 1 / tan(fovy / 2), so the viewport spans
+        // 2 * distance / cameraPerspective[5] eye units vertically at that distance.
+        final float eyeUnitsPerPixel = 2.0f * distance / (cameraPerspective[5] * viewportHeight);
+        return pixels * eyeUnitsPerPixel / scale;
+    }
+
     private void initVertices(List<Point3D> positions) {
         mLineVertices = new float[positions.size() * 3];
         int i = 0;
@@ -68,35 +101,14 @@ public class OrbitRenderer {
      * @param context Context for loading the shader and below-named model and texture assets.
      */
     public void createOnGlThread(Context context) throws IOException {
-        ByteBuffer buf = ByteBuffer.allocateDirect(mLineVertices.length * 4);
-        buf.order(ByteOrder.nativeOrder());
-
-        FloatBuffer vertices = buf.asFloatBuffer();
-        vertices.put(mLineVertices);
-        vertices.position(0);
-
         int[] buffer = new int[1];
         GLES20.glGenBuffers(1, buffer, 0);
         mVertexBufferId = buffer[0];
+        uploadVertices();
+        mCreated = true;
 
-        // Load vertex buffer
-        final int totalBytes = 4 * vertices.limit();
-
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVertexBufferId);
-        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, totalBytes, vertices, GLES20.GL_STATIC_DRAW);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
-
-        ShaderUtil.checkGLError(TAG, "OBJ buffer load");
-
-        final int vertexShader = ShaderUtil.loadGLShader(TAG, context,
-                GLES20.GL_VERTEX_SHADER, R.raw.passthrough_vertex);
-        final int fragmentShader = ShaderUtil.loadGLShader(TAG, context,
-                GLES20.GL_FRAGMENT_SHADER, R.raw.passthrough_color_fragment);
-
-        mProgram = GLES20.glCreateProgram();
-        GLES20.glAttachShader(mProgram, vertexShader);
-        GLES20.glAttachShader(mProgram, fragmentShader);
-        GLES20.glLinkProgram(mProgram);
+        mProgram = ProgramCache.getProgram(TAG, context,
+                R.raw.passthrough_vertex, R.raw.passthrough_color_fragment);
         GLES20.glUseProgram(mProgram);
 
         ShaderUtil.checkGLError(TAG, "Program creation");
@@ -109,43 +121,39 @@ public class OrbitRenderer {
         mColorUniform = GLES20.glGetUniformLocation(mProgram, "u_Color");
 
         ShaderUtil.checkGLError(TAG, "Program parameters");
-
-        Matrix.setIdentityM(mModelMatrix, 0);
     }
 
-    /**
-     * Updates the lines origin and end points
-     *
-     * @param modelMatrix A 4x4 model-to-world transformation matrix, stored in column-major order.
-     * @see android.opengl.Matrix
-     */
-    public void updateModelMatrix(float[] modelMatrix, float scaleFactor, float translateFactor,
-                                  float rotateAngle) {
-        float[] scaleMatrix = new float[16];
-        Matrix.setIdentityM(scaleMatrix, 0);
-        scaleMatrix[0]  = scaleFactor;
-        scaleMatrix[5]  = scaleFactor;
-        scaleMatrix[10] = scaleFactor;
-        Matrix.multiplyMM(mModelMatrix, 0, modelMatrix, 0, scaleMatrix, 0);
-        Matrix.rotateM(mModelMatrix, 0, rotateAngle, 0.0f, 1.0f, 0.0f);
-
-        mModelMatrix[13] = translateFactor;
+    private void uploadVertices() {
+        ByteBuffer buf = ByteBuffer.allocateDirect(mLineVertices.length * 4);
+        buf.order(ByteOrder.nativeOrder());
+
+        FloatBuffer vertices = buf.asFloatBuffer();
+        vertices.put(mLineVertices);
+        vertices.position(0);
+
+        // Load vertex buffer
+        final int totalBytes = 4 * vertices.limit();
+
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVertexBufferId);
+        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, totalBytes, vertices, GLES20.GL_STATIC_DRAW);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+
+        ShaderUtil.checkGLError(TAG, "OBJ buffer load");
     }
 
     /**
      * Draws the line.
      *
+     * @param node Scene node the orbit is expressed in.
      * @param cameraView  A 4x4 view matrix, in column-major order.
      * @param cameraPerspective  A 4x4 projection matrix, in column-major order.
      * @see android.opengl.Matrix
      */
-    public void draw(float[] cameraView, float[] cameraPerspective) {
+    public void draw(SceneNode node, float[] cameraView, float[] cameraPerspective) {
         ShaderUtil.checkGLError(TAG, "Before draw");
 
-        // Build the ModelView and ModelViewProjection matrices
-        // for calculating object position and light.
-        Matrix.multiplyMM(mModelViewMatrix, 0, cameraView, 0, mModelMatrix, 0);
-        Matrix.multiplyMM(mModelViewProjectionMatrix, 0, cameraPerspective, 0, mModelViewMatrix, 0);
+        // The ModelViewProjection matrix is cached by the scene node.
+        node.updateView(cameraView, cameraPerspective);
 
         GLES20.glUseProgram(mProgram);
 
@@ -157,7 +165,8 @@ public class OrbitRenderer {
 
         // Set the ModelViewProjection matrix in the shader.
         GLES20.glUniformMatrix4fv(
-                mModelViewProjectionUniform, 1, false, mModelViewProjectionMatrix, 0);
+                mModelViewProjectionUniform, 1, false,
+                node.getModelViewProjectionMatrix(), 0);
 
         // Set color
         GLES20.glUniform4fv(mColorUniform, 1, mColor, 0);
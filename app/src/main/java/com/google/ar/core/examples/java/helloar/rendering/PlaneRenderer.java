@@ -115,15 +115,8 @@ public class PlaneRenderer {
      */
     public void createOnGlThread(Context context, String gridDistanceTextureName)
             throws IOException {
-        int vertexShader = ShaderUtil.loadGLShader(TAG, context,
-                GLES20.GL_VERTEX_SHADER, R.raw.plane_vertex);
-        int passthroughShader = ShaderUtil.loadGLShader(TAG, context,
-                GLES20.GL_FRAGMENT_SHADER, R.raw.plane_fragment);
-
-        mPlaneProgram = GLES20.glCreateProgram();
-        GLES20.glAttachShader(mPlaneProgram, vertexShader);
-        GLES20.glAttachShader(mPlaneProgram, passthroughShader);
-        GLES20.glLinkProgram(mPlaneProgram);
+        mPlaneProgram = ProgramCache.getProgram(TAG, context,
+                R.raw.plane_vertex, R.raw.plane_fragment);
         GLES20.glUseProgram(mPlaneProgram);
 
         ShaderUtil.checkGLError(TAG, "Program creation");
@@ -73,15 +73,8 @@ public class PointCloudRenderer {
 
         ShaderUtil.checkGLError(TAG, "buffer alloc");
 
-        int vertexShader = ShaderUtil.loadGLShader(TAG, context,
-            GLES20.GL_VERTEX_SHADER, R.raw.point_cloud_vertex);
-        int passthroughShader = ShaderUtil.loadGLShader(TAG, context,
-            GLES20.GL_FRAGMENT_SHADER, R.raw.passthrough_fragment);
-
-        mProgramName = GLES20.glCreateProgram();
-        GLES20.glAttachShader(mProgramName, vertexShader);
-        GLES20.glAttachShader(mProgramName, passthroughShader);
-        GLES20.glLinkProgram(mProgramName);
+        mProgramName = ProgramCache.getProgram(TAG, context,
+            R.raw.point_cloud_vertex, R.raw.passthrough_fragment);
         GLES20.glUseProgram(mProgramName);
 
         ShaderUtil.checkGLError(TAG, "program");
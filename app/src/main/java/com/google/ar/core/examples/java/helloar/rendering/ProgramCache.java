@@ -0,0 +1,291 @@
+package com.google.ar.core.examples.java.helloar.rendering;
+
+import android.content.Context;
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+import android.os.AsyncTask;
+import android.util.Log;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Linked shader programs shared by all renderers, keyed by vertex shader, fragment shader and
+ * defines. Within a GL context, each shader is compiled and each program linked once; renderers
+ * asking for the same pair get the same program, so they must set their uniforms before every
+ * draw, which they do anyway.
+ *
+ * Shader sources are kept across contexts. Where the context supports program binaries (OpenGL
+ * ES 3.0), linked programs are also saved to the code cache directory and loaded back instead of
+ * compiling, e.g. when the surface is recreated after a pause or on the next launch. A binary is
+ * keyed by the sources and the driver, so it is never loaded for other shaders or after a driver
+ * update; if the driver rejects it anyway, the program is compiled from source again.
+ *
+ * Call from the GL thread only, and {@link #clear()} whenever a new context is created.
+ */
+public class ProgramCache {
+    private static final String TAG = ProgramCache.class.getSimpleName();
+
+    private static final String BINARY_DIR = "programs";
+    private static final int BINARY_MAGIC = 0x50524F47; // "PROG"
+    private static final int BINARY_VERSION = 1;
+
+    // Read once per process, they do not depend on the context.
+    private static final Map<Integer, String> sSources = new HashMap<>();
+
+    // Objects of the current context.
+    private static final Map<String, Integer> sShaders = new HashMap<>();
+    private static final Map<String, Integer> sPrograms = new HashMap<>();
+    private static Boolean sBinariesSupported;
+    private static String sDriver;
+
+    private ProgramCache() {
+    }
+
+    /**
+     * Forgets the programs and shaders of the previous context, which were deleted with it. Call
+     * in {@link android.opengl.GLSurfaceView.Renderer#onSurfaceCreated}, before the renderers
+     * are created.
+     */
+    public static void clear() {
+        sShaders.clear();
+        sPrograms.clear();
+        sBinariesSupported = null;
+        sDriver = null;
+    }
+
+    /**
+     * @see #getProgram(String, Context, int, int, String)
+     */
+    public static int getProgram(String tag, Context context, int vertexResId, int fragmentResId) {
+        return getProgram(tag, context, vertexResId, fragmentResId, "");
+    }
+
+    /**
+     * Returns the program linked from two raw shader resources, loading or building it if this
+     * context does not have it yet.
+     *
+     * @param tag tag to log errors with
+     * @param context needed to access shader sources and the binary cache
+     * @param vertexResId raw resource of the vertex shader
+     * @param fragmentResId raw resource of the fragment shader
+     * @param defines preprocessor lines prepended to both shaders, e.g. "#define FOG\n", or ""
+     * @return the program name
+     * @throws RuntimeException if a shader does not compile or the program does not link
+     */
+    public static int getProgram(String tag, Context context, int vertexResId, int fragmentResId,
+                                 String defines) {
+        final String key = vertexResId + "/" + fragmentResId + "/" + defines;
+        Integer program = sPrograms.get(key);
+        if (program != null) {
+            return program;
+        }
+
+        final String vertexSource = defines + getSource(context, vertexResId);
+        final String fragmentSource = defines + getSource(context, fragmentResId);
+        File binaryFile = null;
+        if (binariesSupported()) {
+            binaryFile = new File(new File(context.getCodeCacheDir(), BINARY_DIR),
+                    Long.toHexString(hash(vertexSource, fragmentSource)) + ".bin");
+            program = loadBinary(binaryFile);
+        }
+        if (program == null) {
+            program = link(tag, vertexResId, vertexSource, fragmentResId, fragmentSource,
+                    defines, binaryFile != null);
+            if (binaryFile != null) {
+                saveBinary(program, binaryFile);
+            }
+        }
+        sPrograms.put(key, program);
+        return program;
+    }
+
+    private static String getSource(Context context, int resId) {
+        String source = sSources.get(resId);
+        if (source == null) {
+            source = ShaderUtil.readRawTextFile(context, resId);
+            if (source == null) {
+                throw new RuntimeException("Error reading shader " + resId);
+            }
+            sSources.put(resId, source);
+        }
+        return source;
+    }
+
+    private static int link(String tag, int vertexResId, String vertexSource, int fragmentResId,
+                            String fragmentSource, String defines, boolean retrievable) {
+        final int vertexShader = getShader(tag, GLES20.GL_VERTEX_SHADER, vertexResId,
+                vertexSource, defines);
+        final int fragmentShader = getShader(tag, GLES20.GL_FRAGMENT_SHADER, fragmentResId,
+                fragmentSource, defines);
+
+        final int program = GLES20.glCreateProgram();
+        if (retrievable) {
+            GLES30.glProgramParameteri(program, GLES30.GL_PROGRAM_BINARY_RETRIEVABLE_HINT,
+                    GLES20.GL_TRUE);
+        }
+        GLES20.glAttachShader(program, vertexShader);
+        GLES20.glAttachShader(program, fragmentShader);
+        GLES20.glLinkProgram(program);
+
+        final int[] linkStatus = new int[1];
+        GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, linkStatus, 0);
+        if (linkStatus[0] == 0) {
+            Log.e(tag, "Error linking program: " + GLES20.glGetProgramInfoLog(program));
+            GLES20.glDeleteProgram(program);
+            throw new RuntimeException("Error creating program.");
+        }
+        return program;
+    }
+
+    /*
+     * Compiles a shader, or returns the one already compiled in this context for another
+     * program, e.g. the passthrough fragment shader.
+     */
+    private static int getShader(String tag, int type, int resId, String source, String defines) {
+        final String key = type + "/" + resId + "/" + defines;
+        Integer shader = sShaders.get(key);
+        if (shader == null) {
+            shader = ShaderUtil.compileGLShader(tag, type, source);
+            sShaders.put(key, shader);
+        }
+        return shader;
+    }
+
+    private static boolean binariesSupported() {
+        if (sBinariesSupported == null) {
+            // Android often creates an ES 3 context even when version 2 is requested.
+            final String version = GLES20.glGetString(GLES20.GL_VERSION);
+            boolean supported = false;
+            if (version != null && version.startsWith("OpenGL ES ")
+                    && !version.startsWith("OpenGL ES 2")) {
+                final int[] formats = new int[1];
+                GLES20.glGetIntegerv(GLES30.GL_NUM_PROGRAM_BINARY_FORMATS, formats, 0);
+                supported = formats[0] > 0;
+            }
+            sBinariesSupported = supported;
+            sDriver = GLES20.glGetString(GLES20.GL_VENDOR) + "/"
+                    + GLES20.glGetString(GLES20.GL_RENDERER) + "/" + version;
+        }
+        return sBinariesSupported;
+    }
+
+    /*
+     * Creates a program from a saved binary, or returns null if there is none for this driver or
+     * the driver rejects it.
+     */
+    private static Integer loadBinary(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        final int format;
+        final byte[] binary;
+        try {
+            DataInputStream in = new DataInputStream(new FileInputStream(file));
+            try {
+                if (in.readInt() != BINARY_MAGIC || in.readInt() != BINARY_VERSION
+                        || !in.readUTF().equals(sDriver)) {
+                    file.delete();
+                    return null;
+                }
+                format = in.readInt();
+                binary = new byte[in.readInt()];
+                in.readFully(binary);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to read program binary " + file, e);
+            file.delete();
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(binary.length).order(ByteOrder.nativeOrder());
+        buffer.put(binary).position(0);
+        final int program = GLES20.glCreateProgram();
+        GLES30.glProgramBinary(program, format, buffer, binary.length);
+        final int[] linkStatus = new int[1];
+        GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, linkStatus, 0);
+        if (linkStatus[0] == 0) {
+            // Drivers may reject binaries of their previous versions; not an error.
+            GLES20.glDeleteProgram(program);
+            GLES20.glGetError();
+            file.delete();
+            return null;
+        }
+        return program;
+    }
+
+    /*
+     * Reads back the binary of a linked program and writes it on a background thread.
+     */
+    private static void saveBinary(int program, final File file) {
+        final int[] length = new int[1];
+        GLES20.glGetProgramiv(program, GLES30.GL_PROGRAM_BINARY_LENGTH, length, 0);
+        if (length[0] <= 0) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(length[0]).order(ByteOrder.nativeOrder());
+        final int[] written = new int[1];
+        final int[] format = new int[1];
+        GLES30.glGetProgramBinary(program, length[0], written, 0, format, 0, buffer);
+        if (GLES20.glGetError() != GLES20.GL_NO_ERROR || written[0] <= 0) {
+            return;
+        }
+        final byte[] binary = new byte[written[0]];
+        buffer.get(binary);
+        final String driver = sDriver;
+
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Written to a temporary file and renamed, so a reader never sees half of it.
+                File dir = file.getParentFile();
+                File temp = new File(dir, file.getName() + ".tmp");
+                try {
+                    if (!dir.isDirectory() && !dir.mkdirs()) {
+                        throw new IOException("Cannot create " + dir);
+                    }
+                    DataOutputStream out = new DataOutputStream(new FileOutputStream(temp));
+                    try {
+                        out.writeInt(BINARY_MAGIC);
+                        out.writeInt(BINARY_VERSION);
+                        out.writeUTF(driver);
+                        out.writeInt(format[0]);
+                        out.writeInt(binary.length);
+                        out.write(binary);
+                    } finally {
+                        out.close();
+                    }
+                    if (!temp.renameTo(file)) {
+                        throw new IOException("Cannot rename " + temp);
+                    }
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to save program binary " + file, e);
+                    temp.delete();
+                }
+            }
+        });
+    }
+
+    /*
+     * 64 bit FNV-1a hash of the shader sources, naming the binary file.
+     */
+    private static long hash(String vertexSource, String fragmentSource) {
+        long h = 0xcbf29ce484222325L;
+        final String sources = vertexSource + '\0' + fragmentSource;
+        for (int i = 0; i < sources.length(); ++i) {
+            h ^= sources.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+}
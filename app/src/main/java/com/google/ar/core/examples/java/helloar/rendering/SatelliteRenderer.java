@@ -8,7 +8,6 @@ import android.opengl.GLUtils;
 import android.opengl.Matrix;
 import android.util.Log;
 
-import com.google.ar.core.examples.java.helloar.Point3D;
 import com.google.ar.core.examples.java.helloar.R;
 
 import java.io.IOException;
@@ -65,6 +64,7 @@ public class SatelliteRenderer {
     // Note: the last component must be zero to avoid applying the translational part of the matrix.
     private static final float[] LIGHT_DIRECTION = new float[] { 0.250f, 0.866f, 0.433f, 0.0f };
     private float[] mViewLightDirection = new float[4];
+    private final float[] mLightDirection = LIGHT_DIRECTION.clone();
 
     // Object vertex buffer variables.
     private int mVertexBufferId;
@@ -94,10 +94,6 @@ public class SatelliteRenderer {
 
     private BlendMode mBlendMode = null;
 
-    // Temporary matrices allocated here to reduce number of allocations for each frame.
-    private float[] mModelMatrix = new float[16];
-    private float[] mModelViewMatrix = new float[16];
-    private float[] mModelViewProjectionMatrix = new float[16];
     private float[] mColor = new float[4];
 
     // Set some default material properties to use for lighting.
@@ -174,15 +170,8 @@ public class SatelliteRenderer {
 
         ShaderUtil.checkGLError(TAG, "OBJ buffer load");
 
-        final int vertexShader = ShaderUtil.loadGLShader(TAG, context,
-                GLES20.GL_VERTEX_SHADER, R.raw.object_color_vertex);
-        final int fragmentShader = ShaderUtil.loadGLShader(TAG, context,
-                GLES20.GL_FRAGMENT_SHADER, R.raw.object_color_fragment);
-
-        mProgram = GLES20.glCreateProgram();
-        GLES20.glAttachShader(mProgram, vertexShader);
-        GLES20.glAttachShader(mProgram, fragmentShader);
-        GLES20.glLinkProgram(mProgram);
+        mProgram = ProgramCache.getProgram(TAG, context,
+                R.raw.object_color_vertex, R.raw.object_color_fragment);
         GLES20.glUseProgram(mProgram);
 
         ShaderUtil.checkGLError(TAG, "Program creation");
@@ -200,8 +189,6 @@ public class SatelliteRenderer {
         mMaterialParametersUniform = GLES20.glGetUniformLocation(mProgram, "u_MaterialParameters");
 
         ShaderUtil.checkGLError(TAG, "Program parameters");
-
-        Matrix.setIdentityM(mModelMatrix, 0);
     }
 
     /**
@@ -214,26 +201,13 @@ public class SatelliteRenderer {
     }
 
     /**
-     * Updates the object model matrix and applies scaling.
-     *
-     * @param modelMatrix A 4x4 model-to-world transformation matrix, stored in column-major order.
-     * @param scaleFactor A separate scaling factor to apply before the {@code modelMatrix}.
-     * @see android.opengl.Matrix
+     * Sets the direction towards the light, in the model space of the rendered object. Defaults
+     * to a fixed direction above the object.
      */
-    public void updateModelMatrix(float[] modelMatrix, float scaleFactor, float translateFactor,
-                                  float rotateAngle, Point3D position, double altitude) {
-        float[] scaleMatrix = new float[16];
-        Matrix.setIdentityM(scaleMatrix, 0);
-        scaleMatrix[0] = scaleFactor;
-        scaleMatrix[5] = scaleFactor;
-        scaleMatrix[10] = scaleFactor;
-
-        Matrix.multiplyMM(mModelMatrix, 0, modelMatrix, 0, scaleMatrix, 0);
-        Matrix.rotateM(mModelMatrix, 0, rotateAngle, 0.0f, 1.0f, 0.0f);
-        mModelMatrix[13] = translateFactor;
-
-        Matrix.translateM(mModelMatrix, 0, mModelMatrix, 0,
-                (float) position.x, (float) position.y, (float) position.z);
+    public void setLightDirection(float x, float y, float z) {
+        mLightDirection[0] = x;
+        mLightDirection[1] = y;
+        mLightDirection[2] = z;
     }
 
     /**
@@ -256,28 +230,29 @@ public class SatelliteRenderer {
     /**
      * Draws the model.
      *
+     * @param node Scene node placing the satellite.
      * @param cameraView  A 4x4 view matrix, in column-major order.
      * @param cameraPerspective  A 4x4 projection matrix, in column-major order.
      * @param lightIntensity  Illumination intensity.  Combined with diffuse and specular material
      *     properties.
      * @see #setBlendMode(BlendMode)
-     * @see #updateModelMatrix(float[], float, float, float, Point3D, double)
      * @see #setMaterialProperties(float, float, float, float)
      * @see android.opengl.Matrix
      */
-    public void draw(float[] cameraView, float[] cameraPerspective, float lightIntensity) {
+    public void draw(SceneNode node, float[] cameraView, float[] cameraPerspective,
+                     float lightIntensity) {
 
         ShaderUtil.checkGLError(TAG, "Before draw");
 
-        // Build the ModelView and ModelViewProjection matrices
-        // for calculating object position and light.
-        Matrix.multiplyMM(mModelViewMatrix, 0, cameraView, 0, mModelMatrix, 0);
-        Matrix.multiplyMM(mModelViewProjectionMatrix, 0, cameraPerspective, 0, mModelViewMatrix, 0);
+        // The ModelView and ModelViewProjection matrices are cached by the scene node.
+        node.updateView(cameraView, cameraPerspective);
+        final float[] modelViewMatrix = node.getModelViewMatrix();
+        final float[] modelViewProjectionMatrix = node.getModelViewProjectionMatrix();
 
         GLES20.glUseProgram(mProgram);
 
         // Set the lighting environment properties.
-        Matrix.multiplyMV(mViewLightDirection, 0, mModelViewMatrix, 0, LIGHT_DIRECTION, 0);
+        Matrix.multiplyMV(mViewLightDirection, 0, modelViewMatrix, 0, mLightDirection, 0);
         normalizeVec3(mViewLightDirection);
         GLES20.glUniform4f(mLightingParametersUniform,
                 mViewLightDirection[0], mViewLightDirection[1], mViewLightDirection[2], lightIntensity);
@@ -298,9 +273,9 @@ public class SatelliteRenderer {
 
         // Set the ModelViewProjection matrix in the shader.
         GLES20.glUniformMatrix4fv(
-                mModelViewUniform, 1, false, mModelViewMatrix, 0);
+                mModelViewUniform, 1, false, modelViewMatrix, 0);
         GLES20.glUniformMatrix4fv(
-                mModelViewProjectionUniform, 1, false, mModelViewProjectionMatrix, 0);
+                mModelViewProjectionUniform, 1, false, modelViewProjectionMatrix, 0);
 
         // Set model color
         GLES20.glUniform4fv(mColorUniform, 1, mColor, 0);
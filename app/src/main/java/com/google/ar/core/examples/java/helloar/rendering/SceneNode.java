@@ -0,0 +1,185 @@
+package com.google.ar.core.examples.java.helloar.rendering;
+
+import android.opengl.Matrix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A node in a small transform hierarchy shared by the renderers. The root node is placed by the
+ * earth anchor, the gesture scale, the y translation and the rotation about the y-axis. Child
+ * nodes add a local rotation and translation on top of their parent.
+ *
+ * World, model view and model view projection matrices are cached. The world matrix is only
+ * rebuilt after one of its inputs (or an ancestor's) changed, and the view dependent matrices
+ * only after the world matrix or the camera matrices changed.
+ */
+public class SceneNode {
+
+    private final SceneNode mParent;
+    private final List<SceneNode> mChildren = new ArrayList<>();
+
+    // Root inputs.
+    private final float[] mAnchorMatrix = new float[16];
+    private float mScaleFactor = 1.0f;
+    private float mTranslateFactor;
+
+    // Local inputs. For the root, the rotation is applied after the scale.
+    private float mRotateAngle;
+    private float mLocalX, mLocalY, mLocalZ;
+
+    private final float[] mWorldMatrix = new float[16];
+    private final float[] mModelViewMatrix = new float[16];
+    private final float[] mModelViewProjectionMatrix = new float[16];
+
+    // Camera matrices the cached model view matrices were computed with.
+    private final float[] mLastView = new float[16];
+    private final float[] mLastProjection = new float[16];
+
+    private boolean mWorldDirty = true;
+    private boolean mViewDirty = true;
+
+    /** Creates a root node. */
+    public SceneNode() {
+        this(null);
+    }
+
+    private SceneNode(SceneNode parent) {
+        mParent = parent;
+        Matrix.setIdentityM(mAnchorMatrix, 0);
+        Matrix.setIdentityM(mWorldMatrix, 0);
+    }
+
+    /** Creates a child node with an identity local transform. */
+    public SceneNode createChild() {
+        SceneNode child = new SceneNode(this);
+        mChildren.add(child);
+        return child;
+    }
+
+    /**
+     * Sets the inputs of a root node. Nothing is invalidated if every value is unchanged.
+     *
+     * @param anchorMatrix A 4x4 model-to-world transformation matrix, stored in column-major order.
+     * @param scaleFactor A separate scaling factor to apply before the {@code anchorMatrix}.
+     * @param translateFactor World y coordinate of the node.
+     * @param rotateAngle Angle for rotation about y-axis, in degrees.
+     */
+    public void setAnchorTransform(float[] anchorMatrix, float scaleFactor, float translateFactor,
+                                   float rotateAngle) {
+        if (mScaleFactor == scaleFactor && mTranslateFactor == translateFactor
+                && mRotateAngle == rotateAngle && Arrays.equals(mAnchorMatrix, anchorMatrix)) {
+            return;
+        }
+        System.arraycopy(anchorMatrix, 0, mAnchorMatrix, 0, 16);
+        mScaleFactor = scaleFactor;
+        mTranslateFactor = translateFactor;
+        mRotateAngle = rotateAngle;
+        invalidate();
+    }
+
+    /** Sets the rotation about the local y-axis, in degrees. */
+    public void setRotation(float rotateAngle) {
+        if (mRotateAngle == rotateAngle) {
+            return;
+        }
+        mRotateAngle = rotateAngle;
+        invalidate();
+    }
+
+    /** Sets the translation relative to the parent, in the parent's (unscaled) units. */
+    public void setTranslation(float x, float y, float z) {
+        if (mLocalX == x && mLocalY == y && mLocalZ == z) {
+            return;
+        }
+        mLocalX = x;
+        mLocalY = y;
+        mLocalZ = z;
+        invalidate();
+    }
+
+    /** @return the scale of the root of this node's hierarchy */
+    public float getScaleFactor() {
+        return mParent == null ? mScaleFactor : mParent.getScaleFactor();
+    }
+
+    /** @return the model-to-world matrix of this node. Must not be modified. */
+    public float[] getWorldMatrix() {
+        if (mWorldDirty) {
+            updateWorldMatrix();
+        }
+        return mWorldMatrix;
+    }
+
+    /**
+     * Refreshes the cached model view matrices for the given camera, if needed.
+     *
+     * @param cameraView  A 4x4 view matrix, in column-major order.
+     * @param cameraPerspective  A 4x4 projection matrix, in column-major order.
+     */
+    public void updateView(float[] cameraView, float[] cameraPerspective) {
+        final float[] world = getWorldMatrix();
+        if (!mViewDirty && Arrays.equals(mLastView, cameraView)
+                && Arrays.equals(mLastProjection, cameraPerspective)) {
+            return;
+        }
+        System.arraycopy(cameraView, 0, mLastView, 0, 16);
+        System.arraycopy(cameraPerspective, 0, mLastProjection, 0, 16);
+        Matrix.multiplyMM(mModelViewMatrix, 0, cameraView, 0, world, 0);
+        Matrix.multiplyMM(mModelViewProjectionMatrix, 0, cameraPerspective, 0, mModelViewMatrix, 0);
+        mViewDirty = false;
+    }
+
+    /** @return the model view matrix from the last {@link #updateView}. Must not be modified. */
+    public float[] getModelViewMatrix() {
+        return mModelViewMatrix;
+    }
+
+    /**
+     * @return the model view projection matrix from the last {@link #updateView}. Must not be
+     *     modified.
+     */
+    public float[] getModelViewProjectionMatrix() {
+        return mModelViewProjectionMatrix;
+    }
+
+    private void invalidate() {
+        mWorldDirty = true;
+        mViewDirty = true;
+        for (int i = 0; i < mChildren.size(); ++i) {
+            mChildren.get(i).invalidate();
+        }
+    }
+
+    private void updateWorldMatrix() {
+        if (mParent == null) {
+            // Matrix structure:
+            // [ 0  4  8   12 ]
+            // [ 1  5  9   13 ]
+            // [ 2  6  10  14 ]
+            // [ 3  7  11  15 ]
+            // Scaling the first three columns of the anchor is the same as multiplying it by a
+            // scale matrix, without needing one.
+            System.arraycopy(mAnchorMatrix, 0, mWorldMatrix, 0, 16);
+            for (int i = 0; i < 12; ++i) {
+                mWorldMatrix[i] *= mScaleFactor;
+            }
+            if (mRotateAngle != 0.0f) {
+                Matrix.rotateM(mWorldMatrix, 0, mRotateAngle, 0.0f, 1.0f, 0.0f);
+            }
+
+            // Translate along the y-axis only
+            mWorldMatrix[13] = mTranslateFactor;
+        } else {
+            System.arraycopy(mParent.getWorldMatrix(), 0, mWorldMatrix, 0, 16);
+            if (mLocalX != 0.0f || mLocalY != 0.0f || mLocalZ != 0.0f) {
+                Matrix.translateM(mWorldMatrix, 0, mLocalX, mLocalY, mLocalZ);
+            }
+            if (mRotateAngle != 0.0f) {
+                Matrix.rotateM(mWorldMatrix, 0, mRotateAngle, 0.0f, 1.0f, 0.0f);
+            }
+        }
+        mWorldDirty = false;
+    }
+}
@@ -17,10 +17,10 @@ package com.google.ar.core.examples.java.helloar.rendering;
 import android.content.Context;
 import android.opengl.GLES20;
 import android.util.Log;
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 
 /**
  * Shader helper functions.
@@ -34,7 +34,17 @@ public class ShaderUtil {
      * @return The shader object handler.
      */
     public static int loadGLShader(String tag, Context context, int type, int resId) {
-        String code = readRawTextFile(context, resId);
+        return compileGLShader(tag, type, readRawTextFile(context, resId));
+    }
+
+    /**
+     * Compiles OpenGL ES shader source.
+     *
+     * @param type The type of shader we will be creating.
+     * @param code The shader source.
+     * @return The shader object handler.
+     */
+    public static int compileGLShader(String tag, int type, String code) {
         int shader = GLES20.glCreateShader(type);
         GLES20.glShaderSource(shader, code);
         GLES20.glCompileShader(shader);
@@ -82,17 +92,18 @@ public class ShaderUtil {
      * @param resId The resource ID of the raw text file about to be turned into a shader.
      * @return The context of the text file, or null in case of error.
      */
-    private static String readRawTextFile(Context context, int resId) {
+    static String readRawTextFile(Context context, int resId) {
         InputStream inputStream = context.getResources().openRawResource(resId);
         try {
-            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                sb.append(line).append("\n");
+            // Read in one go, the compiler does not care about line endings.
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(inputStream.available());
+            byte[] chunk = new byte[4096];
+            int read;
+            while ((read = inputStream.read(chunk)) != -1) {
+                bytes.write(chunk, 0, read);
             }
-            reader.close();
-            return sb.toString();
+            inputStream.close();
+            return new String(bytes.toByteArray(), Charset.forName("UTF-8"));
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -0,0 +1,169 @@
+package com.google.ar.core.examples.java.helloar.rendering;
+
+import android.opengl.Matrix;
+
+import java.util.Arrays;
+
+/**
+ * CPU side visibility test for points, run before they are uploaded or used for per-object work.
+ * A point is visible if it lies inside the view frustum and is not hidden behind the occluding
+ * sphere, by default the earth: a unit sphere at the origin of the model space.
+ *
+ * All tests are done in model space. The frustum planes are extracted from the model view
+ * projection matrix and the camera position from the inverse model view matrix, so no point is
+ * ever transformed.
+ */
+public class VisibilityCuller {
+
+    // Frustum planes a*x + b*y + c*z + d >= 0, packed as {a, b, c, d} for
+    // left, right, bottom, top, near and far.
+    private final float[] mPlanes = new float[6 * 4];
+
+    private final float[] mLastModelView = new float[16];
+    private final float[] mLastModelViewProjection = new float[16];
+    private final float[] mInverseModelView = new float[16];
+
+    // Occluder, in model space.
+    private float mSphereX, mSphereY, mSphereZ;
+    private float mSphereRadius = 1.0f;
+
+    // Camera, relative to the occluder center.
+    private float mCameraX, mCameraY, mCameraZ;
+    // Squared distance from the camera to the occluder center, minus the squared radius.
+    // Not positive if the camera is inside the occluder, which then hides nothing.
+    private float mHorizon;
+
+    private boolean mHasCamera = false;
+
+    /**
+     * Sets the occluding sphere, in model space.
+     */
+    public void setOccluder(float x, float y, float z, float radius) {
+        mSphereX = x;
+        mSphereY = y;
+        mSphereZ = z;
+        mSphereRadius = radius;
+        mHasCamera = false;
+    }
+
+    /**
+     * Sets the camera for the following tests. Typically called once per frame with the matrices
+     * cached by a {@link SceneNode}.
+     *
+     * @param modelView 4x4 model view matrix, in column-major order.
+     * @param modelViewProjection 4x4 model view projection matrix, in column-major order.
+     * @return false if both matrices are unchanged since the last call, so the previous result of
+     *     a test still holds.
+     */
+    public boolean setCamera(float[] modelView, float[] modelViewProjection) {
+        if (mHasCamera && Arrays.equals(mLastModelView, modelView)
+                && Arrays.equals(mLastModelViewProjection, modelViewProjection)) {
+            return false;
+        }
+        System.arraycopy(modelView, 0, mLastModelView, 0, 16);
+        System.arraycopy(modelViewProjection, 0, mLastModelViewProjection, 0, 16);
+
+        // Gribb/Hartmann: each plane is the fourth row of the matrix plus or minus another row.
+        final float[] m = modelViewProjection;
+        int p = 0;
+        for (int row = 0; row < 3; ++row) {
+            for (int sign = 1; sign >= -1; sign -= 2) {
+                mPlanes[p++] = m[3]  + sign * m[row];
+                mPlanes[p++] = m[7]  + sign * m[4 + row];
+                mPlanes[p++] = m[11] + sign * m[8 + row];
+                mPlanes[p++] = m[15] + sign * m[12 + row];
+            }
+        }
+
+        // The camera sits at the origin of view space.
+        Matrix.invertM(mInverseModelView, 0, modelView, 0);
+        mCameraX = mInverseModelView[12] - mSphereX;
+        mCameraY = mInverseModelView[13] - mSphereY;
+        mCameraZ = mInverseModelView[14] - mSphereZ;
+        mHorizon = mCameraX * mCameraX + mCameraY * mCameraY + mCameraZ * mCameraZ
+                - mSphereRadius * mSphereRadius;
+
+        mHasCamera = true;
+        return true;
+    }
+
+    /**
+     * @return true if the model space point is inside the frustum and not behind the occluder
+     */
+    public boolean isVisible(float x, float y, float z) {
+        return inFrustum(x, y, z) && !isOccluded(x, y, z);
+    }
+
+    /**
+     * Tests a batch of points.
+     *
+     * @param positions packed x,y,z model space coordinates
+     * @param count number of points in {@code positions}
+     * @param visibleIndices receives the indices of the visible points, in order. Must hold at
+     *     least {@code count} entries.
+     * @return the number of visible points
+     */
+    public int cull(float[] positions, int count, int[] visibleIndices) {
+        int numVisible = 0;
+        for (int i = 0, j = 0; i < count; ++i, j += 3) {
+            if (isVisible(positions[j], positions[j + 1], positions[j + 2])) {
+                visibleIndices[numVisible++] = i;
+            }
+        }
+        return numVisible;
+    }
+
+    /**
+     * Tests a batch of points and packs the visible ones.
+     *
+     * @param positions packed x,y,z model space coordinates
+     * @param count number of points in {@code positions}
+     * @param visiblePositions receives the packed coordinates of the visible points, in order.
+     *     Must hold at least {@code 3 * count} entries. May not be {@code positions}.
+     * @return the number of visible points
+     */
+    public int cull(float[] positions, int count, float[] visiblePositions) {
+        int numVisible = 0;
+        for (int j = 0; j < 3 * count; j += 3) {
+            final float x = positions[j];
+            final float y = positions[j + 1];
+            final float z = positions[j + 2];
+            if (isVisible(x, y, z)) {
+                visiblePositions[numVisible * 3]     = x;
+                visiblePositions[numVisible * 3 + 1] = y;
+                visiblePositions[numVisible * 3 + 2] = z;
+                numVisible++;
+            }
+        }
+        return numVisible;
+    }
+
+    private boolean inFrustum(float x, float y, float z) {
+        for (int p = 0; p < mPlanes.length; p += 4) {
+            if (mPlanes[p] * x + mPlanes[p + 1] * y + mPlanes[p + 2] * z + mPlanes[p + 3] < 0.0f) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Horizon test. With v the vector from the camera to the point and d the vector from the
+     * camera to the sphere center, the point is hidden if it lies past the plane through the
+     * horizon circle (v.d > |d|^2 - r^2) and inside the cone tangent to the sphere
+     * ((v.d)^2 > |v|^2 (|d|^2 - r^2)).
+     */
+    private boolean isOccluded(float x, float y, float z) {
+        if (mHorizon <= 0.0f) {
+            return false;
+        }
+        final float vx = x - mSphereX - mCameraX;
+        final float vy = y - mSphereY - mCameraY;
+        final float vz = z - mSphereZ - mCameraZ;
+        final float vDotD = -(vx * mCameraX + vy * mCameraY + vz * mCameraZ);
+        if (vDotD <= mHorizon) {
+            return false;
+        }
+        return vDotD * vDotD > (vx * vx + vy * vy + vz * vz) * mHorizon;
+    }
+}
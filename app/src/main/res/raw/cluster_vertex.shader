@@ -0,0 +1,30 @@
+/*
+ * Point cloud of quantized positions, see PointQuantizer. The style attribute holds the palette
+ * index and the point size in pixels. Points behind the earth, the unit sphere at the origin, are
+ * moved out of the clip volume so that they are discarded, see VisibilityCuller.isOccluded.
+ */
+uniform mat4 u_ModelViewProjection;
+uniform float u_Scale;
+uniform vec4 u_Palette[12];
+uniform vec3 u_Camera; // Camera position in model space
+
+attribute vec3 a_Position;
+attribute vec2 a_Style;
+
+varying vec4 v_Color;
+
+void main() {
+   vec3 position = a_Position * u_Scale;
+   float horizon = dot(u_Camera, u_Camera) - 1.0;
+   vec3 v = position - u_Camera;
+   float vDotD = -dot(v, u_Camera);
+   if (horizon > 0.0 && vDotD > horizon && vDotD * vDotD > dot(v, v) * horizon) {
+      gl_Position = vec4(0.0, 0.0, 2.0, 1.0);
+      gl_PointSize = 1.0;
+      v_Color = vec4(0.0);
+      return;
+   }
+   v_Color = u_Palette[int(a_Style.x)];
+   gl_Position = u_ModelViewProjection * vec4(position, 1.0);
+   gl_PointSize = a_Style.y;
+}
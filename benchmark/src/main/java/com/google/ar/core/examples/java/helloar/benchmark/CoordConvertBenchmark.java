@@ -0,0 +1,95 @@
+package com.google.ar.core.examples.java.helloar.benchmark;
+
+import com.google.ar.core.examples.java.helloar.SGP4.CoordConvert;
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4SatData;
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4unit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TEME to earth fixed and geodetic conversion of a propagated catalog. The positions are computed
+ * once, so only the conversion is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoordConvertBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int catalogSize;
+
+    private double[][] mTeme;
+    private double[][] mEcef;
+    private double mJulianDate;
+    private final double[] mLatLonAlt = new double[3];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final SGP4SatData[] sats = SyntheticCatalog.satellites(catalogSize,
+                SyntheticCatalog.Mix.MIXED, SyntheticCatalog.DEFAULT_SEED);
+        mJulianDate = SyntheticCatalog.EPOCH_JD + 0.25;
+        mTeme = new double[catalogSize][3];
+        mEcef = new double[catalogSize][];
+        final double[] v = new double[3];
+        for (int i = 0; i < catalogSize; ++i) {
+            SGP4unit.sgp4(sats[i], (mJulianDate - sats[i].jdsatepoch) * 1440.0, mTeme[i], v);
+            mEcef[i] = CoordConvert.ecefPosVector(mTeme[i], 0, 0, mJulianDate, 0);
+        }
+    }
+
+    @Benchmark
+    public double ecefPosVector() {
+        double sum = 0.0;
+        for (int i = 0; i < catalogSize; ++i) {
+            sum += CoordConvert.ecefPosVector(mTeme[i], 0, 0, mJulianDate, 0)[0];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double ecefToLongLat() {
+        double sum = 0.0;
+        for (int i = 0; i < catalogSize; ++i) {
+            sum += CoordConvert.ecefToLongLat(mEcef[i], mJulianDate)[0];
+        }
+        return sum;
+    }
+
+    /** Both steps above, as the app used them per satellite. */
+    @Benchmark
+    public double temeToLongLat() {
+        double sum = 0.0;
+        for (int i = 0; i < catalogSize; ++i) {
+            final double[] ecef = CoordConvert.ecefPosVector(mTeme[i], 0, 0, mJulianDate, 0);
+            sum += CoordConvert.ecefToLongLat(ecef, mJulianDate)[0];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double temeToLatLonAlt() {
+        final double gmst = SGP4unit.gstime(mJulianDate);
+        double sum = 0.0;
+        for (int i = 0; i < catalogSize; ++i) {
+            CoordConvert.temeToLatLonAlt(mTeme[i], gmst, mLatLonAlt);
+            sum += mLatLonAlt[0];
+        }
+        return sum;
+    }
+}
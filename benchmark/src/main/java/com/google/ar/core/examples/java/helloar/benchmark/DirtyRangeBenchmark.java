@@ -0,0 +1,87 @@
+package com.google.ar.core.examples.java.helloar.benchmark;
+
+import com.google.ar.core.examples.java.helloar.DirtyRangeTracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding the ranges of the cluster point buffer to re-upload, as {@code ClusterRenderer} does
+ * on every update, for typical changes: a few objects moved, points appended after a catalog
+ * load, and everything moved. Returns the number of floats that would be uploaded.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DirtyRangeBenchmark {
+
+    private static final int MERGE_GAP_FLOATS = 64 * 3;
+    private static final int MAX_RANGES = 32;
+    private static final int FEW = 20;
+
+    @Param({"1000", "10000", "100000"})
+    public int catalogSize;
+
+    private final DirtyRangeTracker mTracker = new DirtyRangeTracker(MERGE_GAP_FLOATS, MAX_RANGES);
+    private float[] mPrevious;
+    private float[] mFewChanged;
+    private float[] mAppended;
+    private float[] mAllChanged;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Random random = new Random(SyntheticCatalog.DEFAULT_SEED);
+        final int floats = catalogSize * 3;
+        mPrevious = new float[floats + floats / 10];
+        for (int i = 0; i < mPrevious.length; ++i) {
+            mPrevious[i] = random.nextFloat();
+        }
+        mFewChanged = Arrays.copyOf(mPrevious, floats);
+        for (int i = 0; i < FEW; ++i) {
+            mFewChanged[random.nextInt(floats)] += 1.0f;
+        }
+        mAppended = Arrays.copyOf(mPrevious, mPrevious.length);
+        mAllChanged = new float[floats];
+        for (int i = 0; i < floats; ++i) {
+            mAllChanged[i] = mPrevious[i] + 1.0f;
+        }
+    }
+
+    @Benchmark
+    public int fewChanged() {
+        mTracker.clear();
+        mTracker.markChanges(mPrevious, catalogSize * 3, mFewChanged, catalogSize * 3);
+        return mTracker.getDirtyLength();
+    }
+
+    @Benchmark
+    public int appended() {
+        mTracker.clear();
+        mTracker.markChanges(mPrevious, catalogSize * 3, mAppended, mAppended.length);
+        return mTracker.getDirtyLength();
+    }
+
+    @Benchmark
+    public int allChanged() {
+        mTracker.clear();
+        mTracker.markChanges(mPrevious, catalogSize * 3, mAllChanged, catalogSize * 3);
+        return mTracker.getDirtyLength();
+    }
+}
@@ -0,0 +1,106 @@
+package com.google.ar.core.examples.java.helloar.benchmark;
+
+import com.google.ar.core.examples.java.helloar.Kepler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Kepler#solve} over one mean anomaly and eccentricity per catalog entry, and over an
+ * orbit polyline of {@link #POINTS} samples per catalog entry. The eccentricities follow the
+ * mixed catalog: mostly near circular, with a tail of HEO orbits.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeplerBenchmark {
+
+    private static final int POINTS = 80;
+
+    @Param({"1000", "10000", "100000"})
+    public int catalogSize;
+
+    private double[] mMeanAnomaly;
+    private double[] mEccentricity;
+
+    // One polyline worth of samples, as in SGP4track.getSatelliteOrbit
+    private final double[] mPolylineM = new double[POINTS + 1];
+    private final double[] mE = new double[POINTS + 1];
+    private final double[] mSinE = new double[POINTS + 1];
+    private final double[] mCosE = new double[POINTS + 1];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Random random = new Random(SyntheticCatalog.DEFAULT_SEED);
+        mMeanAnomaly = new double[catalogSize];
+        mEccentricity = new double[catalogSize];
+        for (int i = 0; i < catalogSize; ++i) {
+            mMeanAnomaly[i] = random.nextDouble() * 2.0 * Math.PI;
+            mEccentricity[i] = random.nextDouble() < 0.95 ? random.nextDouble() * 0.02
+                    : 0.6 + random.nextDouble() * 0.1;
+        }
+        for (int k = 0; k <= POINTS; ++k) {
+            mPolylineM[k] = k * 2.0 * Math.PI / POINTS;
+        }
+    }
+
+    @Benchmark
+    public double solve() {
+        double sum = 0.0;
+        for (int i = 0; i < catalogSize; ++i) {
+            sum += Kepler.solve(mMeanAnomaly[i], mEccentricity[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double solveAndTrueAnomaly() {
+        double sum = 0.0;
+        for (int i = 0; i < catalogSize; ++i) {
+            final double e = Kepler.solve(mMeanAnomaly[i], mEccentricity[i]);
+            sum += Kepler.calcTrueAnomaly(mEccentricity[i], e);
+        }
+        return sum;
+    }
+
+    /** Baseline for {@link #polylinesBatch()}: a cold solve and sin/cos of E per sample. */
+    @Benchmark
+    public double polylines() {
+        double sum = 0.0;
+        for (int i = 0; i < catalogSize; ++i) {
+            for (int k = 0; k <= POINTS; ++k) {
+                final double e = Kepler.solve(mPolylineM[k], mEccentricity[i]);
+                sum += Kepler.calcTrueAnomaly(mEccentricity[i], e);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double polylinesBatch() {
+        double sum = 0.0;
+        for (int i = 0; i < catalogSize; ++i) {
+            Kepler.solve(mPolylineM, POINTS + 1, mEccentricity[i], mE, mSinE, mCosE);
+            for (int k = 0; k <= POINTS; ++k) {
+                sum += Kepler.calcTrueAnomaly(mEccentricity[i], mSinE[k], mCosE[k]);
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,118 @@
+package com.google.ar.core.examples.java.helloar.benchmark;
+
+import com.google.ar.core.examples.java.helloar.SGP4.BatchPropagator;
+import com.google.ar.core.examples.java.helloar.SGP4.RenderPropagator;
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4SatData;
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4unit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One propagation of the whole catalog per operation, the work of one tick.
+ *
+ * The time advances by {@link #STEP_MINUTES} per operation, so the deep space integrator and its
+ * checkpoints see the forward scrubbing of a running clock rather than a single cached time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropagationBenchmark {
+
+    private static final double STEP_MINUTES = 1.0;
+    private static final double MINUTES_PER_DAY = 1440.0;
+    // Wrap back to the epoch after a week of simulated time.
+    private static final double MAX_MINUTES = 7.0 * MINUTES_PER_DAY;
+
+    @Param({"1000", "10000", "100000"})
+    public int catalogSize;
+
+    @Param({"NEAR_EARTH", "DEEP_SPACE", "MIXED"})
+    public SyntheticCatalog.Mix mix;
+
+    private SGP4SatData[] mSatellites;
+    private final double[] mR = new double[3];
+    private final double[] mV = new double[3];
+    private double mMinutes;
+
+    private BatchPropagator mBatch;
+    private double[] mPositions;
+    private double[] mVelocities;
+    private boolean[] mValid;
+
+    private RenderPropagator mRender;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mSatellites = SyntheticCatalog.satellites(catalogSize, mix, SyntheticCatalog.DEFAULT_SEED);
+        mBatch = new BatchPropagator();
+        mBatch.setCatalog(mSatellites, catalogSize);
+        mPositions = new double[3 * catalogSize];
+        mVelocities = new double[3 * catalogSize];
+        mValid = new boolean[catalogSize];
+        mRender = new RenderPropagator();
+        mMinutes = 0.0;
+    }
+
+    private double nextMinutes() {
+        mMinutes += STEP_MINUTES;
+        if (mMinutes > MAX_MINUTES) {
+            mMinutes = 0.0;
+        }
+        return mMinutes;
+    }
+
+    /** Baseline: {@link SGP4unit#sgp4} one satellite at a time, as the app started out. */
+    @Benchmark
+    public double sgp4() {
+        final double minutes = nextMinutes();
+        double sum = 0.0;
+        for (int i = 0; i < catalogSize; ++i) {
+            SGP4unit.sgp4(mSatellites[i], minutes, mR, mV);
+            sum += mR[0];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double batch() {
+        final double minutes = nextMinutes();
+        mBatch.propagate(SyntheticCatalog.EPOCH_JD + minutes / MINUTES_PER_DAY, mPositions,
+                mVelocities, mValid);
+        return mPositions[0];
+    }
+
+    @Benchmark
+    public double batchPositionsOnly() {
+        final double minutes = nextMinutes();
+        mBatch.propagate(SyntheticCatalog.EPOCH_JD + minutes / MINUTES_PER_DAY, mPositions, null,
+                mValid);
+        return mPositions[0];
+    }
+
+    @Benchmark
+    public double renderFidelity() {
+        final double minutes = nextMinutes();
+        double sum = 0.0;
+        for (int i = 0; i < catalogSize; ++i) {
+            mRender.propagate(mSatellites[i], minutes, mR);
+            sum += mR[0];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,81 @@
+package com.google.ar.core.examples.java.helloar.benchmark;
+
+import com.google.ar.core.examples.java.helloar.CatalogFilter;
+import com.google.ar.core.examples.java.helloar.Satellite;
+import com.google.ar.core.examples.java.helloar.SatelliteCluster;
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4track;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SatelliteCluster#getPoints()} after a change of the sampled set, i.e. the rebuild done
+ * when the density or the filter changes. Each operation switches the density so that every call
+ * rebuilds.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SatelliteClusterBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int catalogSize;
+
+    private SatelliteCluster mCluster;
+    private CatalogFilter.Selection mLowEarthOrbit;
+    private boolean mToggle;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Satellite[] sats = SyntheticCatalog.appSatellites(catalogSize,
+                SyntheticCatalog.Mix.MIXED, SyntheticCatalog.DEFAULT_SEED);
+        mCluster = new SatelliteCluster();
+        for (Satellite sat : sats) {
+            SGP4track.updateSatellite(sat, SyntheticCatalog.EPOCH_JD + 0.25,
+                    SGP4track.Fidelity.RENDER);
+            mCluster.addSatellite(sat);
+        }
+        mLowEarthOrbit = mCluster.getCatalog().newSelection().all().and(CatalogFilter.Tag.LEO);
+    }
+
+    private void toggleDensity() {
+        mToggle = !mToggle;
+        mCluster.setDensity(mToggle ? SatelliteCluster.DensityEnum.ALL
+                : SatelliteCluster.DensityEnum.HIGH);
+    }
+
+    @Benchmark
+    public FloatBuffer getPoints() {
+        toggleDensity();
+        return mCluster.getPoints();
+    }
+
+    /** Rebuild with a filter, which skips the satellites outside of it. */
+    @Benchmark
+    public FloatBuffer getPointsFiltered() {
+        mCluster.setFilter(mLowEarthOrbit);
+        return mCluster.getPoints();
+    }
+
+    /** No change since the last call, the cost of a frame that reuses the points. */
+    @Benchmark
+    public FloatBuffer getPointsUnchanged() {
+        return mCluster.getPoints();
+    }
+}
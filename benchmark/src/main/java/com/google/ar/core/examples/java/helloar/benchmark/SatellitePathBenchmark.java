@@ -0,0 +1,91 @@
+package com.google.ar.core.examples.java.helloar.benchmark;
+
+import com.google.ar.core.examples.java.helloar.Point3D;
+import com.google.ar.core.examples.java.helloar.Satellite;
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4track;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Orbit paths of a whole catalog, {@link #POINTS} points per satellite as drawn by the app. Large
+ * catalogs take seconds per operation, so the iterations are long.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SatellitePathBenchmark {
+
+    private static final int POINTS = 80;
+    // Chord tolerance of the adaptive variants, in earth radii (about 64 km).
+    private static final double TOLERANCE = 0.01;
+
+    @Param({"1000", "10000", "100000"})
+    public int catalogSize;
+
+    private Satellite[] mSatellites;
+    private double mJulianDate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mSatellites = SyntheticCatalog.appSatellites(catalogSize, SyntheticCatalog.Mix.MIXED,
+                SyntheticCatalog.DEFAULT_SEED);
+        mJulianDate = SyntheticCatalog.EPOCH_JD + 0.25;
+    }
+
+    @Benchmark
+    public double getSatellitePath() {
+        double sum = 0.0;
+        for (int i = 0; i < catalogSize; ++i) {
+            List<Point3D> path = SGP4track.getSatellitePath(mSatellites[i], POINTS, true,
+                    mJulianDate);
+            sum += path.get(0).x;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double getSatelliteOrbit() {
+        double sum = 0.0;
+        for (int i = 0; i < catalogSize; ++i) {
+            sum += SGP4track.getSatelliteOrbit(mSatellites[i], POINTS).get(0).x;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double getSatellitePathAdaptive() {
+        double sum = 0.0;
+        for (int i = 0; i < catalogSize; ++i) {
+            List<Point3D> path = SGP4track.getSatellitePathAdaptive(mSatellites[i], TOLERANCE,
+                    true, mJulianDate);
+            sum += path.get(0).x;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double getSatelliteOrbitAdaptive() {
+        double sum = 0.0;
+        for (int i = 0; i < catalogSize; ++i) {
+            sum += SGP4track.getSatelliteOrbitAdaptive(mSatellites[i], TOLERANCE).get(0).x;
+        }
+        return sum;
+    }
+}
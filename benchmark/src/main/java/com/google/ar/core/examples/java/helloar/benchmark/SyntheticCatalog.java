@@ -0,0 +1,114 @@
+package com.google.ar.core.examples.java.helloar.benchmark;
+
+import com.google.ar.core.examples.java.helloar.Satellite;
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4SatData;
+import com.google.ar.core.examples.java.helloar.SGP4.TLEdata;
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4unit;
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4utils;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Reproducible element sets for the benchmarks, formatted as TLEs so they go through the same
+ * parser as a downloaded catalog. A fixed seed gives the same catalog on every run.
+ */
+public class SyntheticCatalog {
+
+    public static final long DEFAULT_SEED = 20180110L;
+
+    // Epoch of every element set, 2018-01-10 12:00 UTC.
+    public static final double EPOCH_JD = 2458129.0;
+
+    public enum Mix {
+        NEAR_EARTH, // LEO only, periods below 225 minutes
+        DEEP_SPACE, // GEO and Molniya type HEO
+        MIXED       // Roughly the shape of the public catalog: mostly LEO, some MEO, GEO and HEO
+    }
+
+    /**
+     * @return {@code size} pairs of TLE lines, {@code [i][0]} and {@code [i][1]}
+     */
+    public static String[][] tles(int size, Mix mix, long seed) {
+        final Random random = new Random(seed);
+        final String[][] lines = new String[size][];
+        for (int i = 0; i < size; ++i) {
+            final int satnum = 10000 + (i % 90000);
+            double meanMotion, ecc, incl;
+            final double u = mix == Mix.NEAR_EARTH ? 0.0
+                    : mix == Mix.DEEP_SPACE ? 0.88 + 0.12 * random.nextDouble()
+                    : random.nextDouble();
+            if (u < 0.8) {        // LEO
+                meanMotion = 11.5 + random.nextDouble() * 4.3;
+                ecc = random.nextDouble() * 0.02;
+                incl = random.nextDouble() * 100.0;
+            } else if (u < 0.88) { // MEO, navigation constellations
+                meanMotion = 2.0 + random.nextDouble() * 0.01;
+                ecc = random.nextDouble() * 0.01;
+                incl = 55.0 + random.nextDouble() * 10.0;
+            } else if (u < 0.95) { // GEO
+                meanMotion = 1.0027 + random.nextDouble() * 0.001;
+                ecc = random.nextDouble() * 0.001;
+                incl = random.nextDouble() * 10.0;
+            } else {              // Molniya
+                meanMotion = 2.0 + random.nextDouble() * 0.01;
+                ecc = 0.6 + random.nextDouble() * 0.1;
+                incl = 63.4;
+            }
+            final double bstar = random.nextDouble() * 1.0e-4;
+            lines[i] = new String[] {
+                    String.format(Locale.US,
+                            "1 %05dU 98067A   18010.50000000  .00000000  00000-0 %s 0  9990",
+                            satnum, formatExponent(bstar)),
+                    String.format(Locale.US,
+                            "2 %05d %8.4f %8.4f %07d %8.4f %8.4f %11.8f    10",
+                            satnum, incl, random.nextDouble() * 360.0,
+                            (int) Math.round(ecc * 1.0e7), random.nextDouble() * 360.0,
+                            random.nextDouble() * 360.0, meanMotion)
+            };
+        }
+        return lines;
+    }
+
+    /**
+     * @return {@code size} initialized satellites
+     */
+    public static SGP4SatData[] satellites(int size, Mix mix, long seed) {
+        final String[][] lines = tles(size, mix, seed);
+        final SGP4SatData[] sats = new SGP4SatData[size];
+        for (int i = 0; i < size; ++i) {
+            sats[i] = new SGP4SatData();
+            if (!SGP4utils.readTLEandIniSGP4("SAT " + i, lines[i][0], lines[i][1],
+                    SGP4utils.OPSMODE_IMPROVED, SGP4unit.Gravconsttype.wgs72, sats[i])) {
+                throw new IllegalStateException("Invalid synthetic element set " + i);
+            }
+        }
+        return sats;
+    }
+
+    /**
+     * @return {@code size} satellites, initialized like downloaded ones but not yet propagated
+     */
+    public static Satellite[] appSatellites(int size, Mix mix, long seed) {
+        final String[][] lines = tles(size, mix, seed);
+        final Satellite[] sats = new Satellite[size];
+        for (int i = 0; i < size; ++i) {
+            sats[i] = new Satellite(new TLEdata("SAT " + i, lines[i][0], lines[i][1]));
+        }
+        return sats;
+    }
+
+    // TLE "assumed decimal point" exponent notation, e.g. " 12345-4" for 0.12345e-4.
+    private static String formatExponent(double value) {
+        if (value == 0.0) {
+            return " 00000-0";
+        }
+        int exponent = (int) Math.floor(Math.log10(value)) + 1;
+        int mantissa = (int) Math.round(value / Math.pow(10.0, exponent) * 1.0e5);
+        if (mantissa >= 100000) {
+            mantissa /= 10;
+            exponent++;
+        }
+        return String.format(Locale.US, " %05d%+d", mantissa, exponent);
+    }
+}
@@ -0,0 +1,57 @@
+package com.google.ar.core.examples.java.helloar.benchmark;
+
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4SatData;
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4unit;
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and initializing a whole catalog, as done after a download. Each operation creates new
+ * {@link SGP4SatData}, like the download path, so the allocation rate includes them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TleParseBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int catalogSize;
+
+    private String[][] mLines;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mLines = SyntheticCatalog.tles(catalogSize, SyntheticCatalog.Mix.MIXED,
+                SyntheticCatalog.DEFAULT_SEED);
+    }
+
+    @Benchmark
+    public int readTLEandIniSGP4() {
+        int valid = 0;
+        for (int i = 0; i < catalogSize; ++i) {
+            final SGP4SatData sat = new SGP4SatData();
+            if (SGP4utils.readTLEandIniSGP4("SAT", mLines[i][0], mLines[i][1],
+                    SGP4utils.OPSMODE_IMPROVED, SGP4unit.Gravconsttype.wgs72, sat)) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+}
@@ -0,0 +1,276 @@
+package com.google.ar.core.examples.java.helloar;
+
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4SatData;
+
+import java.util.Arrays;
+
+/**
+ * Bitset index over the satellite catalog. Every object is classified once when it is added,
+ * setting one bit per matching {@link Tag} and one bit in its inclination band. Filters are then
+ * built from word-wise AND/OR passes over these bitsets with a {@link Selection}, instead of
+ * scanning the satellites, e.g.
+ *
+ * <pre>
+ *     selection.all().and(Tag.LEO).and(Tag.POLAR).andNot(Tag.DEBRIS);
+ * </pre>
+ *
+ * Objects are numbered in insertion order, the same order as {@link SatelliteCluster} adds them.
+ */
+public class CatalogFilter {
+
+    public enum Tag {
+        // Orbit regime, exactly one of these is set, see OrbitRegime
+        LEO,
+        MEO,
+        GEO,
+        HEO,
+        // Orbit shape
+        SUN_SYNCHRONOUS, // Node precesses with the mean sun
+        POLAR,           // Inclination within 10 degrees of 90
+        RETROGRADE,      // Inclination above 90 degrees
+        EQUATORIAL,      // Inclination within 10 degrees of 0 or 180
+        // Object type, from the catalog name, exactly one of these is set
+        PAYLOAD,
+        ROCKET_BODY,
+        DEBRIS
+    }
+
+    public static final int INCLINATION_BAND_DEGREES = 10;
+    private static final int NUM_BANDS = 180 / INCLINATION_BAND_DEGREES;
+
+    private static final double RAD_TO_DEG = 180.0 / Math.PI;
+    private static final double POLAR_TOLERANCE      = 10.0; // degrees
+    private static final double EQUATORIAL_TOLERANCE = 10.0; // degrees
+
+    // Mean motion of the sun in radians per minute, and the tolerance on the node rate of a
+    // sun-synchronous orbit relative to it.
+    private static final double SUN_NODE_RATE = 2.0 * Math.PI / (365.2422 * 1440.0);
+    private static final double SUN_SYNC_TOLERANCE = 0.1;
+
+    private static final int INITIAL_WORDS = 4;
+
+    private final long[][] mTagBits = new long[Tag.values().length][INITIAL_WORDS];
+    private final long[][] mBandBits = new long[NUM_BANDS][INITIAL_WORDS];
+    private int mWords = INITIAL_WORDS;
+    private int mSize = 0;
+
+    /**
+     * Classifies an object and adds it to the index.
+     *
+     * @param data initialized SGP4 data of the object
+     * @return the index of the object
+     */
+    public int add(SGP4SatData data) {
+        final int index = mSize++;
+        if (index >> 6 >= mWords) {
+            grow();
+        }
+
+        set(mTagBits[regimeTag(OrbitRegime.classify(data)).ordinal()], index);
+
+        final double inclination = data.inclo * RAD_TO_DEG;
+        if (Math.abs(inclination - 90.0) <= POLAR_TOLERANCE) {
+            set(mTagBits[Tag.POLAR.ordinal()], index);
+        }
+        if (inclination > 90.0) {
+            set(mTagBits[Tag.RETROGRADE.ordinal()], index);
+        }
+        if (inclination <= EQUATORIAL_TOLERANCE || inclination >= 180.0 - EQUATORIAL_TOLERANCE) {
+            set(mTagBits[Tag.EQUATORIAL.ordinal()], index);
+        }
+        if (Math.abs(data.nodedot - SUN_NODE_RATE) <= SUN_SYNC_TOLERANCE * SUN_NODE_RATE) {
+            set(mTagBits[Tag.SUN_SYNCHRONOUS.ordinal()], index);
+        }
+        set(mTagBits[typeTag(data.name).ordinal()], index);
+        set(mBandBits[band(inclination)], index);
+        return index;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @return true if the object at {@code index} has the tag
+     */
+    public boolean hasTag(int index, Tag tag) {
+        return isSet(mTagBits[tag.ordinal()], index);
+    }
+
+    /**
+     * @return a new, empty selection over this catalog
+     */
+    public Selection newSelection() {
+        return new Selection();
+    }
+
+    /**
+     * A set of catalog objects. Operations modify the selection in place and return it, so a
+     * filter can be rebuilt every frame without allocating.
+     */
+    public class Selection {
+        private long[] mBits = new long[mWords];
+
+        /** Selects every object in the catalog. */
+        public Selection all() {
+            ensureCapacity();
+            final int fullWords = mSize >> 6;
+            Arrays.fill(mBits, 0, fullWords, -1L);
+            Arrays.fill(mBits, fullWords, mBits.length, 0L);
+            if ((mSize & 63) != 0) {
+                mBits[fullWords] = (1L << (mSize & 63)) - 1;
+            }
+            return this;
+        }
+
+        /** Selects nothing. */
+        public Selection none() {
+            Arrays.fill(mBits, 0L);
+            return this;
+        }
+
+        public Selection and(Tag tag) {
+            return and(mTagBits[tag.ordinal()]);
+        }
+
+        public Selection or(Tag tag) {
+            return or(mTagBits[tag.ordinal()]);
+        }
+
+        public Selection andNot(Tag tag) {
+            return andNot(mTagBits[tag.ordinal()]);
+        }
+
+        /**
+         * Keeps objects whose inclination falls in one of the bands overlapping
+         * [{@code minDegrees}, {@code maxDegrees}]. Bands are {@link #INCLINATION_BAND_DEGREES}
+         * wide, so the range is widened to band boundaries.
+         */
+        public Selection andInclination(double minDegrees, double maxDegrees) {
+            ensureCapacity();
+            final int first = band(minDegrees);
+            final int last = band(maxDegrees);
+            for (int w = 0; w < mWords; ++w) {
+                long bandWord = 0L;
+                for (int b = first; b <= last; ++b) {
+                    bandWord |= mBandBits[b][w];
+                }
+                mBits[w] &= bandWord;
+            }
+            return this;
+        }
+
+        /** Keeps objects that are also in {@code other}. */
+        public Selection and(Selection other) {
+            return and(other.mBits);
+        }
+
+        /** Adds the objects of {@code other}. */
+        public Selection or(Selection other) {
+            return or(other.mBits);
+        }
+
+        public boolean contains(int index) {
+            return index >> 6 < mBits.length && isSet(mBits, index);
+        }
+
+        /**
+         * @return the number of selected objects
+         */
+        public int cardinality() {
+            int count = 0;
+            for (long word : mBits) {
+                count += Long.bitCount(word);
+            }
+            return count;
+        }
+
+        private Selection and(long[] bits) {
+            ensureCapacity();
+            final int words = Math.min(mBits.length, bits.length);
+            for (int w = 0; w < words; ++w) {
+                mBits[w] &= bits[w];
+            }
+            Arrays.fill(mBits, words, mBits.length, 0L);
+            return this;
+        }
+
+        private Selection or(long[] bits) {
+            ensureCapacity();
+            final int words = Math.min(mBits.length, bits.length);
+            for (int w = 0; w < words; ++w) {
+                mBits[w] |= bits[w];
+            }
+            return this;
+        }
+
+        private Selection andNot(long[] bits) {
+            ensureCapacity();
+            final int words = Math.min(mBits.length, bits.length);
+            for (int w = 0; w < words; ++w) {
+                mBits[w] &= ~bits[w];
+            }
+            return this;
+        }
+
+        private void ensureCapacity() {
+            if (mBits.length < mWords) {
+                mBits = Arrays.copyOf(mBits, mWords);
+            }
+        }
+    }
+
+    private void grow() {
+        mWords *= 2;
+        for (int t = 0; t < mTagBits.length; ++t) {
+            mTagBits[t] = Arrays.copyOf(mTagBits[t], mWords);
+        }
+        for (int b = 0; b < mBandBits.length; ++b) {
+            mBandBits[b] = Arrays.copyOf(mBandBits[b], mWords);
+        }
+    }
+
+    private static Tag regimeTag(OrbitRegime regime) {
+        switch (regime) {
+            case LEO:
+                return Tag.LEO;
+            case MEO:
+                return Tag.MEO;
+            case GEO:
+                return Tag.GEO;
+            default:
+                return Tag.HEO;
+        }
+    }
+
+    /*
+     * Catalog names mark debris with "DEB" and rocket bodies with "R/B", e.g. "COSMOS 2251 DEB"
+     * or "SL-16 R/B".
+     */
+    private static Tag typeTag(String name) {
+        if (name == null) {
+            return Tag.PAYLOAD;
+        }
+        final String upper = name.toUpperCase();
+        if (upper.contains(" DEB") || upper.startsWith("DEB")) {
+            return Tag.DEBRIS;
+        }
+        if (upper.contains("R/B")) {
+            return Tag.ROCKET_BODY;
+        }
+        return Tag.PAYLOAD;
+    }
+
+    private static int band(double inclinationDegrees) {
+        final int band = (int) (inclinationDegrees / INCLINATION_BAND_DEGREES);
+        return Math.max(0, Math.min(NUM_BANDS - 1, band));
+    }
+
+    private static void set(long[] bits, int index) {
+        bits[index >> 6] |= 1L << index;
+    }
+
+    private static boolean isSet(long[] bits, int index) {
+        return (bits[index >> 6] & (1L << index)) != 0;
+    }
+}
@@ -0,0 +1,342 @@
+package com.google.ar.core.examples.java.helloar;
+
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4SatData;
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4unit;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Compact storage of a satellite catalog. An initialized {@link SGP4SatData} holds over a
+ * hundred doubles, the TLE lines and several strings, over 1 KB per object. Most of that is
+ * derived by {@link SGP4unit#sgp4init} from seven mean elements, so the store keeps only those
+ * elements in primitive columns plus a little metadata, about 80 bytes per object:
+ *
+ * <ul>
+ *     <li>names in one UTF-8 byte pool, identical names such as "FENGYUN 1C DEB" stored once</li>
+ *     <li>international designators packed into a long, classifications into a byte</li>
+ *     <li>TLE lines, element numbers and revolution numbers are dropped</li>
+ * </ul>
+ *
+ * {@link #getData(int)} re-runs sgp4init on the stored elements, so a materialized object
+ * propagates exactly like the one that was added. Objects are numbered in insertion order, the
+ * same order as {@link SatelliteCluster} adds them.
+ */
+public class CatalogStore {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int INITIAL_POOL_BYTES = 1024;
+    private static final int DESIGNATOR_LENGTH = 8;
+    private static final double JD_SGP4_EPOCH = 2433281.5; // 0 Jan 1950, see sgp4init
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private int mSize = 0;
+    private int mCapacity = INITIAL_CAPACITY;
+
+    // Shared by every object, from the first one added.
+    private SGP4unit.Gravconsttype mGravConstType;
+    private char mOpsMode;
+
+    // Mean elements, as passed to sgp4init.
+    private int[] mSatnum = new int[INITIAL_CAPACITY];
+    private double[] mEpoch = new double[INITIAL_CAPACITY]; // julian date
+    private double[] mBstar = new double[INITIAL_CAPACITY];
+    private double[] mEcco = new double[INITIAL_CAPACITY];
+    private double[] mArgpo = new double[INITIAL_CAPACITY];
+    private double[] mInclo = new double[INITIAL_CAPACITY];
+    private double[] mMo = new double[INITIAL_CAPACITY];
+    private double[] mNo = new double[INITIAL_CAPACITY];   // kozai mean motion, rad/min
+    private double[] mNodeo = new double[INITIAL_CAPACITY];
+
+    // Metadata.
+    private int[] mNameId = new int[INITIAL_CAPACITY];
+    private long[] mDesignator = new long[INITIAL_CAPACITY];
+    private byte[] mClassification = new byte[INITIAL_CAPACITY];
+
+    // Unique names: name i is mNamePool[mNameStart[i], mNameStart[i + 1]). mNameTable is an open
+    // addressing hash set of name ids + 1, zero marks an empty slot.
+    private byte[] mNamePool = new byte[INITIAL_POOL_BYTES];
+    private int[] mNameStart = new int[INITIAL_CAPACITY + 1];
+    private int mNumNames = 0;
+    private int[] mNameTable = new int[INITIAL_CAPACITY * 2];
+
+    /**
+     * Copies the elements and metadata of an object. The object itself is not referenced
+     * afterwards, so it can be discarded.
+     *
+     * @param data SGP4 data initialized by sgp4init, with the same gravity constants and
+     *     operation mode as the objects already in the store
+     * @return the index of the object
+     */
+    public int add(SGP4SatData data) {
+        if (data.gravconsttype == null) {
+            throw new IllegalArgumentException("SGP4 data of " + data.satnum
+                    + " is not initialized");
+        }
+        if (mSize == 0) {
+            mGravConstType = data.gravconsttype;
+            mOpsMode = data.operationmode;
+        } else if (data.gravconsttype != mGravConstType || data.operationmode != mOpsMode) {
+            throw new IllegalArgumentException("SGP4 data of " + data.satnum
+                    + " uses different gravity constants or operation mode");
+        }
+        if (mSize == mCapacity) {
+            grow();
+        }
+
+        final int index = mSize++;
+        mSatnum[index] = data.satnum;
+        mEpoch[index] = data.jdsatepoch;
+        mBstar[index] = data.bstar;
+        mEcco[index] = data.ecco;
+        mArgpo[index] = data.argpo;
+        mInclo[index] = data.inclo;
+        mMo[index] = data.mo;
+        mNo[index] = data.no_kozai;
+        mNodeo[index] = data.nodeo;
+
+        mNameId[index] = internName(data.name);
+        mDesignator[index] = packDesignator(data.intldesg);
+        mClassification[index] = data.classification == null || data.classification.isEmpty()
+                ? (byte) ' ' : (byte) data.classification.charAt(0);
+        return index;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @return the number of distinct names, at most {@link #size()}
+     */
+    public int getNumNames() {
+        return mNumNames;
+    }
+
+    public int getSatnum(int index) {
+        checkIndex(index);
+        return mSatnum[index];
+    }
+
+    /**
+     * @return the epoch of the elements as a julian date
+     */
+    public double getEpoch(int index) {
+        checkIndex(index);
+        return mEpoch[index];
+    }
+
+    /**
+     * @return the catalog name, without the padding of the TLE name line
+     */
+    public String getName(int index) {
+        checkIndex(index);
+        final int id = mNameId[index];
+        return new String(mNamePool, mNameStart[id], mNameStart[id + 1] - mNameStart[id], UTF_8);
+    }
+
+    /**
+     * @return the international designator, e.g. "98067A", without padding
+     */
+    public String getIntlDesignator(int index) {
+        checkIndex(index);
+        return unpackDesignator(mDesignator[index]);
+    }
+
+    public char getClassification(int index) {
+        checkIndex(index);
+        return (char) mClassification[index];
+    }
+
+    /**
+     * Materializes an object. The result is a new instance every call and is not kept by the
+     * store, so hold on to it while it is in use.
+     *
+     * @return SGP4 data initialized from the stored elements
+     */
+    public SGP4SatData getData(int index) {
+        checkIndex(index);
+        SGP4SatData data = new SGP4SatData();
+        data.satnum = mSatnum[index];
+        data.jdsatepoch = mEpoch[index];
+        data.name = getName(index);
+        data.intldesg = getIntlDesignator(index);
+        data.classification = String.valueOf(getClassification(index));
+        data.tleDataOk = true;
+
+        SGP4unit.sgp4init(mGravConstType, mOpsMode, mSatnum[index],
+                mEpoch[index] - JD_SGP4_EPOCH, mBstar[index], mEcco[index], mArgpo[index],
+                mInclo[index], mMo[index], mNo[index], mNodeo[index], data);
+        return data;
+    }
+
+    /**
+     * @return a new satellite for the object, see {@link #getData(int)}
+     */
+    public Satellite getSatellite(int index) {
+        return new Satellite(getData(index));
+    }
+
+    /**
+     * Hash of the numbers, epochs and elements of every object in order, e.g. to key data
+     * computed from the catalog. It changes whenever an object is added or a TLE is updated.
+     */
+    public long getVersion() {
+        long hash = mSize;
+        for (int i = 0; i < mSize; ++i) {
+            hash = mix(hash, mSatnum[i]);
+            hash = mix(hash, Double.doubleToLongBits(mEpoch[i]));
+            hash = mix(hash, Double.doubleToLongBits(mBstar[i]));
+            hash = mix(hash, Double.doubleToLongBits(mEcco[i]));
+            hash = mix(hash, Double.doubleToLongBits(mArgpo[i]));
+            hash = mix(hash, Double.doubleToLongBits(mInclo[i]));
+            hash = mix(hash, Double.doubleToLongBits(mMo[i]));
+            hash = mix(hash, Double.doubleToLongBits(mNo[i]));
+            hash = mix(hash, Double.doubleToLongBits(mNodeo[i]));
+        }
+        return hash;
+    }
+
+    /**
+     * @return the approximate number of bytes held by the store, for all allocated capacity
+     */
+    public long getMemoryUsage() {
+        // 8 double columns, 2 int columns, a long and a byte per object
+        return (long) mCapacity * (8 * 8 + 2 * 4 + 8 + 1)
+                + mNamePool.length + 4L * mNameStart.length + 4L * mNameTable.length;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + mSize);
+        }
+    }
+
+    private void grow() {
+        mCapacity *= 2;
+        mSatnum = Arrays.copyOf(mSatnum, mCapacity);
+        mEpoch = Arrays.copyOf(mEpoch, mCapacity);
+        mBstar = Arrays.copyOf(mBstar, mCapacity);
+        mEcco = Arrays.copyOf(mEcco, mCapacity);
+        mArgpo = Arrays.copyOf(mArgpo, mCapacity);
+        mInclo = Arrays.copyOf(mInclo, mCapacity);
+        mMo = Arrays.copyOf(mMo, mCapacity);
+        mNo = Arrays.copyOf(mNo, mCapacity);
+        mNodeo = Arrays.copyOf(mNodeo, mCapacity);
+        mNameId = Arrays.copyOf(mNameId, mCapacity);
+        mDesignator = Arrays.copyOf(mDesignator, mCapacity);
+        mClassification = Arrays.copyOf(mClassification, mCapacity);
+    }
+
+    /*
+     * Returns the id of a name, adding it to the pool if it is new.
+     */
+    private int internName(String name) {
+        final byte[] bytes = (name == null ? "" : name.trim()).getBytes(UTF_8);
+        final int hash = hash(bytes, 0, bytes.length);
+        final int mask = mNameTable.length - 1;
+        int slot = hash & mask;
+        while (mNameTable[slot] != 0) {
+            final int id = mNameTable[slot] - 1;
+            if (equalsName(id, bytes)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        final int id = mNumNames++;
+        final int start = mNameStart[id];
+        if (start + bytes.length > mNamePool.length) {
+            mNamePool = Arrays.copyOf(mNamePool,
+                    Math.max(start + bytes.length, mNamePool.length * 2));
+        }
+        System.arraycopy(bytes, 0, mNamePool, start, bytes.length);
+        if (id + 2 > mNameStart.length) {
+            mNameStart = Arrays.copyOf(mNameStart, mNameStart.length * 2);
+        }
+        mNameStart[id + 1] = start + bytes.length;
+        mNameTable[slot] = id + 1;
+
+        // Keep the table at most half full so probe sequences stay short.
+        if (2 * mNumNames > mNameTable.length) {
+            rehashNames();
+        }
+        return id;
+    }
+
+    private boolean equalsName(int id, byte[] bytes) {
+        final int start = mNameStart[id];
+        if (mNameStart[id + 1] - start != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; ++i) {
+            if (mNamePool[start + i] != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehashNames() {
+        final int[] table = new int[mNameTable.length * 2];
+        final int mask = table.length - 1;
+        for (int id = 0; id < mNumNames; ++id) {
+            final int start = mNameStart[id];
+            int slot = hash(mNamePool, start, mNameStart[id + 1] - start) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id + 1;
+        }
+        mNameTable = table;
+    }
+
+    /*
+     * Combines a value into a hash with the 64-bit finalizer from MurmurHash3.
+     */
+    private static long mix(long hash, long value) {
+        long x = hash * 31 + value;
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+        return x;
+    }
+
+    private static int hash(byte[] bytes, int start, int length) {
+        int h = 0;
+        for (int i = start; i < start + length; ++i) {
+            h = 31 * h + bytes[i];
+        }
+        return h ^ (h >>> 16); // Spread the high bits into the masked slot index
+    }
+
+    /*
+     * Designators are at most 8 ASCII characters, one per byte of the long, first character in
+     * the lowest byte. Trailing blanks are dropped.
+     */
+    private static long packDesignator(String designator) {
+        if (designator == null) {
+            return 0;
+        }
+        final String trimmed = designator.trim();
+        long packed = 0;
+        for (int i = 0; i < Math.min(trimmed.length(), DESIGNATOR_LENGTH); ++i) {
+            packed |= (long) (trimmed.charAt(i) & 0xFF) << (8 * i);
+        }
+        return packed;
+    }
+
+    private static String unpackDesignator(long packed) {
+        final StringBuilder designator = new StringBuilder(DESIGNATOR_LENGTH);
+        for (int i = 0; i < DESIGNATOR_LENGTH; ++i) {
+            final char c = (char) ((packed >>> (8 * i)) & 0xFF);
+            if (c == 0) {
+                break;
+            }
+            designator.append(c);
+        }
+        return designator.toString();
+    }
+}
@@ -0,0 +1,202 @@
+package com.google.ar.core.examples.java.helloar;
+
+import java.util.Arrays;
+
+/**
+ * Set of changed ranges of an array, e.g. the parts of a vertex buffer that need to be
+ * re-uploaded. Ranges are half open, [start, end), in array elements, and are kept sorted and
+ * disjoint. Ranges closer than the merge gap are coalesced, because uploading a few unchanged
+ * elements is cheaper than issuing another call, and the number of ranges is capped by merging
+ * the closest neighbours.
+ *
+ * Has no GL dependency, the caller uploads {@link #getStart(int)} to {@link #getEnd(int)} for
+ * every range.
+ */
+public class DirtyRangeTracker {
+
+    private static final int INITIAL_RANGES = 16;
+
+    private final int mMergeGap;
+    private final int mMaxRanges;
+
+    // Range i is [mStarts[i], mEnds[i]).
+    private int[] mStarts = new int[INITIAL_RANGES];
+    private int[] mEnds = new int[INITIAL_RANGES];
+    private int mCount = 0;
+
+    /**
+     * @param mergeGap ranges separated by at most this many clean elements are merged
+     * @param maxRanges maximum number of ranges, at least 1
+     */
+    public DirtyRangeTracker(int mergeGap, int maxRanges) {
+        if (mergeGap < 0 || maxRanges < 1) {
+            throw new IllegalArgumentException("Invalid gap " + mergeGap + " or max ranges "
+                    + maxRanges);
+        }
+        mMergeGap = mergeGap;
+        mMaxRanges = maxRanges;
+    }
+
+    /**
+     * Marks [start, end) as changed. Empty ranges are ignored.
+     */
+    public void mark(int start, int end) {
+        if (start >= end) {
+            return;
+        }
+        // Fast path: marks usually come in increasing order, from a scan.
+        if (mCount == 0 || start > mEnds[mCount - 1] + mMergeGap) {
+            append(start, end);
+        } else if (start >= mStarts[mCount - 1]) {
+            mEnds[mCount - 1] = Math.max(mEnds[mCount - 1], end);
+        } else {
+            insert(start, end);
+        }
+        if (mCount > mMaxRanges) {
+            mergeClosest();
+        }
+    }
+
+    /**
+     * Marks the elements where two arrays differ, over the first {@code count} elements of
+     * {@code current}. Elements past {@code previousCount} have no previous value and are always
+     * marked.
+     *
+     * @param previous the values last uploaded
+     * @param previousCount number of valid elements in {@code previous}
+     * @param current the new values
+     * @param count number of valid elements in {@code current}
+     */
+    public void markChanges(float[] previous, int previousCount, float[] current, int count) {
+        final int common = Math.min(previousCount, count);
+        int i = 0;
+        while (i < common) {
+            if (Float.floatToRawIntBits(previous[i]) == Float.floatToRawIntBits(current[i])) {
+                ++i;
+                continue;
+            }
+            final int start = i++;
+            while (i < common
+                    && Float.floatToRawIntBits(previous[i]) != Float.floatToRawIntBits(current[i])) {
+                ++i;
+            }
+            mark(start, i);
+        }
+        mark(common, count);
+    }
+
+    /**
+     * Same as {@link #markChanges(float[], int, float[], int)}, for short elements.
+     */
+    public void markChanges(short[] previous, int previousCount, short[] current, int count) {
+        final int common = Math.min(previousCount, count);
+        int i = 0;
+        while (i < common) {
+            if (previous[i] == current[i]) {
+                ++i;
+                continue;
+            }
+            final int start = i++;
+            while (i < common && previous[i] != current[i]) {
+                ++i;
+            }
+            mark(start, i);
+        }
+        mark(common, count);
+    }
+
+    public void clear() {
+        mCount = 0;
+    }
+
+    public boolean isEmpty() {
+        return mCount == 0;
+    }
+
+    public int getRangeCount() {
+        return mCount;
+    }
+
+    public int getStart(int range) {
+        return mStarts[range];
+    }
+
+    public int getEnd(int range) {
+        return mEnds[range];
+    }
+
+    /**
+     * @return the total number of elements in all ranges
+     */
+    public int getDirtyLength() {
+        int length = 0;
+        for (int i = 0; i < mCount; ++i) {
+            length += mEnds[i] - mStarts[i];
+        }
+        return length;
+    }
+
+    private void append(int start, int end) {
+        if (mCount == mStarts.length) {
+            mStarts = Arrays.copyOf(mStarts, mCount * 2);
+            mEnds = Arrays.copyOf(mEnds, mCount * 2);
+        }
+        mStarts[mCount] = start;
+        mEnds[mCount] = end;
+        mCount++;
+    }
+
+    /*
+     * General case: finds the ranges the new one touches, within the merge gap, and replaces
+     * them with their union.
+     */
+    private void insert(int start, int end) {
+        // First range whose end, plus the gap, reaches start.
+        int first = 0;
+        int hi = mCount;
+        while (first < hi) {
+            final int mid = (first + hi) >>> 1;
+            if (mEnds[mid] + mMergeGap < start) {
+                first = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        // One past the last range that starts within the gap after end.
+        int last = first;
+        while (last < mCount && mStarts[last] <= end + mMergeGap) {
+            ++last;
+        }
+
+        if (first == last) {
+            append(0, 0); // Grow by one, then shift the tail up
+            System.arraycopy(mStarts, first, mStarts, first + 1, mCount - 1 - first);
+            System.arraycopy(mEnds, first, mEnds, first + 1, mCount - 1 - first);
+            mStarts[first] = start;
+            mEnds[first] = end;
+            return;
+        }
+        mStarts[first] = Math.min(start, mStarts[first]);
+        mEnds[first] = Math.max(end, mEnds[last - 1]);
+        final int removed = last - first - 1;
+        System.arraycopy(mStarts, last, mStarts, first + 1, mCount - last);
+        System.arraycopy(mEnds, last, mEnds, first + 1, mCount - last);
+        mCount -= removed;
+    }
+
+    private void mergeClosest() {
+        int best = 0;
+        int bestGap = Integer.MAX_VALUE;
+        for (int i = 0; i + 1 < mCount; ++i) {
+            final int gap = mStarts[i + 1] - mEnds[i];
+            if (gap < bestGap) {
+                bestGap = gap;
+                best = i;
+            }
+        }
+        mEnds[best] = mEnds[best + 1];
+        System.arraycopy(mStarts, best + 2, mStarts, best + 1, mCount - best - 2);
+        System.arraycopy(mEnds, best + 2, mEnds, best + 1, mCount - best - 2);
+        mCount--;
+    }
+}
@@ -0,0 +1,329 @@
+package com.google.ar.core.examples.java.helloar;
+
+import com.google.ar.core.examples.java.helloar.SGP4.CoordConvert;
+import com.google.ar.core.examples.java.helloar.SGP4.RenderPropagator;
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4SatData;
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4track;
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4unit;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Memory-mapped file of precomputed positions of a whole catalog, at a fixed time step, so that
+ * positions survive restarts and are read without propagating. The file is a ring of
+ * {@code capacity} steps; each slot holds the positions of every object at one step as packed
+ * x,y,z floats in the earth frame of the renderer, see {@link SGP4track#toRenderFrame}. An
+ * object that fails to propagate at a step, e.g. because it decayed, is NaN at that step.
+ *
+ * Steps are numbered from a fixed anchor date, so a cache reopened later keeps the steps that
+ * are still ahead and is only {@link #extend extended} past its end. The file is keyed by
+ * {@link CatalogStore#getVersion()}, the step and the capacity; a cache for a different catalog
+ * is reset on open.
+ *
+ * One thread may extend the cache while others read it. Readers only see steps whose every
+ * position has been written.
+ */
+public class EphemerisCache {
+
+    private static final int MAGIC = 0x43504753; // "SGPC", little endian
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int BYTES_PER_OBJECT = 3 * 4;
+    private static final double MINUTES_PER_DAY = 1440.0;
+
+    // Header layout
+    private static final int OFFSET_MAGIC = 0;
+    private static final int OFFSET_FORMAT = 4;
+    private static final int OFFSET_CATALOG_VERSION = 8;
+    private static final int OFFSET_COUNT = 16;
+    private static final int OFFSET_CAPACITY = 20;
+    private static final int OFFSET_ANCHOR = 24;
+    private static final int OFFSET_STEP = 32;
+    private static final int OFFSET_FIRST = 40;
+    private static final int OFFSET_LAST = 48;
+
+    // Steps propagated per commit of the header, so a reader or a restart sees progress.
+    private static final int COMMIT_STEPS = 15;
+
+    private final MappedByteBuffer mBuffer;
+    private final FloatBuffer mPositions;
+    private final long mCatalogVersion;
+    private final int mCount;
+    private final int mCapacity;
+    private final double mStepMinutes;
+    private final double mAnchor;
+
+    // Valid steps are [mFirstStep, mLastStep), numbered from mAnchor.
+    private volatile long mFirstStep;
+    private volatile long mLastStep;
+
+    private EphemerisCache(MappedByteBuffer buffer, long catalogVersion, int count, int capacity,
+                           double anchor, double stepMinutes) {
+        mBuffer = buffer;
+        mCatalogVersion = catalogVersion;
+        mCount = count;
+        mCapacity = capacity;
+        mAnchor = anchor;
+        mStepMinutes = stepMinutes;
+
+        ByteBuffer data = buffer.duplicate();
+        data.position(HEADER_BYTES);
+        mPositions = data.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+    }
+
+    /**
+     * Maps a cache file, creating or resetting it if it does not hold the same catalog with the
+     * same step and capacity.
+     *
+     * @param file cache file, e.g. in the cache directory of the app
+     * @param store catalog the positions are computed from
+     * @param julianDate anchor of the step numbers if the file is reset, usually now
+     * @param stepMinutes time between steps
+     * @param capacity maximum number of steps held
+     * @return the mapped cache
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public static EphemerisCache open(File file, CatalogStore store, double julianDate,
+                                      double stepMinutes, int capacity) throws IOException {
+        if (stepMinutes <= 0.0 || capacity < 2) {
+            throw new IllegalArgumentException("Invalid step " + stepMinutes + " or capacity "
+                    + capacity);
+        }
+        final long catalogVersion = store.getVersion();
+        final int count = store.size();
+        final long size = HEADER_BYTES + (long) capacity * count * BYTES_PER_OBJECT;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Cache of " + size + " bytes is too large to map");
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            if (raf.length() != size) {
+                raf.setLength(size);
+            }
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            final boolean valid = buffer.getInt(OFFSET_MAGIC) == MAGIC
+                    && buffer.getInt(OFFSET_FORMAT) == FORMAT_VERSION
+                    && buffer.getLong(OFFSET_CATALOG_VERSION) == catalogVersion
+                    && buffer.getInt(OFFSET_COUNT) == count
+                    && buffer.getInt(OFFSET_CAPACITY) == capacity
+                    && buffer.getDouble(OFFSET_STEP) == stepMinutes;
+            final EphemerisCache cache;
+            if (valid) {
+                cache = new EphemerisCache(buffer, catalogVersion, count, capacity,
+                        buffer.getDouble(OFFSET_ANCHOR), stepMinutes);
+                cache.mFirstStep = buffer.getLong(OFFSET_FIRST);
+                cache.mLastStep = buffer.getLong(OFFSET_LAST);
+            } else {
+                final double anchor = Math.floor(julianDate * MINUTES_PER_DAY / stepMinutes)
+                        * stepMinutes / MINUTES_PER_DAY;
+                cache = new EphemerisCache(buffer, catalogVersion, count, capacity, anchor,
+                        stepMinutes);
+                // Empty the cache before it is keyed to the new catalog, and write the magic
+                // last, so a reset cut short never leaves old steps under the new key.
+                buffer.putInt(OFFSET_MAGIC, 0);
+                cache.commit(0, 0);
+                buffer.putInt(OFFSET_FORMAT, FORMAT_VERSION);
+                buffer.putLong(OFFSET_CATALOG_VERSION, catalogVersion);
+                buffer.putInt(OFFSET_COUNT, count);
+                buffer.putInt(OFFSET_CAPACITY, capacity);
+                buffer.putDouble(OFFSET_ANCHOR, anchor);
+                buffer.putDouble(OFFSET_STEP, stepMinutes);
+                buffer.putInt(OFFSET_MAGIC, MAGIC);
+            }
+            return cache;
+        } finally {
+            raf.close(); // The mapping stays valid after the file is closed
+        }
+    }
+
+    public long getCatalogVersion() {
+        return mCatalogVersion;
+    }
+
+    /**
+     * @return the number of objects per step
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    public double getStepMinutes() {
+        return mStepMinutes;
+    }
+
+    /**
+     * @return the date of the first cached step, or NaN if the cache is empty
+     */
+    public double getStartDate() {
+        final long first = mFirstStep;
+        return first < mLastStep ? dateOf(first) : Double.NaN;
+    }
+
+    /**
+     * @return the date of the last cached step, or NaN if the cache is empty
+     */
+    public double getEndDate() {
+        final long last = mLastStep;
+        return mFirstStep < last ? dateOf(last - 1) : Double.NaN;
+    }
+
+    /**
+     * @return the number of the step at or before a date
+     */
+    public long stepOf(double julianDate) {
+        return (long) Math.floor((julianDate - mAnchor) * MINUTES_PER_DAY / mStepMinutes);
+    }
+
+    public double dateOf(long step) {
+        return mAnchor + step * mStepMinutes / MINUTES_PER_DAY;
+    }
+
+    /**
+     * Positions of every object at one step, read directly from the mapped file. The view is
+     * only valid until the step is discarded.
+     *
+     * @param step step number, see {@link #stepOf}
+     * @return a read-only view of {@code 3 * getCount()} floats, or null if the step is not cached
+     */
+    public FloatBuffer getStep(long step) {
+        if (step < mFirstStep || step >= mLastStep) {
+            return null;
+        }
+        FloatBuffer positions = mPositions.duplicate();
+        final int start = slotOffset(step);
+        positions.limit(start + 3 * mCount);
+        positions.position(start);
+        return positions.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Interpolates the positions of every object linearly between the two surrounding steps.
+     * At a one minute step the chord of a low earth orbit is within 5 km of the path.
+     *
+     * @param julianDate time to interpolate at
+     * @param out receives {@code getCount()} packed x,y,z positions, NaN for an object that
+     *     failed to propagate at either step
+     * @return false if the date is not covered by the cache, {@code out} is then undefined
+     */
+    public boolean getPositions(double julianDate, float[] out) {
+        final double t = (julianDate - mAnchor) * MINUTES_PER_DAY / mStepMinutes;
+        final long step = (long) Math.floor(t);
+        if (step < mFirstStep || step + 1 >= mLastStep) {
+            return false;
+        }
+        final float f = (float) (t - step);
+        final int a = slotOffset(step);
+        final int b = slotOffset(step + 1);
+        final int n = 3 * mCount;
+        for (int i = 0; i < n; ++i) {
+            final float p = mPositions.get(a + i);
+            out[i] = p + f * (mPositions.get(b + i) - p);
+        }
+        // Discarded slots may be overwritten, so the copy is only good if its steps were kept.
+        return step >= mFirstStep;
+    }
+
+    /**
+     * Drops the steps before a date, making room for {@link #extend}. Only call from the thread
+     * extending the cache.
+     */
+    public void discardBefore(double julianDate) {
+        final long step = stepOf(julianDate);
+        if (step <= mFirstStep) {
+            return;
+        }
+        commit(step, Math.max(step, mLastStep));
+    }
+
+    /**
+     * Propagates the catalog for the steps after the last cached one, up to a date or the
+     * capacity of the cache, whichever comes first. The header is committed every few steps, so
+     * readers and later launches can use the steps written so far. Steps before
+     * {@code julianDate} that are not cached yet are skipped.
+     *
+     * @param store catalog the cache was opened for
+     * @param julianDate the first step needed, usually now
+     * @param endDate date to extend the cache to
+     * @return the number of steps propagated
+     */
+    public int extend(CatalogStore store, double julianDate, double endDate) {
+        if (store.getVersion() != mCatalogVersion || store.size() != mCount) {
+            throw new IllegalArgumentException("Cache is for a different catalog");
+        }
+        discardBefore(julianDate);
+        final long now = stepOf(julianDate);
+        if (mLastStep < now) {
+            commit(now, now); // Everything cached is in the past
+        }
+
+        final long end = Math.min(stepOf(endDate) + 1, mFirstStep + mCapacity);
+        final RenderPropagator propagator = new RenderPropagator();
+        final double[] teme = new double[3];
+        final double[] latLonAlt = new double[3];
+        final double[] position = new double[3];
+        final double[] gmst = new double[COMMIT_STEPS];
+        int written = 0;
+        while (mLastStep < end) {
+            final long first = mLastStep;
+            final int steps = (int) Math.min(COMMIT_STEPS, end - first);
+            for (int s = 0; s < steps; ++s) {
+                gmst[s] = SGP4unit.gstime(dateOf(first + s));
+            }
+            for (int i = 0; i < mCount; ++i) {
+                // Materialized one at a time so that extending does not hold the whole catalog.
+                final SGP4SatData data = store.getData(i);
+                for (int s = 0; s < steps; ++s) {
+                    final double minutes = (dateOf(first + s) - data.jdsatepoch) * MINUTES_PER_DAY;
+                    final int offset = slotOffset(first + s) + 3 * i;
+                    if (!propagator.propagate(data, minutes, teme)) {
+                        // Decayed or diverged, see SGP4SatData#error. Readers skip NaN.
+                        mPositions.put(offset, Float.NaN);
+                        mPositions.put(offset + 1, Float.NaN);
+                        mPositions.put(offset + 2, Float.NaN);
+                        continue;
+                    }
+                    CoordConvert.temeToLatLonAlt(teme, gmst[s], latLonAlt);
+                    SGP4track.toRenderFrame(latLonAlt[0], latLonAlt[1], latLonAlt[2], position);
+                    mPositions.put(offset, (float) position[0]);
+                    mPositions.put(offset + 1, (float) position[1]);
+                    mPositions.put(offset + 2, (float) position[2]);
+                }
+            }
+            commit(mFirstStep, first + steps);
+            written += steps;
+        }
+        return written;
+    }
+
+    /**
+     * Writes the cached positions to the storage device, e.g. before the app is stopped.
+     */
+    public void force() {
+        mBuffer.force();
+    }
+
+    private int slotOffset(long step) {
+        return (int) Math.floorMod(step, (long) mCapacity) * 3 * mCount;
+    }
+
+    /*
+     * Publishes a new range of valid steps. The first step moves before the slots are reused and
+     * the last step after they are written, so readers never see a partly written step.
+     */
+    private void commit(long first, long last) {
+        mFirstStep = first;
+        mBuffer.putLong(OFFSET_FIRST, first);
+        mBuffer.putLong(OFFSET_LAST, last);
+        mLastStep = last;
+    }
+}
@@ -0,0 +1,155 @@
+package com.google.ar.core.examples.java.helloar;
+
+/**
+ * Created by TY on 1/6/2018.
+ * Kepler equation solver using algorithms described in
+ * "A Practical Method for Solving the Kepler Equation", Marc A. Murison, 2006
+ * Link: http://alpheratz.net/dynamics/twobody/KeplerIterations_summary.pdf
+ */
+public class Kepler {
+
+    private static final double TOLERANCE = 1.0e-14;
+    private static final int MAX_ITERS    = 100;
+
+    // Batch solve: eccentricities below LOW_ECCENTRICITY use FIXED_ITERS third order
+    // corrections from the warm start, without convergence checks.
+    public static final double LOW_ECCENTRICITY = 0.1;
+    private static final int FIXED_ITERS         = 2;
+    // Corrections below SMALL_ANGLE rotate sin/cos with a series instead of trig calls.
+    private static final double SMALL_ANGLE      = 0.02;
+    /**
+     * Solves Kepler equation for E, the eccentric anomaly.
+     * Again, credit to Marc A. Murison in "A Practical Method for Solving the Kepler Equation"
+     * @param M the mean anomaly [0, 2pi]
+     * @param ecc eccentricity of the orbit
+     * @return E the eccentric anomaly
+     */
+    public static double solve(double M, double ecc) {
+        double E  = 0;
+        double E0 = initialE(M, ecc);
+        double dE = TOLERANCE + 1.0;
+        int count = 0;
+        while (dE > TOLERANCE && count < MAX_ITERS) {
+            E = E0 - eps(M, ecc, E0);
+            dE = Math.abs(E - E0);
+            E0 = E;
+            count++;
+        }
+        return E;
+    }
+
+    /**
+     * Determines a good starting value for E, eccentric anomaly. A more accurate
+     * initial E will provide faster convergence.
+     * @param M mean anomaly (in radians)
+     * @param ecc orbital eccentricity
+     * @return the starting E value for the kepler solve() method
+     */
+    private static double initialE(double M, double ecc) {
+        double t34 = ecc * ecc;
+        double t35 = ecc * t34;
+        double t33 = Math.cos(M);
+        return M + (-0.5*t35 + ecc + (t34 + 1.5 * t33 * t35) * t33) * Math.sin(M);
+    }
+
+    /**
+     * Calculate the error in the E approximation. (Third order method)
+     * @param M mean anomaly (in radians)
+     * @param ecc orbital eccentricity
+     * @param x the approximate of E that is in error
+     * @return The error, eps
+     */
+    private static double eps(double M, double ecc, double x) {
+        return eps(M, ecc, x, Math.sin(x), Math.cos(x));
+    }
+
+    /**
+     * Solves Kepler equation for a run of mean anomalies of one orbit, e.g. the samples of an
+     * orbit polyline. Each solve starts from the previous solution advanced by the first order
+     * change of E, instead of the Murison guess, and keeps sin(E) and cos(E) up to date by
+     * rotating them with each correction, so a sample costs a single sin/cos pair. Below
+     * {@link #LOW_ECCENTRICITY} a fixed number of third order corrections is used, which
+     * converges to double precision from the warm start.
+     *
+     * @param M mean anomalies in radians, preferably in increasing order with small steps
+     * @param count number of mean anomalies to solve
+     * @param ecc eccentricity of the orbit
+     * @param E receives the eccentric anomalies
+     * @param sinE receives sin(E)
+     * @param cosE receives cos(E)
+     */
+    public static void solve(double[] M, int count, double ecc, double[] E, double[] sinE,
+                             double[] cosE) {
+        final boolean fixed = ecc < LOW_ECCENTRICITY;
+        double prevM = 0.0;
+        double prevE = 0.0;
+        double prevCos = 1.0;
+        for (int k = 0; k < count; ++k) {
+            double x = k == 0 ? initialE(M[k], ecc)
+                              : prevE + (M[k] - prevM) / (1.0 - ecc * prevCos);
+            double s = Math.sin(x);
+            double c = Math.cos(x);
+            for (int iter = 0; iter < (fixed ? FIXED_ITERS : MAX_ITERS); ++iter) {
+                final double d = eps(M[k], ecc, x, s, c);
+                x -= d;
+                // Rotate sin/cos by -d, with a series for the small corrections
+                final double sinD;
+                final double cosD;
+                if (Math.abs(d) < SMALL_ANGLE) {
+                    final double d2 = d * d;
+                    sinD = d * (1.0 - d2 / 6.0 * (1.0 - d2 / 20.0 * (1.0 - d2 / 42.0)));
+                    cosD = 1.0 - d2 / 2.0 * (1.0 - d2 / 12.0 * (1.0 - d2 / 30.0));
+                } else {
+                    sinD = Math.sin(d);
+                    cosD = Math.cos(d);
+                }
+                final double sNew = s * cosD - c * sinD;
+                c = c * cosD + s * sinD;
+                s = sNew;
+                if (!fixed && Math.abs(d) <= TOLERANCE) {
+                    break;
+                }
+            }
+            E[k] = x;
+            sinE[k] = s;
+            cosE[k] = c;
+            prevM = M[k];
+            prevE = x;
+            prevCos = c;
+        }
+    }
+
+    /**
+     * Same as {@link #eps(double, double, double)}, with sin(x) and cos(x) already known.
+     */
+    private static double eps(double M, double ecc, double x, double sinX, double cosX) {
+        double t2 = -1 + ecc * cosX;
+        double t4 = ecc * sinX;
+        double t5 = -x + t4 + M;
+        double t6 = t5 / (0.5 * t5 * t4/t2 + t2);
+        return t5 / ((0.5 * sinX - (1.0/6.0) * cosX * t6) * ecc * t6 + t2);
+    }
+
+    /**
+     * Calculate true anomaly
+     * See: https://www.vcalc.com/wiki/MichaelBartmess/True+Anomaly%2C+%60nu%60%5BE%5D
+     *
+     * @param ecc orbital eccentricity
+     * @param E eccentric anomaly
+     * @return v, the true anomaly in [0, 2pi)
+     */
+    public static double calcTrueAnomaly(double ecc, double E) {
+        return calcTrueAnomaly(ecc, Math.sin(E), Math.cos(E));
+    }
+
+    /**
+     * True anomaly from sin(E) and cos(E), e.g. from the batch {@link #solve}. The atan2 form
+     * stays accurate near perigee and apogee, where the acos form loses precision.
+     *
+     * @return v, the true anomaly in [0, 2pi)
+     */
+    public static double calcTrueAnomaly(double ecc, double sinE, double cosE) {
+        final double v = Math.atan2(Math.sqrt(1.0 - ecc * ecc) * sinE, cosE - ecc);
+        return v < 0.0 ? v + 2.0 * Math.PI : v;
+    }
+}
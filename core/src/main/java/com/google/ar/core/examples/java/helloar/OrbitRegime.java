@@ -0,0 +1,40 @@
+package com.google.ar.core.examples.java.helloar;
+
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4SatData;
+
+/**
+ * Coarse orbit regime of a satellite, derived from its mean motion and eccentricity.
+ */
+public enum OrbitRegime {
+    LEO,   // Low earth orbit, period under 128 minutes
+    MEO,   // Medium earth orbit, between LEO and geosynchronous
+    GEO,   // Near circular geosynchronous orbit
+    HEO;   // Highly elliptical orbit
+
+    private static final double TWO_PI = 2.0 * Math.PI;
+
+    private static final double LEO_MAX_PERIOD = 128.0;   // minutes
+    private static final double GEO_MIN_PERIOD = 1300.0;  // minutes
+    private static final double GEO_MAX_PERIOD = 1600.0;  // minutes
+    private static final double HEO_MIN_ECC    = 0.25;
+
+    /**
+     * Classifies a satellite from its SGP4 elements.
+     *
+     * @param data initialized SGP4 data, mean motion in radians per minute
+     * @return the orbit regime
+     */
+    public static OrbitRegime classify(SGP4SatData data) {
+        final double period = TWO_PI / data.no; // minutes
+        if (data.ecco >= HEO_MIN_ECC) {
+            return HEO;
+        }
+        if (period < LEO_MAX_PERIOD) {
+            return LEO;
+        }
+        if (period >= GEO_MIN_PERIOD && period <= GEO_MAX_PERIOD) {
+            return GEO;
+        }
+        return MEO;
+    }
+}
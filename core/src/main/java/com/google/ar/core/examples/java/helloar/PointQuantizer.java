@@ -0,0 +1,116 @@
+package com.google.ar.core.examples.java.helloar;
+
+/**
+ * Compact, interleaved vertex format for the cluster points: 8 bytes per point instead of 12 for
+ * float x,y,z, with a per-point style included. Each point is four shorts:
+ *
+ * <ul>
+ *     <li>x, y, z: the position divided by {@link #scale(float)} and rounded, i.e. quantized to
+ *     16 bits over [-radius, radius]. Uploaded as unnormalized GL_SHORT and multiplied back by
+ *     the scale in the vertex shader, which converts exactly on every GLES version.</li>
+ *     <li>style: the palette index in the low byte and the point size in pixels in the high
+ *     byte. Shorts are stored little endian on Android devices, so this reads as two
+ *     GL_UNSIGNED_BYTE components at {@link #STYLE_OFFSET}, index first.</li>
+ * </ul>
+ *
+ * The radius is a power of two, so it only changes, and the whole buffer with it, when the points
+ * spread past the next power of two.
+ */
+public class PointQuantizer {
+
+    public static final int SHORTS_PER_POINT = 4;
+    public static final int BYTES_PER_POINT = 2 * SHORTS_PER_POINT;
+    public static final int POSITION_OFFSET = 0; // bytes
+    public static final int STYLE_OFFSET = 6;    // bytes
+    public static final int MAX_QUANTIZED = 32767;
+
+    private static final float HALF_SQRT_3 = (float) (0.5 * Math.sqrt(3.0));
+
+    private PointQuantizer() {
+    }
+
+    /**
+     * @param positions packed x,y,z coordinates
+     * @param count number of points
+     * @return the smallest power of two, at least 1, that bounds every coordinate
+     */
+    public static float boundingRadius(float[] positions, int count) {
+        float max = 0.0f;
+        for (int i = 0; i < 3 * count; ++i) {
+            max = Math.max(max, Math.abs(positions[i]));
+        }
+        float radius = 1.0f;
+        while (radius < max) {
+            radius *= 2.0f;
+        }
+        return radius;
+    }
+
+    /**
+     * @return the size of one quantization step, the factor the shader scales positions by
+     */
+    public static float scale(float radius) {
+        return radius / MAX_QUANTIZED;
+    }
+
+    /**
+     * @return the largest distance between a point within the radius and its decoded position:
+     *     half a step along each axis
+     */
+    public static float maxError(float radius) {
+        return HALF_SQRT_3 * scale(radius);
+    }
+
+    /**
+     * @param paletteIndex color index, 0 to 255
+     * @param size point size in pixels, 0 to 255
+     * @return the style short
+     */
+    public static short style(int paletteIndex, int size) {
+        return (short) ((size & 0xFF) << 8 | (paletteIndex & 0xFF));
+    }
+
+    /**
+     * Encodes a subset of points.
+     *
+     * @param positions packed x,y,z coordinates, all within the radius
+     * @param styles style of every point in {@code positions}, see {@link #style(int, int)}
+     * @param indices the points to encode, in order
+     * @param count number of indices
+     * @param radius quantization radius, e.g. from {@link #boundingRadius(float[], int)}
+     * @param out receives {@code SHORTS_PER_POINT * count} shorts
+     */
+    public static void encode(float[] positions, short[] styles, int[] indices, int count,
+                              float radius, short[] out) {
+        final float inverseScale = MAX_QUANTIZED / radius;
+        for (int k = 0, o = 0; k < count; ++k) {
+            final int i = indices[k];
+            final int p = 3 * i;
+            out[o++] = quantize(positions[p] * inverseScale);
+            out[o++] = quantize(positions[p + 1] * inverseScale);
+            out[o++] = quantize(positions[p + 2] * inverseScale);
+            out[o++] = styles[i];
+        }
+    }
+
+    /**
+     * Decodes the position of one point, the way the vertex shader does.
+     *
+     * @param encoded points in this format
+     * @param point index of the point
+     * @param radius quantization radius the points were encoded with
+     * @param out receives x,y,z
+     */
+    public static void decode(short[] encoded, int point, float radius, float[] out) {
+        final float scale = scale(radius);
+        final int o = SHORTS_PER_POINT * point;
+        out[0] = encoded[o] * scale;
+        out[1] = encoded[o + 1] * scale;
+        out[2] = encoded[o + 2] * scale;
+    }
+
+    private static short quantize(float value) {
+        final int q = Math.round(value);
+        return (short) Math.max(-MAX_QUANTIZED, Math.min(MAX_QUANTIZED, q));
+    }
+}
@@ -0,0 +1,324 @@
+package com.google.ar.core.examples.java.helloar.SGP4;
+
+/**
+ * Propagates a whole catalog to a common time. {@link SGP4unit#sgp4} branches on the method and
+ * on isimp in every call, so a mixed catalog runs a mix of code paths in one loop. Here the
+ * catalog is partitioned once into near earth simple, near earth full and deep space groups, and
+ * each group runs through its own loop. The near earth loops are copies of the near earth path of
+ * sgp4 with the branches resolved, so the JIT compiles short, predictable code for the large
+ * majority of the catalog. Deep space objects still go through sgp4.
+ *
+ * Results are identical to {@link SGP4unit#sgp4} and are scattered back into catalog order.
+ * Satellites that fail to propagate get NaN positions and velocities instead, so that a consumer
+ * ignoring the valid flags does not draw a wrong position.
+ */
+public class BatchPropagator {
+
+    private static final double MINUTES_PER_DAY = 1440.0;
+    private static final double TWO_PI = 2.0 * Math.PI;
+    private static final double X2O3 = 2.0 / 3.0;
+
+    private SGP4SatData[] mSatellites = new SGP4SatData[0];
+    private int mCount = 0;
+
+    // Catalog indices of each group.
+    private int[] mSimple = new int[0];
+    private int mNumSimple = 0;
+    private int[] mFull = new int[0];
+    private int mNumFull = 0;
+    private int[] mDeep = new int[0];
+    private int mNumDeep = 0;
+
+    // Gravity constants shared by the near earth groups.
+    private SGP4unit.Gravconsttype mGravConstType;
+    private double mXke, mJ2, mRadiusEarthKm, mVkmPerSec;
+
+    private final double[] mR = new double[3];
+    private final double[] mV = new double[3];
+
+    /**
+     * Partitions the catalog. Call again whenever satellites are added or re-initialized.
+     *
+     * @param satellites initialized satellites, in catalog order
+     * @param count number of satellites in {@code satellites} to use
+     */
+    public void setCatalog(SGP4SatData[] satellites, int count) {
+        mSatellites = satellites;
+        mCount = count;
+        mSimple = new int[count];
+        mFull = new int[count];
+        mDeep = new int[count];
+        mNumSimple = 0;
+        mNumFull = 0;
+        mNumDeep = 0;
+        mGravConstType = count > 0 ? satellites[0].gravconsttype : null;
+        if (mGravConstType != null) {
+            final double[] constants = SGP4unit.getgravconst(mGravConstType);
+            mRadiusEarthKm = constants[2];
+            mXke = constants[3];
+            mJ2 = constants[4];
+            mVkmPerSec = mRadiusEarthKm * mXke / 60.0;
+        }
+
+        for (int i = 0; i < count; ++i) {
+            final SGP4SatData sat = satellites[i];
+            if (sat.method == 'd' || sat.gravconsttype != mGravConstType) {
+                mDeep[mNumDeep++] = i; // Anything unusual takes the general path
+            } else if (sat.isimp == 1) {
+                mSimple[mNumSimple++] = i;
+            } else {
+                mFull[mNumFull++] = i;
+            }
+        }
+    }
+
+    public int getNumSimple() {
+        return mNumSimple;
+    }
+
+    public int getNumFull() {
+        return mNumFull;
+    }
+
+    public int getNumDeep() {
+        return mNumDeep;
+    }
+
+    /**
+     * Propagates every satellite of the catalog.
+     *
+     * @param julianDate time to propagate to
+     * @param positions receives packed x,y,z TEME positions in km, in catalog order, or NaN for
+     *     satellites that failed
+     * @param velocities receives packed x,y,z TEME velocities in km/s, in catalog order, or NaN
+     *     for satellites that failed. May be null.
+     * @param valid receives whether each satellite propagated without error, see
+     *     {@link SGP4SatData#error}
+     */
+    public void propagate(double julianDate, double[] positions, double[] velocities,
+                          boolean[] valid) {
+        for (int k = 0; k < mNumSimple; ++k) {
+            final int i = mSimple[k];
+            final SGP4SatData sat = mSatellites[i];
+            valid[i] = propagateSimple(sat, (julianDate - sat.jdsatepoch) * MINUTES_PER_DAY);
+            store(i, valid[i], positions, velocities);
+        }
+        for (int k = 0; k < mNumFull; ++k) {
+            final int i = mFull[k];
+            final SGP4SatData sat = mSatellites[i];
+            valid[i] = propagateFull(sat, (julianDate - sat.jdsatepoch) * MINUTES_PER_DAY);
+            store(i, valid[i], positions, velocities);
+        }
+        for (int k = 0; k < mNumDeep; ++k) {
+            final int i = mDeep[k];
+            final SGP4SatData sat = mSatellites[i];
+            valid[i] = SGP4unit.sgp4(sat, (julianDate - sat.jdsatepoch) * MINUTES_PER_DAY,
+                    mR, mV);
+            store(i, valid[i], positions, velocities);
+        }
+    }
+
+    /*
+     * Copies the state left in mR and mV, or NaN if the propagation failed: mR and mV may then
+     * still hold the state of the previous satellite.
+     */
+    private void store(int i, boolean valid, double[] positions, double[] velocities) {
+        if (!valid) {
+            positions[3 * i]     = Double.NaN;
+            positions[3 * i + 1] = Double.NaN;
+            positions[3 * i + 2] = Double.NaN;
+            if (velocities != null) {
+                velocities[3 * i]     = Double.NaN;
+                velocities[3 * i + 1] = Double.NaN;
+                velocities[3 * i + 2] = Double.NaN;
+            }
+            return;
+        }
+        positions[3 * i]     = mR[0];
+        positions[3 * i + 1] = mR[1];
+        positions[3 * i + 2] = mR[2];
+        if (velocities != null) {
+            velocities[3 * i]     = mV[0];
+            velocities[3 * i + 1] = mV[1];
+            velocities[3 * i + 2] = mV[2];
+        }
+    }
+
+    /*
+     * Near earth, isimp == 1: secular gravity and a truncated drag model.
+     */
+    private boolean propagateSimple(SGP4SatData satrec, double tsince) {
+        satrec.t = tsince;
+        satrec.error = 0;
+
+        final double xmdf = satrec.mo + satrec.mdot * satrec.t;
+        final double argpm = satrec.argpo + satrec.argpdot * satrec.t;
+        final double nodedf = satrec.nodeo + satrec.nodedot * satrec.t;
+        final double t2 = satrec.t * satrec.t;
+        final double nodem = nodedf + satrec.nodecf * t2;
+        final double tempa = 1.0 - satrec.cc1 * satrec.t;
+        final double tempe = satrec.bstar * satrec.cc4 * satrec.t;
+        final double templ = satrec.t2cof * t2;
+
+        return finishNearEarth(satrec, xmdf, argpm, nodem, tempa, tempe, templ);
+    }
+
+    /*
+     * Near earth, isimp != 1: adds the higher order drag terms.
+     */
+    private boolean propagateFull(SGP4SatData satrec, double tsince) {
+        satrec.t = tsince;
+        satrec.error = 0;
+
+        final double xmdf = satrec.mo + satrec.mdot * satrec.t;
+        final double argpdf = satrec.argpo + satrec.argpdot * satrec.t;
+        final double nodedf = satrec.nodeo + satrec.nodedot * satrec.t;
+        final double t2 = satrec.t * satrec.t;
+        final double nodem = nodedf + satrec.nodecf * t2;
+        double tempa = 1.0 - satrec.cc1 * satrec.t;
+        double tempe = satrec.bstar * satrec.cc4 * satrec.t;
+        double templ = satrec.t2cof * t2;
+
+        final double delomg = satrec.omgcof * satrec.t;
+        final double delm = satrec.xmcof *
+                (Math.pow((1.0 + satrec.eta * Math.cos(xmdf)), 3) -
+                        satrec.delmo);
+        final double temp = delomg + delm;
+        final double mm = xmdf + temp;
+        final double argpm = argpdf - temp;
+        final double t3 = t2 * satrec.t;
+        final double t4 = t3 * satrec.t;
+        tempa = tempa - satrec.d2 * t2 - satrec.d3 * t3 -
+                satrec.d4 * t4;
+        tempe = tempe + satrec.bstar * satrec.cc5 * (Math.sin(mm) -
+                satrec.sinmao);
+        templ = templ + satrec.t3cof * t3 + t4 * (satrec.t4cof +
+                satrec.t * satrec.t5cof);
+
+        return finishNearEarth(satrec, mm, argpm, nodem, tempa, tempe, templ);
+    }
+
+    /*
+     * The rest of sgp4 for method 'n', from the mean motion update to the position and
+     * velocity, which are left in mR and mV.
+     */
+    private boolean finishNearEarth(SGP4SatData satrec, double mm, double argpm, double nodem,
+                                    double tempa, double tempe, double templ) {
+        double nm = satrec.no;
+        double em = satrec.ecco;
+        final double inclm = satrec.inclo;
+
+        if (nm <= 0.0) {
+            satrec.error = 2;
+            return false;
+        }
+        final double am = Math.pow((mXke / nm), X2O3) * tempa * tempa;
+        nm = mXke / Math.pow(am, 1.5);
+        em = em - tempe;
+
+        if ((em >= 1.0) || (em < -0.001)) {
+            satrec.error = 1;
+            return false;
+        }
+        if (em < 1.0e-6) {
+            em = 1.0e-6;
+        }
+        mm = mm + satrec.no * templ;
+        double xlm = mm + argpm + nodem;
+
+        nodem = (nodem % TWO_PI);
+        argpm = (argpm % TWO_PI);
+        xlm = (xlm % TWO_PI);
+        mm = ((xlm - argpm - nodem) % TWO_PI);
+
+        final double sinip = Math.sin(inclm);
+        final double cosip = Math.cos(inclm);
+
+        /* -------------------- long period periodics ------------------ */
+        final double ep = em;
+        final double axnl = ep * Math.cos(argpm);
+        double temp = 1.0 / (am * (1.0 - ep * ep));
+        final double aynl = ep * Math.sin(argpm) + temp * satrec.aycof;
+        final double xl = mm + argpm + nodem + temp * satrec.xlcof * axnl;
+
+        /* --------------------- solve kepler's equation --------------- */
+        final double u = ((xl - nodem) % TWO_PI);
+        double eo1 = u;
+        double tem5 = 9999.9;
+        double sineo1 = 0.0;
+        double coseo1 = 0.0;
+        for (int ktr = 1; (Math.abs(tem5) >= 1.0e-12) && (ktr <= 10); ++ktr) {
+            sineo1 = Math.sin(eo1);
+            coseo1 = Math.cos(eo1);
+            tem5 = 1.0 - coseo1 * axnl - sineo1 * aynl;
+            tem5 = (u - aynl * coseo1 + axnl * sineo1 - eo1) / tem5;
+            if (Math.abs(tem5) >= 0.95) {
+                tem5 = tem5 > 0.0 ? 0.95 : -0.95;
+            }
+            eo1 = eo1 + tem5;
+        }
+
+        /* ------------- short period preliminary quantities ----------- */
+        final double ecose = axnl * coseo1 + aynl * sineo1;
+        final double esine = axnl * sineo1 - aynl * coseo1;
+        final double el2 = axnl * axnl + aynl * aynl;
+        final double pl = am * (1.0 - el2);
+        if (pl < 0.0) {
+            satrec.error = 4;
+            return false;
+        }
+        final double rl = am * (1.0 - ecose);
+        final double rdotl = Math.sqrt(am) * esine / rl;
+        final double rvdotl = Math.sqrt(pl) / rl;
+        final double betal = Math.sqrt(1.0 - el2);
+        temp = esine / (1.0 + betal);
+        final double sinu = am / rl * (sineo1 - aynl - axnl * temp);
+        final double cosu = am / rl * (coseo1 - axnl + aynl * temp);
+        double su = Math.atan2(sinu, cosu);
+        final double sin2u = (cosu + cosu) * sinu;
+        final double cos2u = 1.0 - 2.0 * sinu * sinu;
+        temp = 1.0 / pl;
+        final double temp1 = 0.5 * mJ2 * temp;
+        final double temp2 = temp1 * temp;
+
+        /* -------------- update for short period periodics ------------ */
+        final double mrt = rl * (1.0 - 1.5 * temp2 * betal * satrec.con41) +
+                0.5 * temp1 * satrec.x1mth2 * cos2u;
+        su = su - 0.25 * temp2 * satrec.x7thm1 * sin2u;
+        final double xnode = nodem + 1.5 * temp2 * cosip * sin2u;
+        final double xinc = inclm + 1.5 * temp2 * cosip * sinip * cos2u;
+        final double mvt = rdotl - nm * temp1 * satrec.x1mth2 * sin2u / mXke;
+        final double rvdot = rvdotl + nm * temp1 * (satrec.x1mth2 * cos2u +
+                1.5 * satrec.con41) / mXke;
+
+        /* --------------------- orientation vectors ------------------- */
+        final double sinsu = Math.sin(su);
+        final double cossu = Math.cos(su);
+        final double snod = Math.sin(xnode);
+        final double cnod = Math.cos(xnode);
+        final double sini = Math.sin(xinc);
+        final double cosi = Math.cos(xinc);
+        final double xmx = -snod * cosi;
+        final double xmy = cnod * cosi;
+        final double ux = xmx * sinsu + cnod * cossu;
+        final double uy = xmy * sinsu + snod * cossu;
+        final double uz = sini * sinsu;
+        final double vx = xmx * cossu - cnod * sinsu;
+        final double vy = xmy * cossu - snod * sinsu;
+        final double vz = sini * cossu;
+
+        /* --------- position and velocity (in km and km/sec) ---------- */
+        mR[0] = (mrt * ux) * mRadiusEarthKm;
+        mR[1] = (mrt * uy) * mRadiusEarthKm;
+        mR[2] = (mrt * uz) * mRadiusEarthKm;
+        mV[0] = (mvt * ux + rvdot * vx) * mVkmPerSec;
+        mV[1] = (mvt * uy + rvdot * vy) * mVkmPerSec;
+        mV[2] = (mvt * uz + rvdot * vz) * mVkmPerSec;
+
+        if (mrt < 1.0) {
+            satrec.error = 6;
+            return false;
+        }
+        return true;
+    }
+}
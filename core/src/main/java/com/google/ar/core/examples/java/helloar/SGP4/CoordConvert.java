@@ -134,4 +134,54 @@ public class CoordConvert {
         retCoords[3] = hellp;
         return retCoords;
     }
-}
\ No newline at end of file
+
+    /**
+     * Allocation free version of {@link #ecefPosVector} followed by {@link #ecefToLongLat}, for
+     * batch work. Polar motion is ignored, as everywhere else in the app.
+     *
+     * @param rteme position in the TEME frame, in km
+     * @param gmst greenwich mean sidereal time of the position, from {@link SGP4unit#gstime}
+     * @param out receives geodetic latitude and longitude in radians, and height above the
+     *            ellipsoid in km
+     */
+    public static void temeToLatLonAlt(double[] rteme, double gmst, double[] out) {
+        final double re     = 6378.135;
+        final double eesqrd = 0.006694385000;
+        final double small  = 0.00000001;
+
+        // Rotate about z by -gmst into the earth fixed frame
+        final double cosGmst = Math.cos(gmst);
+        final double sinGmst = Math.sin(gmst);
+        final double x =  cosGmst * rteme[0] + sinGmst * rteme[1];
+        final double y = -sinGmst * rteme[0] + cosGmst * rteme[1];
+        final double z = rteme[2];
+
+        final double temp = Math.sqrt(x * x + y * y);
+        final double lon;
+        if (temp < small) {
+            lon = Math.signum(z) * Math.PI * 0.5;
+        } else {
+            lon = Math.atan2(y, x);
+        }
+
+        double latgd = Math.asin(z / Math.sqrt(temp * temp + z * z));
+        double oldDelta = latgd + 10.0;
+        double c = 0.0;
+        for (int i = 1; Math.abs(oldDelta - latgd) >= small && i < 10; ++i) {
+            oldDelta = latgd;
+            final double sinTemp = Math.sin(latgd);
+            c = re / Math.sqrt(1.0 - eesqrd * sinTemp * sinTemp);
+            latgd = Math.atan((z + c * eesqrd * sinTemp) / temp);
+        }
+
+        final double hellp;
+        if ((Math.PI * 0.5 - Math.abs(latgd)) > (Math.PI / 180.0)) {
+            hellp = (temp / Math.cos(latgd)) - c;
+        } else {
+            hellp = (z / Math.sin(latgd)) - c * (1.0 - eesqrd);
+        }
+        out[0] = latgd;
+        out[1] = lon;
+        out[2] = hellp;
+    }
+}
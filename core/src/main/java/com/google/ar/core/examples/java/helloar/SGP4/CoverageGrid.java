@@ -0,0 +1,303 @@
+package com.google.ar.core.examples.java.helloar.SGP4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Counts how many satellites see each cell of a latitude/longitude grid, i.e. how many footprints
+ * cover the cell center for a given minimum elevation angle.
+ *
+ * A footprint is a spherical cap around the sub-satellite point. It is stamped row by row into
+ * a per-row difference array, one increment at the first covered column and one decrement past
+ * the last, and the counts of a row are its prefix sum. Updates are incremental: a satellite that
+ * moved removes its previous footprint and stamps its new one, one that did not move costs
+ * nothing, and only rows that changed are summed again.
+ *
+ * Rows are split into bands that are updated in parallel. Every band only touches its own rows,
+ * so no synchronization is needed.
+ */
+public class CoverageGrid {
+
+    private static final double EARTH_RADIUS = 6378.135; // km, as in CoordConvert
+    private static final double DEG_TO_RAD = Math.PI / 180.0;
+
+    private final ExecutorService mExecutor;
+    private final boolean mOwnsExecutor;
+    private final int mNumBands;
+
+    private final double mResolution;     // degrees
+    private final double mCosElevation;
+    private final double mMinElevation;   // radians
+    private final int mRows;
+    private final int mColumns;
+
+    private final int[] mDiff;            // mRows x (mColumns + 1)
+    private final int[] mCounts;          // mRows x mColumns
+    private final boolean[] mRowDirty;
+
+    // Footprint currently stamped for each satellite, NaN if none.
+    private double[] mStampedLat = new double[0];
+    private double[] mStampedLon = new double[0];
+    private double[] mStampedAngle = new double[0]; // earth central angle of the cap
+    private int mNumStamped = 0;
+
+    // Footprints requested by the update in progress.
+    private double[] mNextLat = new double[0];
+    private double[] mNextLon = new double[0];
+    private double[] mNextAngle = new double[0];
+    private int mNumNext = 0;
+
+    /**
+     * Creates a grid updated with one worker thread per processor.
+     *
+     * @param resolutionDegrees size of a cell, must divide 180
+     * @param minElevationDegrees elevation above the horizon a satellite must reach to see a cell
+     */
+    public CoverageGrid(double resolutionDegrees, double minElevationDegrees) {
+        this(resolutionDegrees, minElevationDegrees,
+                Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()), true);
+    }
+
+    /**
+     * @param executor runs the row bands. It is not shut down by {@link #shutdown()}.
+     */
+    public CoverageGrid(double resolutionDegrees, double minElevationDegrees,
+                        ExecutorService executor) {
+        this(resolutionDegrees, minElevationDegrees, executor, false);
+    }
+
+    private CoverageGrid(double resolutionDegrees, double minElevationDegrees,
+                         ExecutorService executor, boolean ownsExecutor) {
+        mResolution = resolutionDegrees;
+        mMinElevation = minElevationDegrees * DEG_TO_RAD;
+        mCosElevation = Math.cos(mMinElevation);
+        mRows = (int) Math.round(180.0 / resolutionDegrees);
+        mColumns = 2 * mRows;
+        mDiff = new int[mRows * (mColumns + 1)];
+        mCounts = new int[mRows * mColumns];
+        mRowDirty = new boolean[mRows];
+        mExecutor = executor;
+        mOwnsExecutor = ownsExecutor;
+        mNumBands = Math.min(mRows, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Moves every footprint to the current satellite positions, typically those set by
+     * {@code SGP4track.updateSatellite}. Satellites are identified by their index; indices past
+     * {@code count} that were stamped before are removed.
+     *
+     * @param latitude geodetic latitudes, in radians
+     * @param longitude longitudes, in radians
+     * @param altitude heights above the ellipsoid, in km. NaN or negative values stamp nothing.
+     * @param count number of satellites
+     */
+    public void update(double[] latitude, double[] longitude, double[] altitude, int count) {
+        final int total = Math.max(count, mNumStamped);
+        ensureCapacity(total);
+        for (int i = 0; i < total; ++i) {
+            if (i < count && altitude[i] >= 0.0) {
+                mNextLat[i] = latitude[i];
+                mNextLon[i] = longitude[i];
+                mNextAngle[i] = coverageAngle(altitude[i]);
+            } else {
+                mNextLat[i] = Double.NaN;
+                mNextLon[i] = Double.NaN;
+                mNextAngle[i] = Double.NaN;
+            }
+        }
+        mNumNext = total;
+
+        List<Callable<Void>> tasks = new ArrayList<>(mNumBands);
+        for (int b = 0; b < mNumBands; ++b) {
+            final int firstRow = b * mRows / mNumBands;
+            final int endRow = (b + 1) * mRows / mNumBands;
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    updateRows(firstRow, endRow);
+                    return null;
+                }
+            });
+        }
+        try {
+            for (Future<Void> future : mExecutor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Coverage update interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Coverage update failed", e.getCause());
+        }
+
+        // The stamps now match the requested footprints.
+        System.arraycopy(mNextLat, 0, mStampedLat, 0, total);
+        System.arraycopy(mNextLon, 0, mStampedLon, 0, total);
+        System.arraycopy(mNextAngle, 0, mStampedAngle, 0, total);
+        mNumStamped = count;
+    }
+
+    /** Removes every footprint. */
+    public void clear() {
+        Arrays.fill(mDiff, 0);
+        Arrays.fill(mCounts, 0);
+        mNumStamped = 0;
+    }
+
+    /**
+     * @return the coverage counts, row-major with {@link #getColumns()} cells per row. Row 0
+     *     starts at latitude -90 and column 0 at longitude -180. Must not be modified.
+     */
+    public int[] getCounts() {
+        return mCounts;
+    }
+
+    public int getRows() {
+        return mRows;
+    }
+
+    public int getColumns() {
+        return mColumns;
+    }
+
+    /**
+     * @return the number of satellites seeing the cell that contains the given point
+     */
+    public int getCount(double latitudeDegrees, double longitudeDegrees) {
+        final int row = Math.min(mRows - 1, (int) ((latitudeDegrees + 90.0) / mResolution));
+        final int column = Math.min(mColumns - 1, (int) ((longitudeDegrees + 180.0) / mResolution));
+        return mCounts[row * mColumns + column];
+    }
+
+    /** Stops the worker threads, if they were created by this grid. */
+    public void shutdown() {
+        if (mOwnsExecutor) {
+            mExecutor.shutdown();
+        }
+    }
+
+    /*
+     * Earth central angle from the sub-satellite point to the edge of the footprint, where the
+     * satellite is seen at the minimum elevation.
+     */
+    private double coverageAngle(double altitude) {
+        return Math.acos(EARTH_RADIUS / (EARTH_RADIUS + altitude) * mCosElevation) - mMinElevation;
+    }
+
+    private void updateRows(int firstRow, int endRow) {
+        for (int i = 0; i < mNumNext; ++i) {
+            final boolean wasStamped = i < mNumStamped && !Double.isNaN(mStampedAngle[i]);
+            final boolean isStamped = !Double.isNaN(mNextAngle[i]);
+            if (wasStamped && isStamped && mStampedLat[i] == mNextLat[i]
+                    && mStampedLon[i] == mNextLon[i] && mStampedAngle[i] == mNextAngle[i]) {
+                continue; // Did not move
+            }
+            if (wasStamped) {
+                stamp(mStampedLat[i], mStampedLon[i], mStampedAngle[i], -1, firstRow, endRow);
+            }
+            if (isStamped) {
+                stamp(mNextLat[i], mNextLon[i], mNextAngle[i], 1, firstRow, endRow);
+            }
+        }
+
+        for (int row = firstRow; row < endRow; ++row) {
+            if (!mRowDirty[row]) {
+                continue;
+            }
+            final int diffBase = row * (mColumns + 1);
+            final int countBase = row * mColumns;
+            int sum = 0;
+            for (int c = 0; c < mColumns; ++c) {
+                sum += mDiff[diffBase + c];
+                mCounts[countBase + c] = sum;
+            }
+            mRowDirty[row] = false;
+        }
+    }
+
+    /*
+     * Adds delta to every cell of [firstRow, endRow) whose center lies inside the cap.
+     */
+    private void stamp(double lat, double lon, double angle, int delta, int firstRow, int endRow) {
+        final double resolution = mResolution * DEG_TO_RAD;
+        final int capFirst = (int) Math.ceil((lat - angle + Math.PI / 2) / resolution - 0.5);
+        final int capLast = (int) Math.floor((lat + angle + Math.PI / 2) / resolution - 0.5);
+        final int from = Math.max(firstRow, capFirst);
+        final int to = Math.min(endRow - 1, capLast);
+        if (from > to) {
+            return;
+        }
+
+        final double sinLat = Math.sin(lat);
+        final double cosLat = Math.cos(lat);
+        final double cosAngle = Math.cos(angle);
+        for (int row = from; row <= to; ++row) {
+            final double rowLat = (row + 0.5) * resolution - Math.PI / 2;
+            // A cell center is inside the cap if its angular distance to the sub-satellite point
+            // is at most the cap angle, which bounds the longitude difference on this row.
+            final double denominator = Math.cos(rowLat) * cosLat;
+            final double cosHalfWidth = (cosAngle - Math.sin(rowLat) * sinLat) / denominator;
+            if (cosHalfWidth > 1.0) {
+                continue;
+            }
+            final int diffBase = row * (mColumns + 1);
+            if (cosHalfWidth <= -1.0) {
+                mDiff[diffBase] += delta;
+                mDiff[diffBase + mColumns] -= delta;
+            } else {
+                final double halfWidth = Math.acos(cosHalfWidth);
+                final int first = (int) Math.ceil((lon - halfWidth + Math.PI) / resolution - 0.5);
+                final int last = (int) Math.floor((lon + halfWidth + Math.PI) / resolution - 0.5);
+                if (last - first + 1 >= mColumns) {
+                    mDiff[diffBase] += delta;
+                    mDiff[diffBase + mColumns] -= delta;
+                } else {
+                    stampColumns(diffBase, first, last, delta);
+                }
+            }
+            mRowDirty[row] = true;
+        }
+    }
+
+    /*
+     * Stamps columns [first, last], which may wrap around the antimeridian.
+     */
+    private void stampColumns(int diffBase, int first, int last, int delta) {
+        if (first < 0) {
+            stampRange(diffBase, first + mColumns, mColumns - 1, delta);
+            stampRange(diffBase, 0, last, delta);
+        } else if (last >= mColumns) {
+            stampRange(diffBase, first, mColumns - 1, delta);
+            stampRange(diffBase, 0, last - mColumns, delta);
+        } else {
+            stampRange(diffBase, first, last, delta);
+        }
+    }
+
+    private void stampRange(int diffBase, int first, int last, int delta) {
+        if (first > last) {
+            return;
+        }
+        mDiff[diffBase + first] += delta;
+        mDiff[diffBase + last + 1] -= delta;
+    }
+
+    private void ensureCapacity(int count) {
+        if (mNextLat.length >= count) {
+            return;
+        }
+        final int capacity = Math.max(count, mNextLat.length * 2);
+        mNextLat = new double[capacity];
+        mNextLon = new double[capacity];
+        mNextAngle = new double[capacity];
+        mStampedLat = Arrays.copyOf(mStampedLat, capacity);
+        mStampedLon = Arrays.copyOf(mStampedLon, capacity);
+        mStampedAngle = Arrays.copyOf(mStampedAngle, capacity);
+    }
+}
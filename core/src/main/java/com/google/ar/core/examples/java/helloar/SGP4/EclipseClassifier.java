@@ -0,0 +1,101 @@
+package com.google.ar.core.examples.java.helloar.SGP4;
+
+/**
+ * Classifies satellites as sunlit, in the earth's penumbra or in its umbra, in batches over
+ * packed x,y,z positions.
+ *
+ * The classifier works in any geocentric frame and unit, as long as the sun and the satellites
+ * use the same ones: TEME km with {@link SolarEphemeris#getPosition()}, or the earth fixed
+ * rendering frame in earth radii. Per satellite it only needs a dot product and a square root.
+ */
+public class EclipseClassifier {
+
+    public static final byte SUNLIT   = 0;
+    public static final byte PENUMBRA = 1;
+    public static final byte UMBRA    = 2;
+
+    public enum Model {
+        CYLINDRICAL, // Shadow is a cylinder of earth radius, umbra only
+        CONICAL      // Umbra and penumbra cones from the finite size of the sun
+    }
+
+    private final Model mModel;
+
+    // Unit vector towards the sun.
+    private double mSunX, mSunY, mSunZ;
+    private double mEarthRadius;
+
+    // Cone geometry along the anti-sun axis, see Vallado's shadow algorithm.
+    private double mTanPenumbra, mPenumbraApex;
+    private double mTanUmbra, mUmbraApex;
+
+    public EclipseClassifier(Model model) {
+        mModel = model;
+    }
+
+    /**
+     * Sets the sun for the following batches. Call once per tick.
+     *
+     * @param sunPosition geocentric sun position
+     * @param earthRadius earth radius, in the unit of {@code sunPosition}
+     * @param sunRadius sun radius, in the unit of {@code sunPosition}
+     */
+    public void setSun(double[] sunPosition, double earthRadius, double sunRadius) {
+        final double distance = Math.sqrt(sunPosition[0] * sunPosition[0]
+                + sunPosition[1] * sunPosition[1] + sunPosition[2] * sunPosition[2]);
+        mSunX = sunPosition[0] / distance;
+        mSunY = sunPosition[1] / distance;
+        mSunZ = sunPosition[2] / distance;
+        mEarthRadius = earthRadius;
+
+        final double sinPenumbra = (sunRadius + earthRadius) / distance;
+        final double sinUmbra = (sunRadius - earthRadius) / distance;
+        mTanPenumbra = Math.tan(Math.asin(sinPenumbra));
+        mTanUmbra = Math.tan(Math.asin(sinUmbra));
+        // Distance from the earth center to the cone apex, behind (penumbra) or past (umbra)
+        // the earth along the anti-sun axis.
+        mPenumbraApex = earthRadius / sinPenumbra;
+        mUmbraApex = earthRadius / sinUmbra;
+    }
+
+    /**
+     * @param positions packed x,y,z positions
+     * @param count number of positions
+     * @param states receives {@link #SUNLIT}, {@link #PENUMBRA} or {@link #UMBRA} per position
+     */
+    public void classify(double[] positions, int count, byte[] states) {
+        for (int i = 0, j = 0; i < count; ++i, j += 3) {
+            states[i] = classify(positions[j], positions[j + 1], positions[j + 2]);
+        }
+    }
+
+    /** Same as {@link #classify(double[], int, byte[])}, for single precision positions. */
+    public void classify(float[] positions, int count, byte[] states) {
+        for (int i = 0, j = 0; i < count; ++i, j += 3) {
+            states[i] = classify(positions[j], positions[j + 1], positions[j + 2]);
+        }
+    }
+
+    /**
+     * @return the illumination of a single position
+     */
+    public byte classify(double x, double y, double z) {
+        // Distance behind the earth along the anti-sun axis, and distance from that axis.
+        final double behind = -(x * mSunX + y * mSunY + z * mSunZ);
+        if (behind <= 0.0) {
+            return SUNLIT;
+        }
+        final double axial2 = x * x + y * y + z * z - behind * behind;
+
+        if (mModel == Model.CYLINDRICAL) {
+            return axial2 <= mEarthRadius * mEarthRadius ? UMBRA : SUNLIT;
+        }
+
+        final double penumbra = mTanPenumbra * (mPenumbraApex + behind);
+        if (axial2 > penumbra * penumbra) {
+            return SUNLIT;
+        }
+        final double umbra = mTanUmbra * (mUmbraApex - behind);
+        return umbra > 0.0 && axial2 <= umbra * umbra ? UMBRA : PENUMBRA;
+    }
+}
@@ -0,0 +1,238 @@
+package com.google.ar.core.examples.java.helloar.SGP4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Generates ground tracks, the sub-satellite latitude/longitude polylines, for many satellites
+ * over a common time window. Satellites are propagated in parallel, one chunk of satellites per
+ * task, and the results are packed into primitive arrays ready for a 2D map overlay.
+ *
+ * Tracks are split where they cross the antimeridian. The crossing point is interpolated and
+ * ends one segment at +-180 degrees and starts the next at -+180 degrees, so no segment wraps
+ * across the map.
+ */
+public class GroundTrack {
+
+    private static final double MINUTES_PER_DAY = 1440.0;
+    private static final double RAD_TO_DEG = 180.0 / Math.PI;
+    private static final double TWO_PI = 2.0 * Math.PI;
+
+    // Satellites per task. Small enough to balance the load, large enough to amortize the task.
+    private static final int CHUNK_SIZE = 32;
+
+    /**
+     * Packed ground tracks. Points are (longitude, latitude) pairs in degrees. Segment {@code s}
+     * covers points [{@code segmentOffsets[s]}, {@code segmentOffsets[s + 1]}), and satellite
+     * {@code i} owns segments [{@code satelliteSegments[i]}, {@code satelliteSegments[i + 1]}).
+     * A satellite that failed to propagate owns no segments.
+     */
+    public static class Tracks {
+        public float[] lonLat;
+        public int numPoints;
+        public int[] segmentOffsets;
+        public int numSegments;
+        public int[] satelliteSegments;
+    }
+
+    private final ExecutorService mExecutor;
+    private final boolean mOwnsExecutor;
+
+    /** Creates a generator with one worker thread per processor. */
+    public GroundTrack() {
+        this(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()), true);
+    }
+
+    /**
+     * @param executor runs the propagation tasks. It is not shut down by {@link #shutdown()}.
+     */
+    public GroundTrack(ExecutorService executor) {
+        this(executor, false);
+    }
+
+    private GroundTrack(ExecutorService executor, boolean ownsExecutor) {
+        mExecutor = executor;
+        mOwnsExecutor = ownsExecutor;
+    }
+
+    /**
+     * Computes ground tracks for a set of satellites. Satellites must not be propagated by
+     * another thread during the call, since SGP4 updates state in {@link SGP4SatData}.
+     *
+     * @param sats initialized satellites
+     * @param count number of satellites in {@code sats} to use
+     * @param startJD julian date of the first sample
+     * @param endJD julian date of the last sample
+     * @param samples number of samples per satellite, at least 2
+     * @return the packed tracks
+     */
+    public Tracks compute(final SGP4SatData[] sats, int count, double startJD, double endJD,
+                          final int samples) {
+        if (samples < 2) {
+            throw new IllegalArgumentException("A ground track needs at least 2 samples");
+        }
+        // Sidereal time only depends on the sample, so it is shared by every satellite.
+        final double[] sampleJD = new double[samples];
+        final double[] gmst = new double[samples];
+        for (int k = 0; k < samples; ++k) {
+            sampleJD[k] = startJD + (endJD - startJD) * k / (samples - 1);
+            gmst[k] = SGP4unit.gstime(sampleJD[k]);
+        }
+
+        List<Future<Chunk>> futures = new ArrayList<>();
+        for (int first = 0; first < count; first += CHUNK_SIZE) {
+            final int from = first;
+            final int to = Math.min(count, first + CHUNK_SIZE);
+            futures.add(mExecutor.submit(new Callable<Chunk>() {
+                @Override
+                public Chunk call() {
+                    Chunk chunk = new Chunk(to - from, samples);
+                    for (int i = from; i < to; ++i) {
+                        chunk.addTrack(sats[i], sampleJD, gmst);
+                    }
+                    return chunk;
+                }
+            }));
+        }
+
+        List<Chunk> chunks = new ArrayList<>(futures.size());
+        try {
+            for (Future<Chunk> future : futures) {
+                chunks.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Ground track generation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Ground track generation failed", e.getCause());
+        }
+        return pack(chunks, count);
+    }
+
+    /** Stops the worker threads, if they were created by this generator. */
+    public void shutdown() {
+        if (mOwnsExecutor) {
+            mExecutor.shutdown();
+        }
+    }
+
+    /*
+     * Concatenates the chunks in order, rebasing their offsets.
+     */
+    private static Tracks pack(List<Chunk> chunks, int count) {
+        int numPoints = 0;
+        int numSegments = 0;
+        for (Chunk chunk : chunks) {
+            numPoints += chunk.mNumPoints;
+            numSegments += chunk.mNumSegments;
+        }
+
+        Tracks tracks = new Tracks();
+        tracks.lonLat = new float[numPoints * 2];
+        tracks.numPoints = numPoints;
+        tracks.segmentOffsets = new int[numSegments + 1];
+        tracks.numSegments = numSegments;
+        tracks.satelliteSegments = new int[count + 1];
+
+        int point = 0;
+        int segment = 0;
+        int sat = 0;
+        for (Chunk chunk : chunks) {
+            System.arraycopy(chunk.mLonLat, 0, tracks.lonLat, point * 2, chunk.mNumPoints * 2);
+            for (int s = 0; s < chunk.mNumSegments; ++s) {
+                tracks.segmentOffsets[segment + s] = point + chunk.mSegmentOffsets[s];
+            }
+            for (int i = 0; i < chunk.mNumSatellites; ++i) {
+                tracks.satelliteSegments[sat++] = segment + chunk.mSatelliteSegments[i];
+            }
+            point += chunk.mNumPoints;
+            segment += chunk.mNumSegments;
+        }
+        tracks.segmentOffsets[numSegments] = point;
+        tracks.satelliteSegments[count] = segment;
+        return tracks;
+    }
+
+    /*
+     * Output of one task, with offsets relative to the chunk.
+     */
+    private static class Chunk {
+        private float[] mLonLat;
+        private int mNumPoints = 0;
+        private int[] mSegmentOffsets;
+        private int mNumSegments = 0;
+        private final int[] mSatelliteSegments;
+        private int mNumSatellites = 0;
+
+        private final double[] mPos = new double[3];
+        private final double[] mVel = new double[3];
+        private final double[] mLatLonAlt = new double[3];
+
+        Chunk(int numSatellites, int samples) {
+            mLonLat = new float[numSatellites * samples * 2];
+            mSegmentOffsets = new int[numSatellites * 2];
+            mSatelliteSegments = new int[numSatellites];
+        }
+
+        void addTrack(SGP4SatData sat, double[] sampleJD, double[] gmst) {
+            mSatelliteSegments[mNumSatellites++] = mNumSegments;
+
+            double prevLon = 0.0;
+            double prevLat = 0.0;
+            for (int k = 0; k < sampleJD.length; ++k) {
+                final double minutesSinceEpoch = (sampleJD[k] - sat.jdsatepoch) * MINUTES_PER_DAY;
+                if (!SGP4unit.sgp4(sat, minutesSinceEpoch, mPos, mVel)) {
+                    break; // Decayed or invalid, the track ends here
+                }
+                CoordConvert.temeToLatLonAlt(mPos, gmst[k], mLatLonAlt);
+                final double lat = mLatLonAlt[0];
+                final double lon = mLatLonAlt[1];
+
+                if (k == 0) {
+                    startSegment();
+                } else if (Math.abs(lon - prevLon) > Math.PI) {
+                    // Crossed the antimeridian. Unwrap the new longitude next to the previous
+                    // one and interpolate the latitude where the track meets the edge.
+                    final double edge = prevLon > 0.0 ? Math.PI : -Math.PI;
+                    final double unwrapped = prevLon > 0.0 ? lon + TWO_PI : lon - TWO_PI;
+                    final double t = (edge - prevLon) / (unwrapped - prevLon);
+                    final double edgeLat = prevLat + t * (lat - prevLat);
+                    addPoint(edge, edgeLat);
+                    startSegment();
+                    addPoint(-edge, edgeLat);
+                }
+                addPoint(lon, lat);
+                prevLon = lon;
+                prevLat = lat;
+            }
+
+            // A track that failed before its second sample has nothing to draw.
+            if (mNumSegments > mSatelliteSegments[mNumSatellites - 1]
+                    && mNumPoints - mSegmentOffsets[mNumSegments - 1] < 2) {
+                mNumPoints = mSegmentOffsets[--mNumSegments];
+            }
+        }
+
+        private void startSegment() {
+            if (mNumSegments == mSegmentOffsets.length) {
+                mSegmentOffsets = Arrays.copyOf(mSegmentOffsets, mNumSegments * 2);
+            }
+            mSegmentOffsets[mNumSegments++] = mNumPoints;
+        }
+
+        private void addPoint(double lon, double lat) {
+            if (mNumPoints * 2 == mLonLat.length) {
+                mLonLat = Arrays.copyOf(mLonLat, mLonLat.length * 2);
+            }
+            mLonLat[mNumPoints * 2]     = (float) (lon * RAD_TO_DEG);
+            mLonLat[mNumPoints * 2 + 1] = (float) (lat * RAD_TO_DEG);
+            mNumPoints++;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.google.ar.core.examples.java.helloar.SGP4;
+
+import com.google.ar.core.examples.java.helloar.Point3D;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Samples a parametric curve into a polyline whose chords stay within a distance tolerance of
+ * the curve. The parameter range starts as {@link #MIN_SEGMENTS} equal segments, and a segment is
+ * halved while the curve point at its middle is further than the tolerance from its chord. Flat
+ * stretches, like most of a circular orbit, get few vertices; tight bends, like the perigee of an
+ * eccentric orbit, get many.
+ */
+public class OrbitSampler {
+
+    /** A curve in render space, e.g. an orbit as a function of time. */
+    public interface Curve {
+        /**
+         * @param t curve parameter
+         * @param out receives the x,y,z point at {@code t}
+         */
+        void evaluate(double t, double[] out);
+    }
+
+    // Initial segments, enough that the midpoint test cannot miss a whole revolution.
+    public static final int MIN_SEGMENTS = 8;
+    // Each initial segment is split at most 2^MAX_DEPTH times.
+    private static final int MAX_DEPTH = 10;
+
+    private final Curve mCurve;
+    private final double mTolerance2;
+    private final List<Point3D> mPoints = new ArrayList<>();
+
+    private OrbitSampler(Curve curve, double tolerance) {
+        mCurve = curve;
+        mTolerance2 = tolerance * tolerance;
+    }
+
+    /**
+     * @param curve the curve to sample
+     * @param t0 parameter of the first point
+     * @param t1 parameter of the last point
+     * @param tolerance maximum distance between the polyline and the curve, in the units of
+     *                  the curve
+     * @return the polyline, from {@code t0} to {@code t1} inclusive
+     */
+    public static List<Point3D> sample(Curve curve, double t0, double t1, double tolerance) {
+        if (!(tolerance > 0.0)) {
+            throw new IllegalArgumentException("Tolerance must be positive: " + tolerance);
+        }
+        final OrbitSampler sampler = new OrbitSampler(curve, tolerance);
+        double[] a = new double[3];
+        curve.evaluate(t0, a);
+        sampler.mPoints.add(new Point3D(a[0], a[1], a[2]));
+        for (int k = 1; k <= MIN_SEGMENTS; ++k) {
+            final double ta = t0 + (t1 - t0) * (k - 1) / MIN_SEGMENTS;
+            final double tb = t0 + (t1 - t0) * k / MIN_SEGMENTS;
+            final double[] b = new double[3];
+            curve.evaluate(tb, b);
+            sampler.subdivide(ta, a, tb, b, 0);
+            a = b;
+        }
+        return sampler.mPoints;
+    }
+
+    // Emits the points after a, up to and including b.
+    private void subdivide(double ta, double[] a, double tb, double[] b, int depth) {
+        if (depth < MAX_DEPTH) {
+            final double tm = 0.5 * (ta + tb);
+            final double[] m = new double[3];
+            mCurve.evaluate(tm, m);
+            if (distanceToChord2(m, a, b) > mTolerance2) {
+                subdivide(ta, a, tm, m, depth + 1);
+                subdivide(tm, m, tb, b, depth + 1);
+                return;
+            }
+        }
+        mPoints.add(new Point3D(b[0], b[1], b[2]));
+    }
+
+    // Squared distance from p to the segment ab.
+    private static double distanceToChord2(double[] p, double[] a, double[] b) {
+        final double abx = b[0] - a[0], aby = b[1] - a[1], abz = b[2] - a[2];
+        final double apx = p[0] - a[0], apy = p[1] - a[1], apz = p[2] - a[2];
+        final double length2 = abx * abx + aby * aby + abz * abz;
+        double s = length2 > 0.0 ? (apx * abx + apy * aby + apz * abz) / length2 : 0.0;
+        s = Math.max(0.0, Math.min(1.0, s));
+        final double dx = apx - s * abx, dy = apy - s * aby, dz = apz - s * abz;
+        return dx * dx + dy * dy + dz * dz;
+    }
+}
@@ -0,0 +1,211 @@
+package com.google.ar.core.examples.java.helloar.SGP4;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the passes of a satellite over a ground observer: the intervals during which it is
+ * above a minimum elevation.
+ *
+ * The elevation is sampled at a coarse step, shorter than any pass, and each crossing is then
+ * refined by bisection. The culmination is refined by a ternary search around the highest
+ * sample. Positions use the same earth model and rotation as {@link CoordConvert}.
+ *
+ * Prediction propagates the satellite, so the {@link SGP4SatData} must not be used by another
+ * thread at the same time. A predictor is cheap; use one per thread.
+ */
+public class PassPredictor {
+
+    private static final double MINUTES_PER_DAY = 1440.0;
+    private static final double SECONDS_PER_DAY = 86400.0;
+
+    // Earth model of CoordConvert.
+    private static final double RE     = 6378.135;
+    private static final double EESQRD = 0.006694385000;
+
+    // Near earth passes last at least a few minutes, deep space ones hours.
+    private static final double NEAR_EARTH_STEP = 30.0 / SECONDS_PER_DAY;
+    private static final double DEEP_SPACE_STEP = 300.0 / SECONDS_PER_DAY;
+    // Refined times are good to about a second.
+    private static final double TIME_TOLERANCE = 1.0 / SECONDS_PER_DAY;
+
+    public static class Pass {
+        public double riseJulianDate;        // Start of the window if already above
+        public double culminationJulianDate;
+        public double setJulianDate;         // End of the window if still above
+        public double maxElevation;          // radians
+        public double riseAzimuth;           // radians, clockwise from north
+        public double setAzimuth;
+    }
+
+    // Observer position and local east/north/up axes, earth fixed.
+    private final double mX, mY, mZ;
+    private final double mEastX, mEastY;
+    private final double mNorthX, mNorthY, mNorthZ;
+    private final double mUpX, mUpY, mUpZ;
+
+    private final double[] mR = new double[3];
+    private final double[] mV = new double[3];
+    private final double[] mLook = new double[2];
+
+    /**
+     * @param latitude geodetic latitude of the observer, in radians
+     * @param longitude longitude of the observer, in radians
+     * @param altitude height of the observer above the ellipsoid, in km
+     */
+    public PassPredictor(double latitude, double longitude, double altitude) {
+        final double sinLat = Math.sin(latitude);
+        final double cosLat = Math.cos(latitude);
+        final double sinLon = Math.sin(longitude);
+        final double cosLon = Math.cos(longitude);
+        final double c = RE / Math.sqrt(1.0 - EESQRD * sinLat * sinLat);
+        mX = (c + altitude) * cosLat * cosLon;
+        mY = (c + altitude) * cosLat * sinLon;
+        mZ = (c * (1.0 - EESQRD) + altitude) * sinLat;
+        mEastX = -sinLon;
+        mEastY = cosLon;
+        mNorthX = -sinLat * cosLon;
+        mNorthY = -sinLat * sinLon;
+        mNorthZ = cosLat;
+        mUpX = cosLat * cosLon;
+        mUpY = cosLat * sinLon;
+        mUpZ = sinLat;
+    }
+
+    /**
+     * @param sat initialized satellite, propagated by this call
+     * @param startJD julian date of the start of the window
+     * @param endJD julian date of the end of the window
+     * @param minElevation elevation a pass has to exceed, in radians
+     * @return the passes overlapping the window, in time order. Empty if the satellite fails to
+     *     propagate.
+     */
+    public List<Pass> predict(SGP4SatData sat, double startJD, double endJD,
+                              double minElevation) {
+        final List<Pass> passes = new ArrayList<>();
+        final double step = sat.method == 'd' ? DEEP_SPACE_STEP : NEAR_EARTH_STEP;
+
+        double prevJD = startJD;
+        double prevElevation = elevation(sat, prevJD);
+        if (Double.isNaN(prevElevation)) {
+            return passes;
+        }
+        Pass pass = null;
+        double bestJD = 0.0;
+        double bestElevation = 0.0;
+        if (prevElevation > minElevation) {
+            pass = startPass(sat, startJD);
+            bestJD = startJD;
+            bestElevation = prevElevation;
+        }
+
+        while (prevJD < endJD) {
+            final double jd = Math.min(prevJD + step, endJD);
+            final double elevation = elevation(sat, jd);
+            if (Double.isNaN(elevation)) {
+                break;
+            }
+            if (pass == null && elevation > minElevation) {
+                pass = startPass(sat, crossing(sat, prevJD, jd, minElevation));
+                bestJD = jd;
+                bestElevation = elevation;
+            } else if (pass != null) {
+                if (elevation > bestElevation) {
+                    bestJD = jd;
+                    bestElevation = elevation;
+                }
+                if (elevation <= minElevation) {
+                    endPass(sat, pass, crossing(sat, prevJD, jd, minElevation), bestJD, step);
+                    passes.add(pass);
+                    pass = null;
+                }
+            }
+            prevJD = jd;
+        }
+        if (pass != null) {
+            endPass(sat, pass, endJD, bestJD, step);
+            passes.add(pass);
+        }
+        return passes;
+    }
+
+    /**
+     * @return the elevation of the satellite in radians, or NaN if it fails to propagate
+     */
+    public double elevation(SGP4SatData sat, double julianDate) {
+        return look(sat, julianDate) ? mLook[0] : Double.NaN;
+    }
+
+    private Pass startPass(SGP4SatData sat, double riseJD) {
+        final Pass pass = new Pass();
+        pass.riseJulianDate = riseJD;
+        look(sat, riseJD);
+        pass.riseAzimuth = mLook[1];
+        return pass;
+    }
+
+    private void endPass(SGP4SatData sat, Pass pass, double setJD, double bestJD, double step) {
+        pass.setJulianDate = setJD;
+        look(sat, setJD);
+        pass.setAzimuth = mLook[1];
+
+        // The elevation is unimodal over a pass, so a ternary search around the best sample
+        // finds the culmination.
+        double lo = Math.max(bestJD - step, pass.riseJulianDate);
+        double hi = Math.min(bestJD + step, pass.setJulianDate);
+        while (hi - lo > TIME_TOLERANCE) {
+            final double m1 = lo + (hi - lo) / 3.0;
+            final double m2 = hi - (hi - lo) / 3.0;
+            if (elevation(sat, m1) < elevation(sat, m2)) {
+                lo = m1;
+            } else {
+                hi = m2;
+            }
+        }
+        pass.culminationJulianDate = 0.5 * (lo + hi);
+        pass.maxElevation = elevation(sat, pass.culminationJulianDate);
+    }
+
+    // Time in (below, above] where the elevation crosses the threshold, either direction.
+    private double crossing(SGP4SatData sat, double jd0, double jd1, double minElevation) {
+        final boolean rising = elevation(sat, jd0) <= minElevation;
+        while (jd1 - jd0 > TIME_TOLERANCE) {
+            final double mid = 0.5 * (jd0 + jd1);
+            if ((elevation(sat, mid) > minElevation) == rising) {
+                jd1 = mid;
+            } else {
+                jd0 = mid;
+            }
+        }
+        return rising ? jd1 : jd0;
+    }
+
+    // Elevation and azimuth of the satellite into mLook.
+    private boolean look(SGP4SatData sat, double julianDate) {
+        if (!SGP4unit.sgp4(sat, (julianDate - sat.jdsatepoch) * MINUTES_PER_DAY, mR, mV)) {
+            return false;
+        }
+        // TEME to earth fixed, as in CoordConvert.temeToLatLonAlt
+        final double gmst = SGP4unit.gstime(julianDate);
+        final double cosGmst = Math.cos(gmst);
+        final double sinGmst = Math.sin(gmst);
+        final double x =  cosGmst * mR[0] + sinGmst * mR[1];
+        final double y = -sinGmst * mR[0] + cosGmst * mR[1];
+        final double z = mR[2];
+
+        final double dx = x - mX;
+        final double dy = y - mY;
+        final double dz = z - mZ;
+        final double range = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        final double east = dx * mEastX + dy * mEastY;
+        final double north = dx * mNorthX + dy * mNorthY + dz * mNorthZ;
+        final double up = dx * mUpX + dy * mUpY + dz * mUpZ;
+        mLook[0] = Math.asin(up / range);
+        double azimuth = Math.atan2(east, north);
+        if (azimuth < 0.0) {
+            azimuth += 2.0 * Math.PI;
+        }
+        mLook[1] = azimuth;
+        return true;
+    }
+}
@@ -0,0 +1,221 @@
+package com.google.ar.core.examples.java.helloar.SGP4;
+
+/**
+ * Reduced precision SGP4 for positions that only place a dot on screen. Compared to
+ * {@link SGP4unit#sgp4} it
+ * <ul>
+ *     <li>evaluates the periodic terms in float arithmetic, with polynomial sin/cos,</li>
+ *     <li>solves Kepler's equation to 1e-6 instead of 1e-12,</li>
+ *     <li>drops the periodic drag corrections (delm and the cc5 term) of low drag objects,
+ *     {@code |bstar| < 1e-4}, where they move the position by at most a few tens of metres. With
+ *     more drag they reach kilometres and flip the decay status near reentry, so they are
+ *     kept,</li>
+ *     <li>replaces the atan2 of the argument of latitude by a small angle rotation,</li>
+ *     <li>does not compute the velocity.</li>
+ * </ul>
+ * Secular terms are still accumulated in double, since they grow with time since epoch. Deep
+ * space objects use the full model, whose lunar-solar periodics reach tens of kilometres.
+ *
+ * Use {@link RenderPropagatorValidation} to measure the error against the full model.
+ */
+public class RenderPropagator {
+
+    private static final double TWO_PI = 2.0 * Math.PI;
+    private static final double X2O3 = 2.0 / 3.0;
+
+    private static final float PI_F = (float) Math.PI;
+    private static final float HALF_PI_F = (float) (Math.PI / 2.0);
+    private static final float TWO_PI_F = (float) TWO_PI;
+    private static final float INV_TWO_PI_F = (float) (1.0 / TWO_PI);
+
+    private static final float KEPLER_TOLERANCE = 1.0e-6f;
+
+    // Periodic drag corrections are kept from this |bstar| on, in 1/earth radii. Measured with
+    // RenderValidationTool on 5000 near earth objects, perigees 150-600 km, over 3 days after
+    // epoch: max error 0.032 km without the corrections below the threshold, 0.020 km with them
+    // above it, where dropping them reached 3.6 km and status mismatches. Propagating days
+    // before the epoch of objects with |bstar| >= 1e-2, the error still reaches 10 km.
+    private static final double DRAG_BSTAR_THRESHOLD = 1.0e-4;
+
+    // Gravity constants of the last satellite, refreshed when the model changes.
+    private SGP4unit.Gravconsttype mGravConstType;
+    private double mXke;
+    private float mJ2;
+    private float mRadiusEarthKm;
+
+    private final double[] mVelocity = new double[3];
+
+    /**
+     * Propagates a satellite.
+     *
+     * @param satrec initialized satellite
+     * @param tsince minutes since the epoch of the satellite
+     * @param r receives the TEME position in km
+     * @return false on a propagation error, see {@link SGP4SatData#error}
+     */
+    public boolean propagate(SGP4SatData satrec, double tsince, double[] r) {
+        if (satrec.method == 'd') {
+            return SGP4unit.sgp4(satrec, tsince, r, mVelocity);
+        }
+        if (satrec.gravconsttype != mGravConstType) {
+            final double[] constants = SGP4unit.getgravconst(satrec.gravconsttype);
+            mGravConstType = satrec.gravconsttype;
+            mRadiusEarthKm = (float) constants[2];
+            mXke = constants[3];
+            mJ2 = (float) constants[4];
+        }
+        satrec.t = tsince;
+        satrec.error = 0;
+
+        /* ------- secular gravity and atmospheric drag, in double ----- */
+        final double t = tsince;
+        final double t2 = t * t;
+        double mm = satrec.mo + satrec.mdot * t;
+        double argpm = satrec.argpo + satrec.argpdot * t;
+        double nodem = satrec.nodeo + satrec.nodedot * t + satrec.nodecf * t2;
+        double tempa = 1.0 - satrec.cc1 * t;
+        double tempe = satrec.bstar * satrec.cc4 * t;
+        double templ = satrec.t2cof * t2;
+        if (satrec.isimp != 1) {
+            final double t3 = t2 * t;
+            final double t4 = t3 * t;
+            final boolean drag = Math.abs(satrec.bstar) >= DRAG_BSTAR_THRESHOLD;
+            double temp = satrec.omgcof * t; // delomg
+            if (drag) {
+                final double c = 1.0 + satrec.eta * Math.cos(mm);
+                temp = temp + satrec.xmcof * (c * c * c - satrec.delmo); // + delm
+            }
+            mm = mm + temp;
+            argpm = argpm - temp;
+            tempa = tempa - satrec.d2 * t2 - satrec.d3 * t3 - satrec.d4 * t4;
+            if (drag) {
+                tempe = tempe + satrec.bstar * satrec.cc5 * (Math.sin(mm) - satrec.sinmao);
+            }
+            templ = templ + satrec.t3cof * t3 + t4 * (satrec.t4cof + t * satrec.t5cof);
+        }
+
+        if (satrec.no <= 0.0) {
+            satrec.error = 2;
+            return false;
+        }
+        final double am = Math.pow((mXke / satrec.no), X2O3) * tempa * tempa;
+        double em = satrec.ecco - tempe;
+        if ((em >= 1.0) || (em < -0.001)) {
+            satrec.error = 1;
+            return false;
+        }
+        if (em < 1.0e-6) {
+            em = 1.0e-6;
+        }
+        mm = mm + satrec.no * templ;
+
+        // Reduce the angles while still in double, the rest fits a float.
+        final float argp = (float) (argpm % TWO_PI);
+        final float node = (float) (nodem % TWO_PI);
+        final float m = (float) (mm % TWO_PI);
+        final float a = (float) am;
+        final float e = (float) em;
+        final float incl = (float) satrec.inclo;
+
+        final float sinip = sin(incl);
+        final float cosip = cos(incl);
+
+        /* -------------------- long period periodics ------------------ */
+        final float axnl = e * cos(argp);
+        float temp = 1.0f / (a * (1.0f - e * e));
+        final float aynl = e * sin(argp) + temp * (float) satrec.aycof;
+        final float xl = m + argp + temp * (float) satrec.xlcof * axnl;
+
+        /* --------------------- solve kepler's equation --------------- */
+        final float u = xl % TWO_PI_F;
+        float eo1 = u;
+        float tem5 = 1.0f;
+        float sineo1 = 0.0f;
+        float coseo1 = 0.0f;
+        for (int ktr = 1; (Math.abs(tem5) >= KEPLER_TOLERANCE) && (ktr <= 10); ++ktr) {
+            sineo1 = sin(eo1);
+            coseo1 = cos(eo1);
+            tem5 = 1.0f - coseo1 * axnl - sineo1 * aynl;
+            tem5 = (u - aynl * coseo1 + axnl * sineo1 - eo1) / tem5;
+            if (Math.abs(tem5) >= 0.95f) {
+                tem5 = tem5 > 0.0f ? 0.95f : -0.95f;
+            }
+            eo1 = eo1 + tem5;
+        }
+
+        /* ------------- short period preliminary quantities ----------- */
+        final float ecose = axnl * coseo1 + aynl * sineo1;
+        final float esine = axnl * sineo1 - aynl * coseo1;
+        final float el2 = axnl * axnl + aynl * aynl;
+        final float pl = a * (1.0f - el2);
+        if (pl < 0.0f) {
+            satrec.error = 4;
+            return false;
+        }
+        final float rl = a * (1.0f - ecose);
+        final float betal = (float) Math.sqrt(1.0f - el2);
+        temp = esine / (1.0f + betal);
+        final float sinu = a / rl * (sineo1 - aynl - axnl * temp);
+        final float cosu = a / rl * (coseo1 - axnl + aynl * temp);
+        final float sin2u = (cosu + cosu) * sinu;
+        final float cos2u = 1.0f - 2.0f * sinu * sinu;
+        temp = 1.0f / pl;
+        final float temp1 = 0.5f * mJ2 * temp;
+        final float temp2 = temp1 * temp;
+
+        /* -------------- update for short period periodics ------------ */
+        final float x1mth2 = (float) satrec.x1mth2;
+        final float mrt = rl * (1.0f - 1.5f * temp2 * betal * (float) satrec.con41) +
+                0.5f * temp1 * x1mth2 * cos2u;
+        // su = atan2(sinu, cosu) - delta, with delta below 1e-3 rad
+        final float delta = 0.25f * temp2 * (float) satrec.x7thm1 * sin2u;
+        final float cosDelta = 1.0f - 0.5f * delta * delta;
+        final float sinsu = sinu * cosDelta - cosu * delta;
+        final float cossu = cosu * cosDelta + sinu * delta;
+        final float xnode = node + 1.5f * temp2 * cosip * sin2u;
+        final float xinc = incl + 1.5f * temp2 * cosip * sinip * cos2u;
+
+        /* --------------------- orientation vectors ------------------- */
+        final float snod = sin(xnode);
+        final float cnod = cos(xnode);
+        final float sini = sin(xinc);
+        final float cosi = cos(xinc);
+        final float xmx = -snod * cosi;
+        final float xmy = cnod * cosi;
+        final float ux = xmx * sinsu + cnod * cossu;
+        final float uy = xmy * sinsu + snod * cossu;
+        final float uz = sini * sinsu;
+
+        /* --------------------- position (in km) ---------------------- */
+        r[0] = (mrt * ux) * mRadiusEarthKm;
+        r[1] = (mrt * uy) * mRadiusEarthKm;
+        r[2] = (mrt * uz) * mRadiusEarthKm;
+
+        if (mrt < 1.0f) {
+            satrec.error = 6;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Polynomial sine, absolute error below 1e-7 over the reduced range.
+     */
+    static float sin(float x) {
+        // Reduce to [-pi, pi], then to [-pi/2, pi/2] with sin(pi - x) = sin(x).
+        x = x - TWO_PI_F * Math.round(x * INV_TWO_PI_F);
+        if (x > HALF_PI_F) {
+            x = PI_F - x;
+        } else if (x < -HALF_PI_F) {
+            x = -PI_F - x;
+        }
+        final float x2 = x * x;
+        // Taylor series to x^11, the first omitted term is below 6e-8 at pi/2.
+        return x * (1.0f + x2 * (-1.0f / 6.0f + x2 * (1.0f / 120.0f + x2 * (-1.0f / 5040.0f
+                + x2 * (1.0f / 362880.0f + x2 * (-1.0f / 39916800.0f))))));
+    }
+
+    static float cos(float x) {
+        return sin(x + HALF_PI_F);
+    }
+}
@@ -0,0 +1,89 @@
+package com.google.ar.core.examples.java.helloar.SGP4;
+
+import java.util.Locale;
+
+/**
+ * Measures the position error of {@link RenderPropagator} against {@link SGP4unit#sgp4} across a
+ * catalog and a time window.
+ */
+public class RenderPropagatorValidation {
+
+    private static final double MINUTES_PER_DAY = 1440.0;
+
+    /** Error statistics, in km. */
+    public static class Report {
+        public int satellites;     // satellites compared
+        public int samples;        // positions compared
+        public int mismatches;     // samples where only one of the models failed
+        public double maxError;
+        public double meanError;
+        public int worstSatnum;    // NORAD number of the satellite with the max error
+        public double worstMinutes; // minutes since its epoch
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "render propagation error over %d satellites, %d samples: max %.3f km "
+                            + "(satnum %d at %.1f min), mean %.3f km, %d status mismatches",
+                    satellites, samples, maxError, worstSatnum, worstMinutes, meanError,
+                    mismatches);
+        }
+    }
+
+    /**
+     * Compares both models at evenly spaced times. Satellites are propagated in place, the full
+     * model last, so their state is the same as after a normal propagation. The samples of a
+     * satellite stop at the first one where the full model reports decay: past reentry SGP4
+     * may report valid but meaningless positions again, thousands of km apart between models.
+     *
+     * @param sats initialized satellites
+     * @param count number of satellites in {@code sats} to compare
+     * @param startJD julian date of the first sample
+     * @param endJD julian date of the last sample
+     * @param samplesPerSatellite number of times to compare per satellite
+     * @return the error statistics
+     */
+    public static Report validate(SGP4SatData[] sats, int count, double startJD, double endJD,
+                                  int samplesPerSatellite) {
+        final RenderPropagator fast = new RenderPropagator();
+        final double[] rFast = new double[3];
+        final double[] rFull = new double[3];
+        final double[] vFull = new double[3];
+
+        Report report = new Report();
+        report.satellites = count;
+        double sum = 0.0;
+        for (int i = 0; i < count; ++i) {
+            final SGP4SatData sat = sats[i];
+            for (int k = 0; k < samplesPerSatellite; ++k) {
+                final double jd = samplesPerSatellite == 1 ? startJD
+                        : startJD + (endJD - startJD) * k / (samplesPerSatellite - 1);
+                final double minutes = (jd - sat.jdsatepoch) * MINUTES_PER_DAY;
+                final boolean fastOk = fast.propagate(sat, minutes, rFast);
+                final boolean fullOk = SGP4unit.sgp4(sat, minutes, rFull, vFull);
+                if (fastOk != fullOk) {
+                    report.mismatches++;
+                }
+                if (!fullOk && sat.error == 6) {
+                    break; // Decayed
+                }
+                if (!fastOk || !fullOk) {
+                    continue;
+                }
+                final double dx = rFast[0] - rFull[0];
+                final double dy = rFast[1] - rFull[1];
+                final double dz = rFast[2] - rFull[2];
+                final double error = Math.sqrt(dx * dx + dy * dy + dz * dz);
+                sum += error;
+                report.samples++;
+                if (error > report.maxError) {
+                    report.maxError = error;
+                    report.worstSatnum = sat.satnum;
+                    report.worstMinutes = minutes;
+                }
+            }
+        }
+        report.meanError = report.samples > 0 ? sum / report.samples : 0.0;
+        return report;
+    }
+}
@@ -35,9 +35,16 @@ public class SGP4SatData
             xgh3   , xgh4   , xh2    , xh3      , xi2    , xi3     , xl2   , xl3   ,
             xl4    , xlamo  , zmol   , zmos     , atime  , xli     , xni;
 
+    /* Deep space resonance checkpoints - integrator state (xli, xni pairs) every
+       SGP4unit.DS_CHECKPOINT_STEPS steps after (Fwd) or before (Back) epoch, see dspace */
+    public double[] dsCheckpointsFwd = new double[0], dsCheckpointsBack = new double[0];
+    public int    dsCheckpointCountFwd, dsCheckpointCountBack;
+
     public double a      , altp   , alta   , epochdays, jdsatepoch       , nddot , ndot  ,
             bstar  , rcse   , inclo  , nodeo    , ecco             , argpo , mo    ,
             no;
+    // mean motion as passed to sgp4init, before initl replaces no with the un-kozai'd value
+    public double no_kozai;
 
     // Extra Data added by SEG - from TLE and a name variable (and save the lines for future use)
     public String name="", line1="", line2="";
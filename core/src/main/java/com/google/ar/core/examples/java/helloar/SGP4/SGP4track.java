@@ -0,0 +1,399 @@
+package com.google.ar.core.examples.java.helloar.SGP4;
+
+/**
+ * Created by TY on 1/1/2018.
+ */
+
+import com.google.ar.core.examples.java.helloar.Kepler;
+import com.google.ar.core.examples.java.helloar.Point3D;
+import com.google.ar.core.examples.java.helloar.Satellite;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+public class SGP4track {
+
+    private static final Logger LOG = Logger.getLogger(SGP4track.class.getSimpleName());
+
+    /** Radius of the rendered earth in km. Rendering positions are in multiples of it. */
+    public static final float EARTH_RADIUS = 6371.0f;
+
+    private static final double TWO_PI    = 2.0 * Math.PI;
+
+    private static final double julMinute = 1.0 / ( 24.0 * 60);
+
+    /**
+     * @return the current wall clock time as a julian date. Rendering code should propagate to
+     * the frame time of a {@link SimulationClock} instead, so that a frame uses a single epoch.
+     */
+    public static double getJulianTime() {
+        return SimulationClock.currentJulianDate();
+    }
+
+    /** Precision of {@link #updateSatellite(Satellite, double, Fidelity)}. */
+    public enum Fidelity {
+        FULL,   // Full SGP4, for selected objects
+        RENDER  // RenderPropagator, for points of the cluster. See RenderPropagatorValidation
+    }
+
+    // RenderPropagator keeps scratch state, so every thread gets its own.
+    private static final ThreadLocal<RenderPropagator> RENDER_PROPAGATOR =
+            new ThreadLocal<RenderPropagator>() {
+                @Override
+                protected RenderPropagator initialValue() {
+                    return new RenderPropagator();
+                }
+            };
+
+    // Private Class Variables //
+    private static final char opsMode = SGP4utils.OPSMODE_IMPROVED;
+    private static final SGP4unit.Gravconsttype gravConstType = SGP4unit.Gravconsttype.wgs72;
+
+    /**
+     * Reads data from tle file and initializes an ArrayList containing newly created
+     * satellite objects.
+     * @param file TLE file, e.g. in the internal file directory of the app
+     * @return An arraylist of satellite objects read from the TLE file
+     */
+    public static List<Satellite> readTLE(final File file) {
+
+        List<Satellite> satellites = new ArrayList<>();
+        try {
+            FileReader reader = new FileReader(file);
+            BufferedReader bufferReader = new BufferedReader(reader);
+
+            // Each TLE element has three lines
+            String name, line1, line2;
+            while(((name  = bufferReader.readLine()) != null) &&
+                    ((line1 = bufferReader.readLine()) != null) &&
+                    ((line2 = bufferReader.readLine()) != null)) {
+                satellites.add(new Satellite(new TLEdata(name,line1, line2)));
+            }
+            bufferReader.close();
+
+        } catch (Exception e) {
+            LOG.severe("Error reading TLE file: " + file + e.getMessage());
+        }
+        return satellites;
+    }
+
+    /**
+     * Take in TLE information and extract a satellite
+     *
+     * @param tleData The raw TLE string data
+     * @return a satellite data object OR null if failure to initialize
+     */
+    public static SGP4SatData initSatellite(TLEdata tleData) {
+        // Read TLE information and initialize SGP4 model
+        SGP4SatData data = new SGP4SatData();
+        boolean result = SGP4utils.readTLEandIniSGP4(
+                tleData.line0,          // Name of satellite
+                tleData.line1,          // Orbital data line 1
+                tleData.line2,          // Orbital data line 2
+                opsMode, gravConstType, // Options
+                data                    // Output
+        );
+
+        if (!result) {
+            LOG.severe("Error reading/initializing TLE. Code: " + data.error);
+            return null;
+        } else {
+            return data;
+        }
+    }
+
+
+    /**
+     * Executes SGP4 algorithm to determine orbital values and coordinates for the
+     * provided satellite at the current wall clock time.
+     * @param sat satellite for which data will be set
+     */
+    public static void updateSatellite(Satellite sat) {
+        updateSatellite(sat, getJulianTime());
+    }
+
+    /**
+     * Executes SGP4 algorithm to determine orbital values and coordinates for the
+     * provided satellite.
+     * @param sat satellite for which data will be set
+     * @param propJD julian date to propagate to, typically {@link SimulationClock#tick()}
+     */
+    public static void updateSatellite(Satellite sat, double propJD) {
+        updateSatellite(sat, propJD, Fidelity.FULL);
+    }
+
+    /**
+     * Same as {@link #updateSatellite(Satellite, double)}, with a choice of precision.
+     * @param fidelity {@link Fidelity#RENDER} for objects only drawn as points, which leaves the
+     *                 speed of the satellite unchanged
+     */
+    public static void updateSatellite(Satellite sat, double propJD, Fidelity fidelity) {
+        double minutesSinceEpoch = (propJD - sat.mData.jdsatepoch) * 24.0 * 60.0;
+
+        if (fidelity == Fidelity.RENDER) {
+            double[] pos = new double[3];
+            if (!RENDER_PROPAGATOR.get().propagate(sat.mData, minutesSinceEpoch, pos)) {
+                LOG.severe("sgp4 - Error in Sat Prop");
+                return;
+            }
+            double[] latLonAlt = new double[3];
+            CoordConvert.temeToLatLonAlt(pos, SGP4unit.gstime(propJD), latLonAlt);
+            setGeodetic(sat, latLonAlt[0], latLonAlt[1], latLonAlt[2]);
+            return;
+        }
+
+        double[] pos = new double[3];
+        double[] vel = new double[3];
+
+        boolean result = SGP4unit.sgp4(sat.mData, minutesSinceEpoch, pos, vel);
+        if (!result) {
+            LOG.severe("sgp4 - Error in Sat Prop");
+            return;
+        }
+
+        // PM of 0,0 is more consistent with online trackers
+        double[] ecefPos = CoordConvert.ecefPosVector(pos, 0, 0, propJD, 86400.87);
+        double[] longLat = CoordConvert.ecefToLongLat(ecefPos, propJD);
+        sat.setSpeed(Math.sqrt(vel[0] * vel[0] + vel[1] * vel[1] + vel[2] * vel[2]) * 1000);
+        setGeodetic(sat, longLat[1], longLat[2], longLat[3]);
+    }
+
+    private static void setGeodetic(Satellite sat, double latitude, double longitude,
+                                    double altitude) {
+        sat.setLatitude(latitude);
+        sat.setLongitude(longitude);
+        sat.setAltitude(altitude);
+
+        double[] position = new double[3];
+        toRenderFrame(latitude, longitude, altitude, position);
+        sat.setPosition(position[0], position[1], position[2]);
+    }
+
+    /**
+     * Converts a geodetic position to the earth frame of the renderer, as used for
+     * {@link Satellite#getPosition()}.
+     *
+     * @param latitude latitude in radians
+     * @param longitude longitude in radians
+     * @param altitude altitude in km
+     * @param out receives x, y and z in earth radii
+     */
+    public static void toRenderFrame(double latitude, double longitude, double altitude,
+                                     double[] out) {
+        double radius = (altitude + EARTH_RADIUS) / EARTH_RADIUS;
+        out[0] = radius * Math.cos(latitude) * Math.sin(longitude);
+        out[1] = radius * Math.sin(latitude);
+        out[2] = radius * Math.cos(latitude) * Math.cos(longitude);
+    }
+
+    /**
+     * Places a satellite at a precomputed position, e.g. from an {@code EphemerisCache}, without
+     * propagating. The inverse of the conversion in {@link #updateSatellite}, so the geodetic
+     * position matches.
+     *
+     * @param x position in the earth frame of the renderer, in earth radii
+     */
+    public static void setPosition(Satellite sat, double x, double y, double z) {
+        final double radius = Math.sqrt(x * x + y * y + z * z);
+        sat.setLatitude(Math.asin(y / radius));
+        sat.setLongitude(Math.atan2(x, z));
+        sat.setAltitude((radius - 1.0) * EARTH_RADIUS);
+        sat.setPosition(x, y, z);
+    }
+
+    /**
+     * Samples a number of points from a given satellite's orbit. Different from getSatellitePath
+     * in that the location is not determined at different points along the period. Instead,
+     * this method samples some number of points given the satellite's current orbital information.
+     * This provides a clear elliptical orbit for rendering.
+     *
+     * Thanks to https://space.stackexchange.com/a/8915/22335 for explanations of the math
+     *
+     * @param sat satellite for which orbital path will be extrapolated
+     * @param points the number of latitude,longitude pairs that will be generated for the path
+     * @return an ArrayList of LatLng points
+     */
+    public static List<Point3D> getSatelliteOrbit(Satellite sat, int points) {
+        List<Point3D> positions = new ArrayList<>();
+        final double increment = TWO_PI / points;
+
+        // prop to current date
+//        double propJD = getJulianTime();
+//        double minutesSinceEpoch = (propJD - sat.mData.jdsatepoch) * 24.0 * 60.0;
+//        double[] pos = new double[3];
+//        double[] vel = new double[3];
+//        SGP4unit.sgp4(sat.mData, minutesSinceEpoch, pos, vel);
+//        double[] kepler = SGP4utils.rv2coe(pos, vel);
+//        final double a = kepler[1];
+//        final double e = kepler[2];
+//        final double i = kepler[3];
+//        final double w = kepler[5];
+//        final double W = kepler[4];
+
+        final double e = sat.mData.ecco;  // eccentricity [0, 1]
+        final double i = sat.mData.inclo; // inclination
+        final double w = sat.mData.argpo; // argument of perigee (little omega)
+        final double W = sat.mData.nodeo; // longitude of ascending node (great omega)
+
+        // Same samples as stepping M by the increment up to 2pi, solved as one batch.
+        final double[] M = new double[points + 2];
+        int count = 0;
+        for (double m = 0; m <= TWO_PI && count < M.length; m += increment) {
+            M[count++] = m;
+        }
+        final double[] E = new double[count];
+        final double[] sinE = new double[count];
+        final double[] cosE = new double[count];
+        // Solving Kepler equation (M = E - esin(E)) for eccentric anomaly, E
+        Kepler.solve(M, count, e, E, sinE, cosE);
+
+        // Orientation of the orbit is constant, only the true anomaly varies along it.
+        final double sinW = Math.sin(W), cosW = Math.cos(W);
+        final double sinw = Math.sin(w), cosw = Math.cos(w);
+        final double sini = Math.sin(i), cosi = Math.cos(i);
+        final double betaE = Math.sqrt(1.0 - e * e);
+
+        for (int k = 0; k < count; ++k) {
+            // true anomaly, as sin/cos
+            final double r = 1.0 - e * cosE[k];
+            final double sinv = betaE * sinE[k] / r;
+            final double cosv = (cosE[k] - e) / r;
+            final double sinwv = sinw * cosv + cosw * sinv; // sin(w + v)
+            final double coswv = cosw * cosv - sinw * sinv; // cos(w + v)
+
+            final double x =  1.5 * (sinW * coswv + cosW * sinwv * cosi);
+            final double y =  1.5 * (sini * sinwv);
+            final double z =  1.5 * (cosW * coswv - sinW * sinwv * cosi);
+
+            positions.add(new Point3D(x, y, z));
+        }
+        return positions;
+    }
+
+    /**
+     * Calculates the path of a satellite for its entire period. Calculates the location of the
+     * satellite at separate points throughout the period so that a vector may be created
+     * outlining the satellite's path.
+     * @param sat satellite to track path for
+     * @param points the number of latitude,longitude pairs that will be generated for the path
+     * @param correctLongitude boolean indicating whether longitude should be corrected such that
+     *                         the resulting path is a (mostly) perfect ellipse
+     * @return an ArrayList of LatLng points
+     */
+    // Similar to trackSat, but returns an arraylist of coordinates
+    // Points parameter represents the amount of points will be calculated for the list.
+    public static List<Point3D> getSatellitePath(Satellite sat, int points, boolean correctLongitude) {
+        return getSatellitePath(sat, points, correctLongitude, getJulianTime());
+    }
+
+    /**
+     * Same as {@link #getSatellitePath(Satellite, int, boolean)}, starting at the given time.
+     * @param julTime julian date of the first point of the path
+     */
+    public static List<Point3D> getSatellitePath(Satellite sat, int points, boolean correctLongitude,
+                                                 double julTime) {
+        List<Point3D> positions = new ArrayList<>();
+        final double orbitalPeriod = orbitalPeriodMinutes(sat);
+        final double[] point = new double[3];
+
+        // Calculates longitude and latitude at points for an entire orbital period.
+        for(int i = 0; i <= points; ++i) {
+            double newJD = julTime + (julMinute * i * orbitalPeriod/points);
+            pathPoint(sat, julTime, newJD, correctLongitude, point);
+            positions.add(new Point3D(point[0], point[1], point[2]));
+        }
+        return positions;
+    }
+
+    /**
+     * Same as {@link #getSatellitePath(Satellite, int, boolean, double)}, with as many points as
+     * the path needs to stay within {@code tolerance} of the true path, see
+     * {@link OrbitSampler}. Eccentric orbits get their points around perigee.
+     * @param tolerance maximum distance of the polyline from the path, in earth radii like the
+     *                  points. Derive it from the on-screen size of the earth.
+     */
+    public static List<Point3D> getSatellitePathAdaptive(final Satellite sat, double tolerance,
+                                                         final boolean correctLongitude,
+                                                         final double julTime) {
+        return OrbitSampler.sample(new OrbitSampler.Curve() {
+            @Override
+            public void evaluate(double t, double[] out) {
+                pathPoint(sat, julTime, t, correctLongitude, out);
+            }
+        }, julTime, julTime + julMinute * orbitalPeriodMinutes(sat), tolerance);
+    }
+
+    /**
+     * Same as {@link #getSatelliteOrbit(Satellite, int)}, with as many points as needed to stay
+     * within {@code tolerance} of the orbit, see {@link OrbitSampler}.
+     * @param tolerance maximum distance of the polyline from the orbit, in render units
+     */
+    public static List<Point3D> getSatelliteOrbitAdaptive(Satellite sat, double tolerance) {
+        final double e = sat.mData.ecco;
+        final double i = sat.mData.inclo;
+        final double w = sat.mData.argpo;
+        final double W = sat.mData.nodeo;
+        final double sinW = Math.sin(W), cosW = Math.cos(W);
+        final double sinw = Math.sin(w), cosw = Math.cos(w);
+        final double sini = Math.sin(i), cosi = Math.cos(i);
+        final double betaE = Math.sqrt(1.0 - e * e);
+
+        return OrbitSampler.sample(new OrbitSampler.Curve() {
+            @Override
+            public void evaluate(double M, double[] out) {
+                final double E = Kepler.solve(M, e);
+                final double sinE = Math.sin(E), cosE = Math.cos(E);
+                final double r = 1.0 - e * cosE;
+                final double sinv = betaE * sinE / r;
+                final double cosv = (cosE - e) / r;
+                final double sinwv = sinw * cosv + cosw * sinv;
+                final double coswv = cosw * cosv - sinw * sinv;
+                out[0] = 1.5 * (sinW * coswv + cosW * sinwv * cosi);
+                out[1] = 1.5 * (sini * sinwv);
+                out[2] = 1.5 * (cosW * coswv - sinW * sinwv * cosi);
+            }
+        }, 0.0, TWO_PI, tolerance);
+    }
+
+    private static double orbitalPeriodMinutes(Satellite sat) {
+        final double MINUTES_PER_DAY = 1440.0;
+
+        // Mean motion used to find orbital period. Converting mean motion to revolutions per day.
+        double meanMotion = sat.mData.no * (MINUTES_PER_DAY / TWO_PI);
+
+        double hoursPerOrbit  = 24 / meanMotion;                 // Hours per orbit as a decimal
+        int hours             = (int) hoursPerOrbit;             // Hours ... Truncated decimal
+        double minutesDecimal = (hoursPerOrbit - hours) * 60.0;  // Minutes expressed as decimal
+        return minutesDecimal + (hours * 60);                    // Orbital Period in minutes
+    }
+
+    /*
+     * Position of the satellite at newJD in the earth frame of the renderer. With
+     * correctLongitude, the rotation of the earth since julTime is undone so the path closes.
+     */
+    private static void pathPoint(Satellite sat, double julTime, double newJD,
+                                  boolean correctLongitude, double[] out) {
+        double minutesSinceEpoch = (newJD - sat.mData.jdsatepoch) * 24.0 * 60.0;
+        double[] pos = new double[3];
+        double[] vel = new double[3];
+
+        SGP4unit.sgp4(sat.mData, minutesSinceEpoch, pos, vel);
+        double[] ecefPos = CoordConvert.ecefPosVector(pos, 0, 0, newJD, 86400.87);
+        double[] longLat = CoordConvert.ecefToLongLat(ecefPos, newJD);
+
+        double lat = longLat[1];
+        double lon = longLat[2];
+        if (correctLongitude) {
+            lon += (newJD - julTime) * TWO_PI;
+        }
+
+        double radius = (longLat[3] + EARTH_RADIUS) / EARTH_RADIUS;
+        out[0] = radius * (Math.cos(lat) * Math.sin(lon));
+        out[1] = radius * (Math.sin(lat));
+        out[2] = radius * (Math.cos(lat) * Math.cos(lon));
+    }
+}
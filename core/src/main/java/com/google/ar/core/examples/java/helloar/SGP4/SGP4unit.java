@@ -1,4 +1,7 @@
 package com.google.ar.core.examples.java.helloar.SGP4;
+
+import java.util.Arrays;
+
 /**
  *   Vallado/CSSI com.google.ar.core.examples.java.helloar.SGP4 propogator
  *   Converted to Java from C++ by: Shawn E. Gano, 19 June 2009
@@ -1140,6 +1143,9 @@ public class SGP4unit
                 satrec.xni = no;
                 satrec.xli = xlamo;
             }
+            // jump ahead to the last checkpoint before t. the integration is deterministic, so
+            // continuing from a checkpoint gives the same result as integrating from epoch
+            dsRestoreCheckpoint(satrec, t);
             // sgp4fix move check outside loop
             if(t > 0.0)
             {
@@ -1205,6 +1211,7 @@ public class SGP4unit
                     satrec.xli = satrec.xli + xldot * delt + xndt * step2;
                     satrec.xni = satrec.xni + xndt * delt + xnddt * step2;
                     satrec.atime = satrec.atime + delt;
+                    dsSaveCheckpoint(satrec);
                 }
             }  // while iretn = 381
 
@@ -1231,6 +1238,73 @@ public class SGP4unit
 //#include "debug4.cpp"
     }  // end dsspace
 
+    /** number of 720 minute integration steps between deep space resonance checkpoints */
+    public static final int DS_CHECKPOINT_STEPS = 10;
+    private static final double DS_CHECKPOINT_MINUTES = DS_CHECKPOINT_STEPS * 720.0;
+
+    /*
+     * Moves the resonance integrator of satrec to the last checkpoint between its current state
+     * and t, if any. Checkpoints are at exact multiples of DS_CHECKPOINT_MINUTES from epoch, on
+     * the side of epoch of t.
+     */
+    private static void dsRestoreCheckpoint(SGP4SatData satrec, double t)
+    {
+        final boolean forward = t > 0.0;
+        final int count = forward ? satrec.dsCheckpointCountFwd : satrec.dsCheckpointCountBack;
+        final int index = (int) Math.min(count, Math.floor(Math.abs(t) / DS_CHECKPOINT_MINUTES));
+        if (index == 0 || index * DS_CHECKPOINT_MINUTES <= Math.abs(satrec.atime))
+        {
+            return;
+        }
+        final double[] checkpoints = forward ? satrec.dsCheckpointsFwd : satrec.dsCheckpointsBack;
+        satrec.atime = (forward ? 1.0 : -1.0) * index * DS_CHECKPOINT_MINUTES;
+        satrec.xli = checkpoints[2 * (index - 1)];
+        satrec.xni = checkpoints[2 * (index - 1) + 1];
+    }
+
+    /*
+     * Records the integrator state of satrec if it just reached the next checkpoint.
+     */
+    private static void dsSaveCheckpoint(SGP4SatData satrec)
+    {
+        final double steps = Math.abs(satrec.atime) / 720.0;
+        if (steps % DS_CHECKPOINT_STEPS != 0.0)
+        {
+            return;
+        }
+        final int index = (int) (steps / DS_CHECKPOINT_STEPS);
+        if (satrec.atime > 0.0)
+        {
+            if (index != satrec.dsCheckpointCountFwd + 1)
+            {
+                return;
+            }
+            if (satrec.dsCheckpointsFwd.length < 2 * index)
+            {
+                satrec.dsCheckpointsFwd = Arrays.copyOf(satrec.dsCheckpointsFwd,
+                        Math.max(2 * index, 2 * satrec.dsCheckpointsFwd.length));
+            }
+            satrec.dsCheckpointsFwd[2 * (index - 1)] = satrec.xli;
+            satrec.dsCheckpointsFwd[2 * (index - 1) + 1] = satrec.xni;
+            satrec.dsCheckpointCountFwd = index;
+        }
+        else
+        {
+            if (index != satrec.dsCheckpointCountBack + 1)
+            {
+                return;
+            }
+            if (satrec.dsCheckpointsBack.length < 2 * index)
+            {
+                satrec.dsCheckpointsBack = Arrays.copyOf(satrec.dsCheckpointsBack,
+                        Math.max(2 * index, 2 * satrec.dsCheckpointsBack.length));
+            }
+            satrec.dsCheckpointsBack[2 * (index - 1)] = satrec.xli;
+            satrec.dsCheckpointsBack[2 * (index - 1) + 1] = satrec.xni;
+            satrec.dsCheckpointCountBack = index;
+        }
+    }
+
     /** -----------------------------------------------------------------------------
      *
      *                           procedure initl
@@ -1605,6 +1679,8 @@ public class SGP4unit
         satrec.atime = 0.0;
         satrec.xli = 0.0;
         satrec.xni = 0.0;
+        satrec.dsCheckpointCountFwd = 0;
+        satrec.dsCheckpointCountBack = 0;
 
         // sgp4fix - note the following variables are also passed directly via satrec.
         // it is possible to streamline the sgp4init call by deleting the "x"
@@ -1616,6 +1692,7 @@ public class SGP4unit
         satrec.inclo = xinclo;
         satrec.mo = xmo;
         satrec.no = xno;
+        satrec.no_kozai = xno;
         satrec.nodeo = xnodeo;
 
         // sgp4fix add opsmode
@@ -0,0 +1,120 @@
+package com.google.ar.core.examples.java.helloar.SGP4;
+
+/**
+ * Simulation time source for propagation. The clock is anchored to {@link System#nanoTime()}
+ * and is read once per frame with {@link #tick()}, so every satellite propagated during that
+ * frame uses the same epoch. Simulation time may run faster or slower than real time, backwards,
+ * or be paused, and may jump to an arbitrary date.
+ *
+ * Setters may be called from any thread; the frame time is read on the render thread.
+ */
+public class SimulationClock {
+
+    /** Julian date of the unix epoch, 1970-01-01 00:00 UTC. */
+    private static final double JD_UNIX_EPOCH  = 2440587.5;
+    private static final double MILLIS_PER_DAY = 86400000.0;
+    private static final double NANOS_PER_DAY  = 86400.0e9;
+    private static final double MINUTES_PER_DAY = 1440.0;
+
+    // Simulation time at mAnchorNanos. Changing the scale or jumping re-anchors the clock so
+    // that simulation time stays continuous.
+    private double mAnchorJulianDate;
+    private long mAnchorNanos;
+    private double mTimeScale = 1.0;
+    private boolean mPaused = false;
+
+    // Snapshot taken by the last tick
+    private volatile double mFrameJulianDate;
+
+    /** Creates a clock running at real time, starting at the current wall clock time. */
+    public SimulationClock() {
+        jumpTo(currentJulianDate());
+    }
+
+    /**
+     * @return the current wall clock time as a julian date, with millisecond resolution
+     */
+    public static double currentJulianDate() {
+        return JD_UNIX_EPOCH + System.currentTimeMillis() / MILLIS_PER_DAY;
+    }
+
+    /**
+     * Advances the frame time. Call once per frame, before propagating anything.
+     *
+     * @return the julian date of this frame
+     */
+    public synchronized double tick() {
+        mFrameJulianDate = now(System.nanoTime());
+        return mFrameJulianDate;
+    }
+
+    /** @return the julian date of the last {@link #tick()} */
+    public double getJulianDate() {
+        return mFrameJulianDate;
+    }
+
+    /**
+     * @param jdEpoch julian date of a TLE epoch
+     * @return minutes from {@code jdEpoch} to the frame time, as used by SGP4unit.sgp4
+     */
+    public double minutesSince(double jdEpoch) {
+        return (mFrameJulianDate - jdEpoch) * MINUTES_PER_DAY;
+    }
+
+    /**
+     * Sets how many simulated seconds elapse per real second. Negative values run the clock
+     * backwards. Simulation time is continuous across the change.
+     */
+    public synchronized void setTimeScale(double timeScale) {
+        reanchor();
+        mTimeScale = timeScale;
+    }
+
+    public synchronized double getTimeScale() {
+        return mTimeScale;
+    }
+
+    /** Freezes simulation time, keeping the current time scale for {@link #resume()}. */
+    public synchronized void pause() {
+        reanchor();
+        mPaused = true;
+    }
+
+    public synchronized void resume() {
+        reanchor();
+        mPaused = false;
+    }
+
+    public synchronized boolean isPaused() {
+        return mPaused;
+    }
+
+    /**
+     * Moves simulation time to the given date. Takes effect on the next {@link #tick()}.
+     *
+     * @param julianDate the new simulation time
+     */
+    public synchronized void jumpTo(double julianDate) {
+        mAnchorNanos = System.nanoTime();
+        mAnchorJulianDate = julianDate;
+        mFrameJulianDate = julianDate;
+    }
+
+    /** Jumps back to the current wall clock time. The time scale is kept. */
+    public void resetToNow() {
+        jumpTo(currentJulianDate());
+    }
+
+    private void reanchor() {
+        final long nanos = System.nanoTime();
+        mAnchorJulianDate = now(nanos);
+        mAnchorNanos = nanos;
+    }
+
+    private double now(long nanos) {
+        if (mPaused) {
+            return mAnchorJulianDate;
+        }
+        return mAnchorJulianDate + (nanos - mAnchorNanos) * mTimeScale / NANOS_PER_DAY;
+    }
+}
@@ -0,0 +1,76 @@
+package com.google.ar.core.examples.java.helloar.SGP4;
+
+/**
+ * Low precision position of the sun, after Vallado's sun algorithm (Astronomical Almanac), good
+ * to about 0.01 degrees between 1950 and 2050. The result is a mean-of-date equatorial vector,
+ * used interchangeably with TEME at this precision.
+ *
+ * Evaluate it once per tick with {@link #update(double)} and share the result.
+ */
+public class SolarEphemeris {
+
+    public static final double AU          = 149597870.7; // km
+    public static final double SUN_RADIUS  = 696000.0;    // km
+
+    private static final double JD_J2000 = 2451545.0;
+    private static final double DAYS_PER_CENTURY = 36525.0;
+    private static final double DEG_TO_RAD = Math.PI / 180.0;
+
+    private final double[] mPosition = new double[3];
+    private double mJulianDate = Double.NaN;
+    private double mGmst;
+
+    /**
+     * Computes the sun position for the given time. Repeated calls with the same time are free.
+     *
+     * @param julianDate time of the tick, in UT1
+     */
+    public void update(double julianDate) {
+        if (julianDate == mJulianDate) {
+            return;
+        }
+        mJulianDate = julianDate;
+        mGmst = SGP4unit.gstime(julianDate);
+
+        final double t = (julianDate - JD_J2000) / DAYS_PER_CENTURY;
+
+        final double meanLongitude = (280.460 + 36000.77 * t) % 360.0; // degrees
+        final double meanAnomaly = ((357.5277233 + 35999.05034 * t) % 360.0) * DEG_TO_RAD;
+        final double eclipticLongitude = (meanLongitude + 1.914666471 * Math.sin(meanAnomaly)
+                + 0.019994643 * Math.sin(2.0 * meanAnomaly)) * DEG_TO_RAD;
+        final double obliquity = (23.439291 - 0.0130042 * t) * DEG_TO_RAD;
+
+        final double distance = (1.000140612 - 0.016708617 * Math.cos(meanAnomaly)
+                - 0.000139589 * Math.cos(2.0 * meanAnomaly)) * AU;
+        final double sinLongitude = Math.sin(eclipticLongitude);
+        mPosition[0] = distance * Math.cos(eclipticLongitude);
+        mPosition[1] = distance * Math.cos(obliquity) * sinLongitude;
+        mPosition[2] = distance * Math.sin(obliquity) * sinLongitude;
+    }
+
+    /**
+     * @return the geocentric sun position in km, in the same frame as SGP4 positions. Must not
+     *     be modified.
+     */
+    public double[] getPosition() {
+        return mPosition;
+    }
+
+    /**
+     * Rotates the sun position into the earth fixed frame, as {@link CoordConvert#ecefPosVector}
+     * does for satellites.
+     *
+     * @param out receives the earth fixed sun position, in km
+     */
+    public void getEarthFixedPosition(double[] out) {
+        final double cosGmst = Math.cos(mGmst);
+        final double sinGmst = Math.sin(mGmst);
+        out[0] =  cosGmst * mPosition[0] + sinGmst * mPosition[1];
+        out[1] = -sinGmst * mPosition[0] + cosGmst * mPosition[1];
+        out[2] = mPosition[2];
+    }
+
+    public double getJulianDate() {
+        return mJulianDate;
+    }
+}
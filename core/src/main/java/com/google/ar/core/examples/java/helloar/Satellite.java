@@ -1,29 +1,21 @@
 package com.google.ar.core.examples.java.helloar;
 
-import android.content.Context;
-import android.util.Log;
-
 import com.google.ar.core.examples.java.helloar.SGP4.SGP4track;
 import com.google.ar.core.examples.java.helloar.SGP4.TLEdata;
-import com.google.ar.core.examples.java.helloar.rendering.SatelliteRenderer;
 
 import com.google.ar.core.examples.java.helloar.SGP4.SGP4SatData;
 
-import java.io.IOException;
-
 /**
  * Created by TY on 1/1/2018. Damn this is how I spend my new year?
  */
 
 public class Satellite {
-    private static final String TAG = Satellite.class.getSimpleName();
     public SGP4SatData mData;  // SGP4 data
     private int mID;           // Norad ID
     private double mLatitude;  // latitude in radians
     private double mLongitude; // longitude in radians
     private double mAltitude;  // altitude in kilometers
     private double mSpeed;     // speed in m/s
-    private SatelliteRenderer mRenderer;       // Render satellite object
     private Point3D mPosition = new Point3D(); // x,y,z position for rendering
 
 
@@ -31,24 +23,21 @@ public class Satellite {
         mData = SGP4track.initSatellite(tle);
     }
 
-    public void initRenderer(Context context) {
-        mRenderer = new SatelliteRenderer();
-        try {
-            mRenderer.createOnGlThread(/*context=*/context,"iss.obj", 0xCC0000FF);
-        } catch (IOException e) {
-            Log.e(TAG, "Failed to read obj file");
-        }
-        mRenderer.setMaterialProperties(1.0f, 3.5f, 1.0f, 6.0f);
-    }
-
-    public void update(float[] modelMatrix, float scaleFactor, float translateFactor, float rotateAngle) {
-        SGP4track.updateSatellite(this); // Get new coordinates
-        mRenderer.updateModelMatrix(modelMatrix, scaleFactor, translateFactor, rotateAngle,
-                mPosition, mAltitude);
+    /**
+     * @param data initialized SGP4 data, e.g. from {@link CatalogStore#getData(int)}
+     */
+    public Satellite(SGP4SatData data) {
+        mData = data;
     }
 
-    public void draw(float[] cameraView, float[] cameraPerspective, float lightIntensity) {
-        mRenderer.draw(cameraView, cameraPerspective, lightIntensity);
+    /**
+     * Propagates the satellite. Its position is in the earth frame of the renderer, see
+     * {@link SGP4track#updateSatellite(Satellite, double)}.
+     *
+     * @param julianDate time to propagate to, the frame time of the simulation clock
+     */
+    public void update(double julianDate) {
+        SGP4track.updateSatellite(this, julianDate); // Get new coordinates
     }
 
     // Getters and setters
@@ -0,0 +1,383 @@
+package com.google.ar.core.examples.java.helloar;
+
+import com.google.ar.core.examples.java.helloar.SGP4.EclipseClassifier;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Created by TY on 1/8/2018.
+ *
+ * Satellites are added from the UI thread while the GL thread moves and draws them, so the
+ * methods lock the cluster. To read several values that must agree, e.g. the points and their
+ * sample indices, hold the lock on the cluster around the calls; likewise to use
+ * {@link #getStore()} or {@link #getCatalog()} while satellites may be added.
+ */
+
+public class SatelliteCluster {
+
+    public enum DensityEnum {
+        ALL,
+        HIGH,
+        MEDIUM,
+        LOW,
+        NONE
+    }
+    private static final int INITIAL_SIZE = 100;
+    private boolean dirty = true;
+    private int mVersion = 0;
+
+    private DensityEnum mDensity;
+    private FloatBuffer pointBuffer;
+    private float[] mPositions = new float[0];
+    private int[] mSampleIndices = new int[0];
+    private int mNumPoints = 0;
+
+    // Deterministic sampling order, stratified by orbit regime so every density level keeps
+    // the LEO/MEO/GEO/HEO mix of the whole catalog.
+    private final StratifiedSampler mSampler = new StratifiedSampler(OrbitRegime.values().length);
+
+    // Classification of every satellite, indexed like the sampler. A null filter shows all.
+    private final CatalogFilter mCatalog = new CatalogFilter();
+    private CatalogFilter.Selection mFilter;
+
+    // The satellites themselves, and their positions at the time they were added, indexed like
+    // the catalog. Positions are packed x,y,z in the earth frame, geodetic positions are in
+    // radians and kilometers.
+    private final CatalogStore mStore = new CatalogStore();
+    private float[] mAllPositions = new float[INITIAL_SIZE * 3];
+    private float[] mLatitudes = new float[INITIAL_SIZE];
+    private float[] mLongitudes = new float[INITIAL_SIZE];
+    private float[] mAltitudes = new float[INITIAL_SIZE];
+    private byte[] mRegimes = new byte[INITIAL_SIZE]; // OrbitRegime ordinals
+    private float[] mScratchPositions = new float[0];
+
+    // Illumination of every satellite, indexed like the catalog, and the array the next
+    // classification is written to before it is compared.
+    private byte[] mEclipseStates = new byte[0];
+    private byte[] mNextEclipseStates = new byte[0];
+
+    // Precomputed positions of the catalog, set from a background thread once available.
+    private volatile EphemerisCache mEphemeris;
+    private EphemerisCache mCheckedEphemeris; // Last cache compared with the store, and result
+    private int mCheckedSize = -1;
+    private boolean mEphemerisMatches = false;
+
+    public SatelliteCluster() {
+        mDensity = DensityEnum.MEDIUM;
+    }
+
+    /**
+     * Adds a propagated satellite. Only its elements and position are kept, see
+     * {@link CatalogStore}, so the satellite can be discarded afterwards.
+     */
+    public synchronized void addSatellite(final Satellite sat) {
+        if (sat.mData == null) {
+            return; // Failed to initialize, nothing to place
+        }
+        // The row is written before the store publishes the new size.
+        final int index = mStore.size();
+        if (index == mLatitudes.length) {
+            final int capacity = index * 2;
+            mAllPositions = Arrays.copyOf(mAllPositions, capacity * 3);
+            mLatitudes = Arrays.copyOf(mLatitudes, capacity);
+            mLongitudes = Arrays.copyOf(mLongitudes, capacity);
+            mAltitudes = Arrays.copyOf(mAltitudes, capacity);
+            mRegimes = Arrays.copyOf(mRegimes, capacity);
+        }
+        final Point3D pos = sat.getPosition();
+        mAllPositions[index * 3] = (float) pos.x;
+        mAllPositions[index * 3 + 1] = (float) pos.y;
+        mAllPositions[index * 3 + 2] = (float) pos.z;
+        mLatitudes[index] = (float) sat.getLatitude();
+        mLongitudes[index] = (float) sat.getLongitude();
+        mAltitudes[index] = (float) sat.getAltitude();
+
+        final int regime = OrbitRegime.classify(sat.mData).ordinal();
+        mRegimes[index] = (byte) regime;
+        mStore.add(sat.mData);
+        mSampler.add(regime, sat.mData.satnum);
+        mCatalog.add(sat.mData);
+        markDirty();
+    }
+
+    /**
+     * Adds a batch of propagated satellites under one lock, see {@link #addSatellite(Satellite)}.
+     */
+    public synchronized void addSatellite(final Collection<Satellite> sats) {
+        for (Satellite sat : sats) {
+            addSatellite(sat);
+        }
+    }
+
+    public synchronized void setDensity(DensityEnum density) {
+        if (mDensity == density) {
+            return;
+        }
+        mDensity = density;
+        markDirty();
+    }
+
+    /**
+     * @return the elements and names of the satellites in this cluster, indexed like
+     *     {@link #getCatalog()}
+     */
+    public CatalogStore getStore() {
+        return mStore;
+    }
+
+    /**
+     * @return the classification of the satellites in this cluster, to build filters from
+     */
+    public CatalogFilter getCatalog() {
+        return mCatalog;
+    }
+
+    /**
+     * Restricts the drawn satellites to a selection of {@link #getCatalog()}. Call again after
+     * modifying the selection so the points are rebuilt.
+     *
+     * @param filter the satellites to show, or null to show all
+     */
+    public synchronized void setFilter(CatalogFilter.Selection filter) {
+        mFilter = filter;
+        markDirty();
+    }
+
+    /**
+     * Sets the precomputed positions {@link #updatePositions} reads from.
+     *
+     * @param ephemeris cache opened for {@link #getStore()}, or null to keep positions fixed
+     */
+    public void setEphemeris(EphemerisCache ephemeris) {
+        mEphemeris = ephemeris;
+    }
+
+    /**
+     * Moves every satellite to its position at a date, interpolated from the ephemeris cache,
+     * without propagating. Geodetic positions keep the values the satellites were added with,
+     * and a satellite the cache has no position for keeps its last one.
+     *
+     * @param julianDate frame time of the simulation clock
+     * @return false if there is no cache for the current catalog or it does not cover the date,
+     *     the positions are then unchanged
+     */
+    public synchronized boolean updatePositions(double julianDate) {
+        final EphemerisCache ephemeris = mEphemeris;
+        final int count = mStore.size();
+        if (ephemeris == null) {
+            return false;
+        }
+        if (ephemeris != mCheckedEphemeris || count != mCheckedSize) {
+            mCheckedEphemeris = ephemeris;
+            mCheckedSize = count;
+            mEphemerisMatches = ephemeris.getCount() == count
+                    && ephemeris.getCatalogVersion() == mStore.getVersion();
+        }
+        if (!mEphemerisMatches) {
+            return false;
+        }
+        if (mScratchPositions.length < count * 3) {
+            mScratchPositions = new float[mAllPositions.length];
+        }
+        if (!ephemeris.getPositions(julianDate, mScratchPositions)) {
+            return false;
+        }
+        for (int i = 0; i < count * 3; i += 3) {
+            // NaN where an object failed to propagate, it then stays where it was.
+            if (!Float.isNaN(mScratchPositions[i])) {
+                mAllPositions[i] = mScratchPositions[i];
+                mAllPositions[i + 1] = mScratchPositions[i + 1];
+                mAllPositions[i + 2] = mScratchPositions[i + 2];
+            }
+        }
+        markDirty();
+        return true;
+    }
+
+    /**
+     * Copies the geodetic position of every satellite, as last set by
+     * {@code SGP4track.updateSatellite}, e.g. for a {@code CoverageGrid}.
+     *
+     * @param latitude receives latitudes in radians
+     * @param longitude receives longitudes in radians
+     * @param altitude receives altitudes in kilometers
+     * @return the number of satellites written, at most the length of the arrays
+     */
+    public synchronized int getGeodeticPositions(double[] latitude, double[] longitude, double[] altitude) {
+        final int count = Math.min(mStore.size(), latitude.length);
+        for (int i = 0; i < count; ++i) {
+            latitude[i] = mLatitudes[i];
+            longitude[i] = mLongitudes[i];
+            altitude[i] = mAltitudes[i];
+        }
+        return count;
+    }
+
+    /**
+     * Classifies every satellite as sunlit, in penumbra or in umbra at its current position.
+     * Call once per tick, after the sun of the classifier was set in the earth frame. The
+     * version is incremented if any state changed.
+     *
+     * @param classifier classifier holding this tick's sun, in earth radii
+     */
+    public synchronized void updateEclipseStates(EclipseClassifier classifier) {
+        final int count = mStore.size();
+        if (mNextEclipseStates.length < count) {
+            mNextEclipseStates = new byte[Math.max(count, mNextEclipseStates.length * 2)];
+        }
+        classifier.classify(mAllPositions, count, mNextEclipseStates);
+        boolean changed = mEclipseStates.length < count;
+        for (int i = 0; i < count && !changed; ++i) {
+            changed = mEclipseStates[i] != mNextEclipseStates[i];
+        }
+        if (changed) {
+            final byte[] states = mEclipseStates;
+            mEclipseStates = mNextEclipseStates;
+            mNextEclipseStates = states;
+            mVersion++;
+        }
+    }
+
+    /**
+     * @return the {@link EclipseClassifier} state of every satellite from the last
+     *     {@link #updateEclipseStates}, indexed like {@link #getCatalog()}. Only the first
+     *     {@link #size()} entries are valid.
+     */
+    public synchronized byte[] getEclipseStates() {
+        return mEclipseStates;
+    }
+
+    /**
+     * @return the number of satellites in the cluster, regardless of density and filter
+     */
+    public synchronized int size() {
+        return mStore.size();
+    }
+
+    /**
+     * @return a counter incremented whenever the sampled points or their eclipse states change
+     */
+    public synchronized int getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * @return the sampled points as packed x,y,z coordinates, positioned at the first point and
+     *     limited to the last. The buffer is reused by later calls.
+     */
+    public synchronized FloatBuffer getPoints() {
+        if (dirty) {
+            rebuild();
+        }
+        return pointBuffer;
+    }
+
+    /**
+     * @return the sampled points as packed x,y,z coordinates. Only the first
+     *     {@link #getNumPoints()} points are valid.
+     */
+    public synchronized float[] getPositions() {
+        if (dirty) {
+            rebuild();
+        }
+        return mPositions;
+    }
+
+    /**
+     * @return the catalog index of every sampled point, in the order of {@link #getPositions()}.
+     *     Only the first {@link #getNumPoints()} entries are valid.
+     */
+    public synchronized int[] getSampleIndices() {
+        if (dirty) {
+            rebuild();
+        }
+        return mSampleIndices;
+    }
+
+    /**
+     * @return the {@link OrbitRegime} ordinal of every satellite, indexed like
+     *     {@link #getCatalog()}. Only the first {@link #size()} entries are valid.
+     */
+    public synchronized byte[] getRegimes() {
+        return mRegimes;
+    }
+
+    /**
+     * @return the number of sampled points for the current density
+     */
+    public synchronized int getNumPoints() {
+        if (dirty) {
+            rebuild();
+        }
+        return mNumPoints;
+    }
+
+    private void rebuild() {
+        // Each density level is a prefix of the same permutation, so switching levels or
+        // adding a satellite does not reshuffle the visible subset.
+        final int[] order = mSampler.getPermutation();
+        // The filter is applied after sampling so that it does not change the density.
+        int arrayPos = 0;
+        int bound = calcNumPoints(mDensity, mStore.size());
+        // The arrays are reused, they are only reallocated to grow.
+        if (mPositions.length < bound * 3) {
+            mPositions = new float[Math.max(bound * 3, mPositions.length * 2)];
+            mSampleIndices = new int[mPositions.length / 3];
+            pointBuffer = null;
+        }
+        final float[] positions = mPositions;
+
+        for (int i = 0; i < bound; ++i) {
+            if (mFilter != null && !mFilter.contains(order[i])) {
+                continue;
+            }
+            final int j = order[i] * 3;
+            mSampleIndices[arrayPos / 3] = order[i];
+            positions[arrayPos++] = mAllPositions[j];
+            positions[arrayPos++] = mAllPositions[j + 1];
+            positions[arrayPos++] = mAllPositions[j + 2];
+        }
+        mNumPoints = arrayPos / 3;
+        if (pointBuffer == null) {
+            pointBuffer = FloatBuffer.wrap(positions);
+        }
+        pointBuffer.limit(arrayPos);
+        pointBuffer.position(0);
+        dirty = false;
+    }
+
+    private void markDirty() {
+        dirty = true;
+        mVersion++;
+    }
+
+    /*
+     * Small helper to return the number of points to sample given the density
+     */
+    private static int calcNumPoints(DensityEnum density, int size) {
+        final int numPoints;
+        switch (density) {
+            case ALL:
+                numPoints = size;
+                break;
+            case HIGH:
+                numPoints = (int) (size * 0.75);
+                break;
+            case MEDIUM:
+                numPoints = (int) (size * 0.50);
+                break;
+            case LOW:
+                numPoints = (int) (size * 0.25);
+                break;
+            case NONE:
+                numPoints = 0;
+                break;
+            default:
+                numPoints = 0;
+        }
+        return numPoints;
+    }
+
+}
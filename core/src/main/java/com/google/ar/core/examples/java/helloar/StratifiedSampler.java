@@ -0,0 +1,182 @@
+package com.google.ar.core.examples.java.helloar;
+
+import java.util.Arrays;
+
+/**
+ * Deterministic, stratified ordering of a growing set of items. Every item belongs to a stratum
+ * and has a fixed pseudo-random key. Within a stratum items are ordered by key, and the strata
+ * are interleaved in proportion to their sizes, so that every prefix of the resulting
+ * permutation samples each stratum in proportion to its share of the whole set.
+ *
+ * Because keys are fixed, adding an item changes at most one member of each stratum's share of
+ * any prefix, and taking a different prefix length never reorders anything, so e.g. a density
+ * change only takes a different prefix of the same permutation.
+ *
+ * Items are appended unsorted and sorted in bulk when the permutation is next requested, so that
+ * loading a whole catalog costs O(n log n) rather than an insertion per item.
+ */
+public class StratifiedSampler {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int mNumStrata;
+
+    // Per stratum: member indices and their keys. The first mSortedCounts are sorted by key,
+    // the rest were added since and are sorted by the next rebuild.
+    private final int[][] mMembers;
+    private final long[][] mKeys;
+    private final int[] mCounts;
+    private final int[] mSortedCounts;
+    private int[] mScratchMembers = new int[0];
+    private long[] mScratchKeys = new long[0];
+
+    private int mSize = 0;
+    private int[] mPermutation = new int[0];
+    private boolean mDirty = false;
+
+    public StratifiedSampler(int numStrata) {
+        mNumStrata = numStrata;
+        mMembers = new int[numStrata][INITIAL_CAPACITY];
+        mKeys = new long[numStrata][INITIAL_CAPACITY];
+        mCounts = new int[numStrata];
+        mSortedCounts = new int[numStrata];
+    }
+
+    /**
+     * Adds the next item. Items are numbered in insertion order starting at zero.
+     *
+     * @param stratum stratum of the item, in [0, numStrata)
+     * @param id stable identifier the sampling key is derived from, e.g. the NORAD number
+     * @return the index of the new item
+     */
+    public int add(int stratum, long id) {
+        final int index = mSize++;
+        final long key = mix(id);
+
+        int count = mCounts[stratum];
+        if (count == mMembers[stratum].length) {
+            mMembers[stratum] = Arrays.copyOf(mMembers[stratum], count * 2);
+            mKeys[stratum] = Arrays.copyOf(mKeys[stratum], count * 2);
+        }
+        mMembers[stratum][count] = index;
+        mKeys[stratum][count] = key;
+        mCounts[stratum] = count + 1;
+
+        mDirty = true;
+        return index;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @return the item indices in sampling order; only the first {@link #size()} entries are
+     *     valid. The returned array is owned by the sampler and only rebuilt after items were
+     *     added, not when a different prefix is used.
+     */
+    public int[] getPermutation() {
+        if (mDirty) {
+            rebuild();
+        }
+        return mPermutation;
+    }
+
+    /*
+     * Interleaves the strata. The j-th member of a stratum of size n is placed at the fractional
+     * position (j + 0.5) / n, and the permutation is the merge of all strata by that position.
+     */
+    private void rebuild() {
+        for (int s = 0; s < mNumStrata; ++s) {
+            sortStratum(s);
+        }
+        if (mPermutation.length < mSize) {
+            mPermutation = new int[Math.max(mSize, mPermutation.length * 2)];
+        }
+        final int[] next = new int[mNumStrata];
+        for (int i = 0; i < mSize; ++i) {
+            int best = -1;
+            double bestPosition = Double.MAX_VALUE;
+            for (int s = 0; s < mNumStrata; ++s) {
+                if (next[s] < mCounts[s]) {
+                    final double position = (next[s] + 0.5) / mCounts[s];
+                    if (position < bestPosition) {
+                        bestPosition = position;
+                        best = s;
+                    }
+                }
+            }
+            mPermutation[i] = mMembers[best][next[best]++];
+        }
+        mDirty = false;
+    }
+
+    /*
+     * Sorts the members added since the last rebuild and merges them into the sorted ones. The
+     * sort is stable, so duplicate keys keep insertion order.
+     */
+    private void sortStratum(int stratum) {
+        final int sorted = mSortedCounts[stratum];
+        final int count = mCounts[stratum];
+        if (sorted == count) {
+            return;
+        }
+        if (mScratchKeys.length < count) {
+            mScratchKeys = new long[mMembers[stratum].length];
+            mScratchMembers = new int[mMembers[stratum].length];
+        }
+        final long[] keys = mKeys[stratum];
+        final int[] members = mMembers[stratum];
+        mergeSort(keys, members, sorted, count);
+        merge(keys, members, 0, sorted, count);
+        mSortedCounts[stratum] = count;
+    }
+
+    private void mergeSort(long[] keys, int[] members, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        final int mid = (from + to) >>> 1;
+        mergeSort(keys, members, from, mid);
+        mergeSort(keys, members, mid, to);
+        merge(keys, members, from, mid, to);
+    }
+
+    /*
+     * Merges the sorted runs [from, mid) and [mid, to), taking from the first run on equal keys.
+     */
+    private void merge(long[] keys, int[] members, int from, int mid, int to) {
+        if (from == mid || mid == to || keys[mid - 1] <= keys[mid]) {
+            return; // Already in order
+        }
+        final int length = mid - from;
+        System.arraycopy(keys, from, mScratchKeys, 0, length);
+        System.arraycopy(members, from, mScratchMembers, 0, length);
+        int i = 0;
+        int j = mid;
+        int o = from;
+        while (i < length && j < to) {
+            if (mScratchKeys[i] <= keys[j]) {
+                keys[o] = mScratchKeys[i];
+                members[o++] = mScratchMembers[i++];
+            } else {
+                keys[o] = keys[j];
+                members[o++] = members[j++];
+            }
+        }
+        System.arraycopy(mScratchKeys, i, keys, o, length - i);
+        System.arraycopy(mScratchMembers, i, members, o, length - i);
+    }
+
+    /*
+     * 64-bit finalizer from MurmurHash3, spreads sequential ids uniformly over the key space.
+     */
+    private static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+        return x >>> 1; // Keep keys non-negative so signed comparison orders them
+    }
+}
@@ -0,0 +1,222 @@
+package com.google.ar.core.examples.java.helloar;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DirtyRangeTrackerTest {
+
+    @Test
+    public void mergesRangesWithinGap() {
+        DirtyRangeTracker tracker = new DirtyRangeTracker(4, 16);
+        tracker.mark(0, 10);
+        tracker.mark(14, 20); // 4 clean elements in between
+        assertEquals(1, tracker.getRangeCount());
+        assertEquals(0, tracker.getStart(0));
+        assertEquals(20, tracker.getEnd(0));
+    }
+
+    @Test
+    public void keepsGapsLargerThanMergeGap() {
+        DirtyRangeTracker tracker = new DirtyRangeTracker(4, 16);
+        tracker.mark(30, 40);
+        tracker.mark(0, 10);
+        tracker.mark(15, 25); // 5 clean elements on both sides
+        assertEquals(3, tracker.getRangeCount());
+        assertRange(tracker, 0, 0, 10);
+        assertRange(tracker, 1, 15, 25);
+        assertRange(tracker, 2, 30, 40);
+        assertEquals(30, tracker.getDirtyLength());
+    }
+
+    @Test
+    public void insertJoinsOverlappedRanges() {
+        DirtyRangeTracker tracker = new DirtyRangeTracker(0, 16);
+        tracker.mark(0, 2);
+        tracker.mark(10, 12);
+        tracker.mark(20, 22);
+        tracker.mark(30, 32);
+        tracker.mark(11, 21);
+        assertEquals(3, tracker.getRangeCount());
+        assertRange(tracker, 0, 0, 2);
+        assertRange(tracker, 1, 10, 22);
+        assertRange(tracker, 2, 30, 32);
+    }
+
+    @Test
+    public void capsRangeCountByMergingClosest() {
+        DirtyRangeTracker tracker = new DirtyRangeTracker(0, 2);
+        tracker.mark(0, 1);
+        tracker.mark(10, 11);
+        tracker.mark(13, 14);
+        assertEquals(2, tracker.getRangeCount());
+        assertRange(tracker, 0, 0, 1);
+        assertRange(tracker, 1, 10, 14);
+    }
+
+    @Test
+    public void ignoresEmptyRanges() {
+        DirtyRangeTracker tracker = new DirtyRangeTracker(0, 4);
+        tracker.mark(5, 5);
+        tracker.mark(7, 3);
+        assertTrue(tracker.isEmpty());
+        tracker.mark(1, 2);
+        tracker.clear();
+        assertTrue(tracker.isEmpty());
+        assertEquals(0, tracker.getDirtyLength());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsZeroMaxRanges() {
+        new DirtyRangeTracker(0, 0);
+    }
+
+    /*
+     * Random marks in random order, checked against a bitmap of the marked elements.
+     */
+    @Test
+    public void randomMarksKeepInvariants() {
+        final Random random = new Random(1);
+        final int size = 2000;
+        for (int round = 0; round < 500; ++round) {
+            final int mergeGap = random.nextInt(8);
+            final int maxRanges = 1 + random.nextInt(20);
+            DirtyRangeTracker tracker = new DirtyRangeTracker(mergeGap, maxRanges);
+            final boolean[] marked = new boolean[size];
+            final int marks = random.nextInt(100);
+            for (int m = 0; m < marks; ++m) {
+                final int start = random.nextInt(size);
+                final int end = Math.min(size, start + random.nextInt(30));
+                tracker.mark(start, end);
+                for (int i = start; i < end; ++i) {
+                    marked[i] = true;
+                }
+                assertInvariants(tracker, mergeGap, maxRanges, marked);
+            }
+        }
+    }
+
+    @Test
+    public void markChangesFloat() {
+        final float[] previous = {0f, 1f, 2f, 3f, 4f, 5f, 6f, 7f};
+        final float[] current = {0f, 1f, 9f, 3f, 4f, 5f, 6f, 9f, 8f, 9f};
+        DirtyRangeTracker tracker = new DirtyRangeTracker(0, 16);
+        tracker.markChanges(previous, 8, current, 10);
+        assertEquals(2, tracker.getRangeCount());
+        assertRange(tracker, 0, 2, 3);
+        assertRange(tracker, 1, 7, 10); // Change at 7, then the tail past previousCount
+    }
+
+    @Test
+    public void markChangesFloatComparesBits() {
+        final float[] previous = {0f, Float.NaN, 1f};
+        final float[] current = {-0f, Float.NaN, 1f};
+        DirtyRangeTracker tracker = new DirtyRangeTracker(0, 16);
+        tracker.markChanges(previous, 3, current, 3);
+        assertEquals(1, tracker.getRangeCount());
+        assertRange(tracker, 0, 0, 1);
+    }
+
+    @Test
+    public void markChangesShort() {
+        final short[] previous = {0, 1, 2, 3, 4, 5};
+        final short[] current = {0, 7, 7, 3, 4, 5, 6, 7};
+        DirtyRangeTracker tracker = new DirtyRangeTracker(0, 16);
+        tracker.markChanges(previous, 6, current, 8);
+        assertEquals(2, tracker.getRangeCount());
+        assertRange(tracker, 0, 1, 3);
+        assertRange(tracker, 1, 6, 8);
+    }
+
+    @Test
+    public void markChangesIgnoresRemovedTail() {
+        final short[] previous = {0, 1, 2, 3, 4, 5};
+        final short[] current = {0, 1, 2, 9};
+        DirtyRangeTracker tracker = new DirtyRangeTracker(0, 16);
+        tracker.markChanges(previous, 6, current, 4);
+        assertEquals(1, tracker.getRangeCount());
+        assertRange(tracker, 0, 3, 4);
+    }
+
+    @Test
+    public void randomChangesAreCovered() {
+        final Random random = new Random(2);
+        for (int round = 0; round < 500; ++round) {
+            final int previousCount = random.nextInt(300);
+            final int count = random.nextInt(300);
+            final float[] previousFloats = new float[previousCount];
+            final short[] previousShorts = new short[previousCount];
+            for (int i = 0; i < previousCount; ++i) {
+                previousFloats[i] = random.nextInt(4);
+                previousShorts[i] = (short) random.nextInt(4);
+            }
+            final float[] floats = new float[count];
+            final short[] shorts = new short[count];
+            for (int i = 0; i < count; ++i) {
+                floats[i] = random.nextInt(4);
+                shorts[i] = (short) random.nextInt(4);
+            }
+
+            final int mergeGap = random.nextInt(4);
+            final int maxRanges = 1 + random.nextInt(10);
+            DirtyRangeTracker floatTracker = new DirtyRangeTracker(mergeGap, maxRanges);
+            floatTracker.markChanges(previousFloats, previousCount, floats, count);
+            DirtyRangeTracker shortTracker = new DirtyRangeTracker(mergeGap, maxRanges);
+            shortTracker.markChanges(previousShorts, previousCount, shorts, count);
+
+            final boolean[] floatChanged = new boolean[count];
+            final boolean[] shortChanged = new boolean[count];
+            for (int i = 0; i < count; ++i) {
+                floatChanged[i] = i >= previousCount || previousFloats[i] != floats[i];
+                shortChanged[i] = i >= previousCount || previousShorts[i] != shorts[i];
+            }
+            assertInvariants(floatTracker, mergeGap, maxRanges, floatChanged);
+            assertInvariants(shortTracker, mergeGap, maxRanges, shortChanged);
+            if (floatTracker.getRangeCount() > 0) {
+                assertTrue(floatTracker.getEnd(floatTracker.getRangeCount() - 1) <= count);
+            }
+            if (shortTracker.getRangeCount() > 0) {
+                assertTrue(shortTracker.getEnd(shortTracker.getRangeCount() - 1) <= count);
+            }
+        }
+    }
+
+    private static void assertRange(DirtyRangeTracker tracker, int range, int start, int end) {
+        assertEquals("start of range " + range, start, tracker.getStart(range));
+        assertEquals("end of range " + range, end, tracker.getEnd(range));
+    }
+
+    /*
+     * Ranges are non-empty, sorted, more than the merge gap apart, at most maxRanges, and cover
+     * every marked element. Each range starts and ends on a marked element.
+     */
+    private static void assertInvariants(DirtyRangeTracker tracker, int mergeGap, int maxRanges,
+                                         boolean[] marked) {
+        final int count = tracker.getRangeCount();
+        assertTrue("too many ranges: " + count, count <= maxRanges);
+        assertEquals(count == 0, tracker.isEmpty());
+        final boolean[] covered = new boolean[marked.length];
+        for (int r = 0; r < count; ++r) {
+            final int start = tracker.getStart(r);
+            final int end = tracker.getEnd(r);
+            assertTrue("empty range " + r, start < end);
+            if (r > 0) {
+                assertTrue("range " + r + " not after the previous one plus the gap",
+                        start > tracker.getEnd(r - 1) + mergeGap);
+            }
+            assertTrue(marked[start]);
+            assertTrue(marked[end - 1]);
+            for (int i = start; i < end; ++i) {
+                covered[i] = true;
+            }
+        }
+        for (int i = 0; i < marked.length; ++i) {
+            if (marked[i]) {
+                assertTrue("element " + i + " not covered", covered[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.google.ar.core.examples.java.helloar;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PointQuantizerTest {
+
+    @Test
+    public void decodedPointsAreWithinMaxError() {
+        final Random random = new Random(1);
+        final float[] decoded = new float[3];
+        for (int round = 0; round < 200; ++round) {
+            final int count = 1 + random.nextInt(500);
+            final float spread = (float) Math.pow(2.0, random.nextInt(24) - 4) * random.nextFloat();
+            final float[] positions = randomPositions(random, count, spread);
+            final float radius = PointQuantizer.boundingRadius(positions, count);
+            final short[] out = new short[PointQuantizer.SHORTS_PER_POINT * count];
+            PointQuantizer.encode(positions, new short[count], identity(count), count, radius,
+                    out);
+
+            // Allows for the float rounding of the scale on top of the quantization error.
+            final double bound = PointQuantizer.maxError(radius) + 1.0e-6 * radius;
+            for (int i = 0; i < count; ++i) {
+                PointQuantizer.decode(out, i, radius, decoded);
+                final double dx = decoded[0] - positions[3 * i];
+                final double dy = decoded[1] - positions[3 * i + 1];
+                final double dz = decoded[2] - positions[3 * i + 2];
+                final double error = Math.sqrt(dx * dx + dy * dy + dz * dz);
+                assertTrue("error " + error + " over " + bound + " at radius " + radius,
+                        error <= bound);
+            }
+        }
+    }
+
+    @Test
+    public void boundingRadiusIsPowerOfTwoBoundingEveryCoordinate() {
+        final Random random = new Random(2);
+        for (int round = 0; round < 1000; ++round) {
+            final int count = 1 + random.nextInt(50);
+            final float spread = (float) Math.pow(2.0, random.nextInt(30) - 8) * random.nextFloat();
+            final float[] positions = randomPositions(random, count, spread);
+            final float radius = PointQuantizer.boundingRadius(positions, count);
+
+            assertTrue(radius >= 1.0f);
+            assertEquals("not a power of two: " + radius, radius,
+                    (float) Math.pow(2.0, Math.getExponent(radius)), 0.0f);
+            float max = 0.0f;
+            for (int i = 0; i < 3 * count; ++i) {
+                max = Math.max(max, Math.abs(positions[i]));
+            }
+            assertTrue(max <= radius);
+            assertTrue("not the smallest: " + radius + " for " + max,
+                    radius == 1.0f || max > radius / 2.0f);
+        }
+    }
+
+    @Test
+    public void boundingRadiusOfExactPowerOfTwo() {
+        assertEquals(1.0f, PointQuantizer.boundingRadius(new float[] {0f, 0f, 0f}, 1), 0.0f);
+        assertEquals(8.0f, PointQuantizer.boundingRadius(new float[] {0f, -8f, 3f}, 1), 0.0f);
+        assertEquals(16.0f, PointQuantizer.boundingRadius(new float[] {8.5f, 0f, 0f}, 1), 0.0f);
+        // Coordinates past count are ignored.
+        assertEquals(1.0f, PointQuantizer.boundingRadius(new float[] {0f, 0f, 0f, 100f}, 1), 0.0f);
+    }
+
+    @Test
+    public void quantizeClampsOutsideRadius() {
+        final float[] positions = {5f, -5f, 1f, -1f, 0.5f, 0f};
+        final short[] out = new short[2 * PointQuantizer.SHORTS_PER_POINT];
+        PointQuantizer.encode(positions, new short[2], new int[] {0, 1}, 2, 1.0f, out);
+        assertEquals(PointQuantizer.MAX_QUANTIZED, out[0]);
+        assertEquals(-PointQuantizer.MAX_QUANTIZED, out[1]);
+        assertEquals(PointQuantizer.MAX_QUANTIZED, out[2]);
+        assertEquals(-PointQuantizer.MAX_QUANTIZED, out[4]);
+        assertEquals(Math.round(0.5f * PointQuantizer.MAX_QUANTIZED), out[5]);
+        assertEquals(0, out[6]);
+    }
+
+    @Test
+    public void styleRoundTrips() {
+        for (int index = 0; index < 256; ++index) {
+            for (int size = 0; size < 256; size += 5) {
+                final short style = PointQuantizer.style(index, size);
+                assertEquals(index, style & 0xFF);
+                assertEquals(size, (style >> 8) & 0xFF);
+            }
+        }
+    }
+
+    @Test
+    public void styleBytesMatchVertexLayout() {
+        final short[] out = new short[PointQuantizer.SHORTS_PER_POINT];
+        PointQuantizer.encode(new float[] {0.25f, -0.5f, 0.75f},
+                new short[] {PointQuantizer.style(11, 200)}, new int[] {0}, 1, 1.0f, out);
+
+        // As uploaded on a little endian device.
+        final ByteBuffer bytes = ByteBuffer.allocate(PointQuantizer.BYTES_PER_POINT)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        bytes.asShortBuffer().put(out);
+        assertEquals(11, bytes.get(PointQuantizer.STYLE_OFFSET) & 0xFF);
+        assertEquals(200, bytes.get(PointQuantizer.STYLE_OFFSET + 1) & 0xFF);
+        assertEquals(out[0], bytes.getShort(PointQuantizer.POSITION_OFFSET));
+    }
+
+    @Test
+    public void encodeUsesIndexedSubset() {
+        final float[] positions = {
+                0.1f, 0.2f, 0.3f,
+                0.4f, 0.5f, 0.6f,
+                -0.7f, -0.8f, -0.9f,
+                0.0f, 1.0f, -1.0f,
+        };
+        final short[] styles = {
+                PointQuantizer.style(0, 1),
+                PointQuantizer.style(1, 2),
+                PointQuantizer.style(2, 3),
+                PointQuantizer.style(3, 4),
+        };
+        final int[] indices = {3, 0, 2, 1};
+        final short[] out = new short[4 * PointQuantizer.SHORTS_PER_POINT];
+        // A sentinel after the encoded points must stay untouched.
+        final short[] padded = new short[out.length + 1];
+        padded[out.length] = 12345;
+
+        PointQuantizer.encode(positions, styles, indices, 3, 1.0f, padded);
+        PointQuantizer.encode(positions, styles, indices, 4, 1.0f, out);
+        assertEquals(0, padded[3 * PointQuantizer.SHORTS_PER_POINT]);
+        assertEquals(12345, padded[out.length]);
+
+        final float[] decoded = new float[3];
+        for (int k = 0; k < indices.length; ++k) {
+            final int i = indices[k];
+            PointQuantizer.decode(out, k, 1.0f, decoded);
+            for (int axis = 0; axis < 3; ++axis) {
+                assertEquals(positions[3 * i + axis], decoded[axis],
+                        PointQuantizer.scale(1.0f));
+            }
+            assertEquals(styles[i], out[PointQuantizer.SHORTS_PER_POINT * k + 3]);
+            if (k < 3) {
+                assertEquals(out[PointQuantizer.SHORTS_PER_POINT * k],
+                        padded[PointQuantizer.SHORTS_PER_POINT * k]);
+            }
+        }
+    }
+
+    private static float[] randomPositions(Random random, int count, float spread) {
+        final float[] positions = new float[3 * count];
+        for (int i = 0; i < positions.length; ++i) {
+            positions[i] = (2.0f * random.nextFloat() - 1.0f) * spread;
+        }
+        return positions;
+    }
+
+    private static int[] identity(int count) {
+        final int[] indices = new int[count];
+        for (int i = 0; i < count; ++i) {
+            indices[i] = i;
+        }
+        return indices;
+    }
+}
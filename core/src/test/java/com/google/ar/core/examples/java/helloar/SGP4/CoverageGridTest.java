@@ -0,0 +1,186 @@
+package com.google.ar.core.examples.java.helloar.SGP4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CoverageGridTest {
+
+    private static final double EARTH_RADIUS = 6378.135;
+    private static final double RESOLUTION = 1.0;        // degrees
+    private static final double MIN_ELEVATION = 10.0;    // degrees
+    // Cell centers this close to the edge of a footprint may count either way.
+    private static final double EDGE_TOLERANCE = 1.0e-9; // radians
+
+    private final Random mRandom = new Random(1);
+    private CoverageGrid mGrid;
+
+    @Before
+    public void setUp() {
+        mGrid = new CoverageGrid(RESOLUTION, MIN_ELEVATION);
+    }
+
+    @After
+    public void tearDown() {
+        mGrid.shutdown();
+    }
+
+    @Test
+    public void matchesBruteForce() {
+        final int count = 2000;
+        final double[] lat = new double[count];
+        final double[] lon = new double[count];
+        final double[] alt = new double[count];
+        randomize(lat, lon, alt, 0, count);
+
+        mGrid.update(lat, lon, alt, count);
+        assertMatchesBruteForce(lat, lon, alt, count);
+    }
+
+    @Test
+    public void matchesBruteForceAfterMoves() {
+        final int count = 1000;
+        final double[] lat = new double[count];
+        final double[] lon = new double[count];
+        final double[] alt = new double[count];
+        randomize(lat, lon, alt, 0, count);
+        mGrid.update(lat, lon, alt, count);
+
+        for (int round = 0; round < 3; ++round) {
+            // Move a third of the satellites, the others must keep their stamps.
+            for (int i = 0; i < count; ++i) {
+                if (mRandom.nextInt(3) == 0) {
+                    randomize(lat, lon, alt, i, i + 1);
+                }
+            }
+            mGrid.update(lat, lon, alt, count);
+            assertMatchesBruteForce(lat, lon, alt, count);
+        }
+    }
+
+    @Test
+    public void removesFootprints() {
+        final int count = 1000;
+        final double[] lat = new double[count];
+        final double[] lon = new double[count];
+        final double[] alt = new double[count];
+        randomize(lat, lon, alt, 0, count);
+        mGrid.update(lat, lon, alt, count);
+
+        // Fewer satellites, and some without a position.
+        for (int i = 0; i < count; i += 7) {
+            alt[i] = Double.NaN;
+        }
+        mGrid.update(lat, lon, alt, count / 2);
+        assertMatchesBruteForce(lat, lon, alt, count / 2);
+
+        mGrid.update(lat, lon, alt, 0);
+        for (int cell : mGrid.getCounts()) {
+            assertEquals(0, cell);
+        }
+    }
+
+    @Test
+    public void wrapsAtAntimeridianAndPoles() {
+        final double[] lat = {0.0, Math.toRadians(89.9), Math.toRadians(-89.9), 0.3};
+        final double[] lon = {Math.toRadians(179.9), 0.0, 2.0, Math.toRadians(-179.95)};
+        final double[] alt = {35786.0, 800.0, 20200.0, 500.0};
+        mGrid.update(lat, lon, alt, lat.length);
+        assertMatchesBruteForce(lat, lon, alt, lat.length);
+        assertTrue(mGrid.getCount(0.0, 179.5) >= 1);
+        assertTrue(mGrid.getCount(0.0, -179.5) >= 1);
+    }
+
+    @Test
+    public void getCountReadsContainingCell() {
+        final double[] lat = {Math.toRadians(45.0)};
+        final double[] lon = {Math.toRadians(-120.0)};
+        final double[] alt = {1000.0};
+        mGrid.update(lat, lon, alt, 1);
+        assertEquals(1, mGrid.getCount(45.2, -119.7));
+        assertEquals(0, mGrid.getCount(-45.0, 60.0));
+    }
+
+    /*
+     * Positions from low orbit to beyond geostationary altitude.
+     */
+    private void randomize(double[] lat, double[] lon, double[] alt, int from, int to) {
+        for (int i = from; i < to; ++i) {
+            lat[i] = Math.asin(2.0 * mRandom.nextDouble() - 1.0);
+            lon[i] = (2.0 * mRandom.nextDouble() - 1.0) * Math.PI;
+            alt[i] = 200.0 + 40000.0 * mRandom.nextDouble() * mRandom.nextDouble();
+        }
+    }
+
+    /*
+     * Counts, for every cell center, the satellites whose footprint contains it by angular
+     * distance, and compares with the grid. Angles are compared as squared chord lengths between
+     * unit vectors, which grow with the angle, to keep trigonometry out of the inner loop.
+     */
+    private void assertMatchesBruteForce(double[] lat, double[] lon, double[] alt, int count) {
+        final double minElevation = Math.toRadians(MIN_ELEVATION);
+        // Squared chords of the footprint angle minus and plus the tolerance, NaN if none.
+        final double[] inner = new double[count];
+        final double[] outer = new double[count];
+        final double[] points = new double[3 * count]; // Sub-satellite points, unit vectors
+        for (int i = 0; i < count; ++i) {
+            final double angle = alt[i] >= 0.0
+                    ? Math.acos(EARTH_RADIUS / (EARTH_RADIUS + alt[i]) * Math.cos(minElevation))
+                            - minElevation
+                    : Double.NaN;
+            inner[i] = squaredChord(angle - EDGE_TOLERANCE);
+            outer[i] = squaredChord(angle + EDGE_TOLERANCE);
+            toUnitVector(lat[i], lon[i], points, 3 * i);
+        }
+        final double[] cell = new double[3];
+
+        final int[] counts = mGrid.getCounts();
+        final int columns = mGrid.getColumns();
+        for (int row = 0; row < mGrid.getRows(); ++row) {
+            final double cellLat = Math.toRadians(-90.0 + (row + 0.5) * RESOLUTION);
+            for (int column = 0; column < columns; ++column) {
+                final double cellLon = Math.toRadians(-180.0 + (column + 0.5) * RESOLUTION);
+                toUnitVector(cellLat, cellLon, cell, 0);
+                int inside = 0;
+                int edge = 0;
+                for (int i = 0; i < count; ++i) {
+                    if (Double.isNaN(inner[i])) {
+                        continue;
+                    }
+                    final double dx = cell[0] - points[3 * i];
+                    final double dy = cell[1] - points[3 * i + 1];
+                    final double dz = cell[2] - points[3 * i + 2];
+                    final double distance = dx * dx + dy * dy + dz * dz;
+                    if (distance < inner[i]) {
+                        inside++;
+                    } else if (distance <= outer[i]) {
+                        edge++;
+                    }
+                }
+                final int actual = counts[row * columns + column];
+                assertTrue("cell " + row + "," + column + ": " + actual + " instead of "
+                        + inside + (edge > 0 ? " + " + edge + " on the edge" : ""),
+                        actual >= inside && actual <= inside + edge);
+            }
+        }
+    }
+
+    private static void toUnitVector(double lat, double lon, double[] out, int offset) {
+        out[offset] = Math.cos(lat) * Math.cos(lon);
+        out[offset + 1] = Math.cos(lat) * Math.sin(lon);
+        out[offset + 2] = Math.sin(lat);
+    }
+
+    /*
+     * Squared distance between two unit vectors a central angle apart.
+     */
+    private static double squaredChord(double angle) {
+        final double chord = 2.0 * Math.sin(0.5 * Math.max(0.0, angle));
+        return chord * chord;
+    }
+}
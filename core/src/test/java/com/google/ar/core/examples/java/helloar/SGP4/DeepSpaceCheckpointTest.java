@@ -0,0 +1,90 @@
+package com.google.ar.core.examples.java.helloar.SGP4;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Scrubbing a resonant deep space object back and forth through time, which restarts the
+ * resonance integrator from its checkpoints, must give the same results as a freshly initialized
+ * record integrating from epoch.
+ */
+public class DeepSpaceCheckpointTest {
+
+    private static final char OPSMODE = SGP4utils.OPSMODE_IMPROVED;
+    private static final SGP4unit.Gravconsttype GRAVCONST = SGP4unit.Gravconsttype.wgs72;
+
+    // Geostationary, 1 day resonance.
+    private static final String[] GEO = {
+            "GEO",
+            "1 28626U 05008A   06176.46683397 -.00000205  00000-0  10000-3 0  2190",
+            "2 28626   0.0019 286.9433 0000335  13.7918  55.6504  1.00270176  4891",
+    };
+    // Molniya, half day resonance.
+    private static final String[] MOLNIYA = {
+            "MOLNIYA",
+            "1 08195U 75081A   06176.33215444  .00000099  00000-0  11873-3 0   813",
+            "2 08195  64.1586 279.0717 6877146 264.7651  20.2257  2.00491383225656",
+    };
+
+    private static final double SPAN_MINUTES = 2.0 * 365.25 * 1440.0; // +-2 years
+    private static final int SAMPLES = 2000;
+
+    @Test
+    public void geoMatchesIntegrationFromEpoch() {
+        assertScrubbingMatches(GEO, 1);
+    }
+
+    @Test
+    public void molniyaMatchesIntegrationFromEpoch() {
+        assertScrubbingMatches(MOLNIYA, 2);
+    }
+
+    @Test
+    public void initClearsCheckpoints() {
+        final SGP4SatData sat = init(MOLNIYA);
+        final double[] r = new double[3];
+        final double[] v = new double[3];
+        assertTrue(SGP4unit.sgp4(sat, SPAN_MINUTES, r, v));
+        assertTrue(SGP4unit.sgp4(sat, -SPAN_MINUTES, r, v));
+        assertTrue(sat.dsCheckpointCountFwd > 0);
+        assertTrue(sat.dsCheckpointCountBack > 0);
+
+        assertTrue(SGP4utils.readTLEandIniSGP4(MOLNIYA[0], MOLNIYA[1], MOLNIYA[2], OPSMODE,
+                GRAVCONST, sat));
+        assertEquals(0, sat.dsCheckpointCountFwd);
+        assertEquals(0, sat.dsCheckpointCountBack);
+    }
+
+    private static void assertScrubbingMatches(String[] tle, int irez) {
+        final SGP4SatData scrubbed = init(tle);
+        assertEquals(irez, scrubbed.irez);
+
+        final Random random = new Random(irez);
+        final double[] r = new double[3];
+        final double[] v = new double[3];
+        final double[] expectedR = new double[3];
+        final double[] expectedV = new double[3];
+        for (int i = 0; i < SAMPLES; ++i) {
+            final double t = (2.0 * random.nextDouble() - 1.0) * SPAN_MINUTES;
+            final SGP4SatData fresh = init(tle);
+            final boolean expected = SGP4unit.sgp4(fresh, t, expectedR, expectedV);
+            assertEquals("status at " + t, expected, SGP4unit.sgp4(scrubbed, t, r, v));
+            // Bit identical, the checkpoints hold the exact integrator state.
+            assertArrayEquals("position at " + t, expectedR, r, 0.0);
+            assertArrayEquals("velocity at " + t, expectedV, v, 0.0);
+        }
+        assertTrue(scrubbed.dsCheckpointCountFwd > 0);
+        assertTrue(scrubbed.dsCheckpointCountBack > 0);
+    }
+
+    private static SGP4SatData init(String[] tle) {
+        final SGP4SatData sat = new SGP4SatData();
+        assertTrue(SGP4utils.readTLEandIniSGP4(tle[0], tle[1], tle[2], OPSMODE, GRAVCONST, sat));
+        return sat;
+    }
+}
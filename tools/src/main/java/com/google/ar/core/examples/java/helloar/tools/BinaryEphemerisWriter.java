@@ -0,0 +1,86 @@
+package com.google.ar.core.examples.java.helloar.tools;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Compact columnar ephemeris file, little endian throughout so it maps directly onto numpy
+ * arrays.
+ *
+ * <pre>
+ * header:  "SGPE"  magic
+ *          int32   format version, 1
+ *          float64 julian date of step 0
+ *          float64 minutes between steps
+ *          int32   number of steps per satellite
+ * tiles, until the end of the file:
+ *          int32   numSatellites
+ *          int32   firstStep
+ *          int32   numSteps
+ *          int32   satnum[numSatellites]
+ *          float32 x, y, z[numSatellites * numSteps]    TEME position, km
+ *          float32 vx, vy, vz[numSatellites * numSteps] TEME velocity, km/s
+ *          int8    error[numSatellites * numSteps]      0 if valid, else SGP4SatData.error
+ * </pre>
+ *
+ * Columns are satellite major, see {@link EphemerisTile}. Single precision keeps positions to a
+ * few metres at geostationary distance, below the accuracy of SGP4 itself.
+ */
+public class BinaryEphemerisWriter extends EphemerisWriter {
+
+    public static final byte[] MAGIC = {'S', 'G', 'P', 'E'};
+    public static final int VERSION = 1;
+
+    public BinaryEphemerisWriter(WritableByteChannel channel) {
+        super(channel);
+        mBuffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public void writeHeader(double startJulianDate, double stepMinutes, int numSteps)
+            throws IOException {
+        ensureRemaining(28);
+        mBuffer.put(MAGIC);
+        mBuffer.putInt(VERSION);
+        mBuffer.putDouble(startJulianDate);
+        mBuffer.putDouble(stepMinutes);
+        mBuffer.putInt(numSteps);
+    }
+
+    @Override
+    public void writeTile(EphemerisTile tile) throws IOException {
+        ensureRemaining(12);
+        mBuffer.putInt(tile.numSatellites);
+        mBuffer.putInt(tile.firstStep);
+        mBuffer.putInt(tile.numSteps);
+        for (int i = 0; i < tile.numSatellites; ++i) {
+            ensureRemaining(4);
+            mBuffer.putInt(tile.satnum[i]);
+        }
+        final int size = tile.size();
+        putFloats(tile.x, size);
+        putFloats(tile.y, size);
+        putFloats(tile.z, size);
+        putFloats(tile.vx, size);
+        putFloats(tile.vy, size);
+        putFloats(tile.vz, size);
+        for (int offset = 0; offset < size; ) {
+            ensureRemaining(1);
+            final int count = Math.min(size - offset, mBuffer.remaining());
+            mBuffer.put(tile.error, offset, count);
+            offset += count;
+        }
+    }
+
+    // Bulk copy through a float view of the buffer, as much as fits per flush.
+    private void putFloats(float[] column, int size) throws IOException {
+        for (int offset = 0; offset < size; ) {
+            ensureRemaining(4);
+            final int count = Math.min(size - offset, mBuffer.remaining() / 4);
+            mBuffer.asFloatBuffer().put(column, offset, count);
+            mBuffer.position(mBuffer.position() + count * 4);
+            offset += count;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.google.ar.core.examples.java.helloar.tools;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Plain text ephemeris, one row per satellite and step:
+ * {@code satnum,julian_date,x,y,z,vx,vy,vz,error}. Rows of failed samples keep the error code
+ * and leave the state empty. About three and a half times the size of {@link BinaryEphemerisWriter}.
+ */
+public class CsvEphemerisWriter extends EphemerisWriter {
+
+    private static final int MAX_ROW_LENGTH = 256;
+
+    private final StringBuilder mRow = new StringBuilder(MAX_ROW_LENGTH);
+    private double mStartJulianDate;
+    private double mStepDays;
+
+    public CsvEphemerisWriter(WritableByteChannel channel) {
+        super(channel);
+    }
+
+    @Override
+    public void writeHeader(double startJulianDate, double stepMinutes, int numSteps)
+            throws IOException {
+        mStartJulianDate = startJulianDate;
+        mStepDays = stepMinutes / 1440.0;
+        mRow.setLength(0);
+        mRow.append("satnum,julian_date,x,y,z,vx,vy,vz,error\n");
+        putRow();
+    }
+
+    @Override
+    public void writeTile(EphemerisTile tile) throws IOException {
+        for (int i = 0; i < tile.numSatellites; ++i) {
+            for (int k = 0; k < tile.numSteps; ++k) {
+                final int j = i * tile.numSteps + k;
+                mRow.setLength(0);
+                mRow.append(tile.satnum[i]).append(',')
+                        .append(mStartJulianDate + (tile.firstStep + k) * mStepDays).append(',');
+                if (tile.error[j] == 0) {
+                    mRow.append(tile.x[j]).append(',')
+                            .append(tile.y[j]).append(',')
+                            .append(tile.z[j]).append(',')
+                            .append(tile.vx[j]).append(',')
+                            .append(tile.vy[j]).append(',')
+                            .append(tile.vz[j]).append(',');
+                } else {
+                    mRow.append(",,,,,,");
+                }
+                mRow.append(tile.error[j]).append('\n');
+                putRow();
+            }
+        }
+    }
+
+    // Rows are ASCII, so characters map to bytes directly.
+    private void putRow() throws IOException {
+        final int length = mRow.length();
+        ensureRemaining(length);
+        for (int i = 0; i < length; ++i) {
+            mBuffer.put((byte) mRow.charAt(i));
+        }
+    }
+}
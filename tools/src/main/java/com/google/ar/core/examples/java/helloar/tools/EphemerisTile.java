@@ -0,0 +1,45 @@
+package com.google.ar.core.examples.java.helloar.tools;
+
+/**
+ * Propagation results for a block of satellites over a run of time steps, stored by column.
+ * Each column holds {@code numSatellites * numSteps} values, satellite major: the value of
+ * satellite {@code i} at step {@code firstStep + k} is at index {@code i * numSteps + k}.
+ *
+ * Tiles have a fixed capacity and are reused, which bounds the memory of a run regardless of
+ * the catalog size and the number of time steps.
+ */
+public class EphemerisTile {
+
+    public final int maxSatellites;
+    public final int maxSteps;
+
+    public int numSatellites;
+    public int firstStep;
+    public int numSteps;
+
+    public final int[] satnum;
+    // TEME position in km and velocity in km/s.
+    public final float[] x, y, z;
+    public final float[] vx, vy, vz;
+    // SGP4SatData.error of every sample, 0 if the sample is valid.
+    public final byte[] error;
+
+    public EphemerisTile(int maxSatellites, int maxSteps) {
+        this.maxSatellites = maxSatellites;
+        this.maxSteps = maxSteps;
+        final int capacity = maxSatellites * maxSteps;
+        satnum = new int[maxSatellites];
+        x = new float[capacity];
+        y = new float[capacity];
+        z = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        vz = new float[capacity];
+        error = new byte[capacity];
+    }
+
+    /** @return the number of samples, {@code numSatellites * numSteps} */
+    public int size() {
+        return numSatellites * numSteps;
+    }
+}
@@ -0,0 +1,330 @@
+package com.google.ar.core.examples.java.helloar.tools;
+
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4SatData;
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4unit;
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4utils;
+import com.google.ar.core.examples.java.helloar.SGP4.SimulationClock;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Generates ephemerides of a whole catalog over a fixed time grid, with the same SGP4 model and
+ * options as the app.
+ *
+ * The TLE file is read one block of satellites at a time. Each block is propagated over a run of
+ * time steps into a tile, in parallel, while the previous tile is written by a separate thread.
+ * Two tiles are allocated in total, so memory does not grow with the catalog or the time span.
+ * Satellites of a block step forward in time from tile to tile, which keeps the deep space
+ * integrator on its cheap forward path.
+ */
+public class EphemerisTool {
+
+    private static final String USAGE =
+            "usage: ephemeris --tle FILE --out FILE [options]\n"
+            + "  --start TIME      julian date or UTC date yyyy-mm-ddThh:mm:ss (default: now)\n"
+            + "  --days N          time span in days (default: 1)\n"
+            + "  --step N          minutes between steps (default: 1)\n"
+            + "  --format F        binary or csv (default: binary)\n"
+            + "  --threads N       propagation threads (default: one per processor)\n"
+            + "  --block N         satellites per tile (default: 256)\n"
+            + "  --tile-steps N    time steps per tile (default: 1440)";
+
+    private static final double MINUTES_PER_DAY = 1440.0;
+
+    // Same model as SGP4track, so the results match the app.
+    private static final char OPSMODE = SGP4utils.OPSMODE_IMPROVED;
+    private static final SGP4unit.Gravconsttype GRAVCONST = SGP4unit.Gravconsttype.wgs72;
+
+    // Satellites per task, as in GroundTrack.
+    private static final int CHUNK_SIZE = 32;
+
+    public enum Format {
+        BINARY,
+        CSV
+    }
+
+    private Path mTleFile;
+    private Path mOutFile;
+    private double mStartJulianDate = SimulationClock.currentJulianDate();
+    private double mDays = 1.0;
+    private double mStepMinutes = 1.0;
+    private Format mFormat = Format.BINARY;
+    private int mThreads = Runtime.getRuntime().availableProcessors();
+    private int mBlockSize = 256;
+    private int mTileSteps = 1440;
+
+    // Totals of a run.
+    private long mSatellites;
+    private long mSkipped;
+    private long mSamples;
+    private long mFailedSamples;
+
+    public static void main(String[] args) {
+        final EphemerisTool tool = new EphemerisTool();
+        try {
+            tool.parseArguments(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("ephemeris: " + e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        try {
+            final long start = System.nanoTime();
+            tool.run();
+            System.err.println(String.format(Locale.US,
+                    "ephemeris: %d satellites (%d skipped), %d samples (%d failed) in %.1f s",
+                    tool.mSatellites, tool.mSkipped, tool.mSamples, tool.mFailedSamples,
+                    (System.nanoTime() - start) * 1.0e-9));
+        } catch (IOException e) {
+            System.err.println("ephemeris: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+            final String value = args[i + 1];
+            try {
+                switch (args[i]) {
+                    case "--tle":        mTleFile = Paths.get(value); break;
+                    case "--out":        mOutFile = Paths.get(value); break;
+                    case "--start":      mStartJulianDate = parseTime(value); break;
+                    case "--days":       mDays = Double.parseDouble(value); break;
+                    case "--step":       mStepMinutes = Double.parseDouble(value); break;
+                    case "--format":     mFormat = Format.valueOf(value.toUpperCase(Locale.US));
+                                         break;
+                    case "--threads":    mThreads = Integer.parseInt(value); break;
+                    case "--block":      mBlockSize = Integer.parseInt(value); break;
+                    case "--tile-steps": mTileSteps = Integer.parseInt(value); break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value for " + args[i] + ": " + value);
+            }
+        }
+        if (mTleFile == null || mOutFile == null) {
+            throw new IllegalArgumentException("--tle and --out are required");
+        }
+        if (mDays < 0.0 || mStepMinutes <= 0.0 || mThreads < 1 || mBlockSize < 1
+                || mTileSteps < 1) {
+            throw new IllegalArgumentException("--days must not be negative, "
+                    + "--step, --threads, --block and --tile-steps must be positive");
+        }
+    }
+
+    static double parseTime(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            // Not a julian date, try a calendar date.
+        }
+        try {
+            final LocalDateTime time = LocalDateTime.parse(
+                    value.endsWith("Z") ? value.substring(0, value.length() - 1) : value);
+            return SGP4utils.jday(time.getYear(), time.getMonthValue(), time.getDayOfMonth(),
+                    time.getHour(), time.getMinute(),
+                    time.getSecond() + time.getNano() * 1.0e-9);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid time " + value);
+        }
+    }
+
+    void run() throws IOException {
+        final int numSteps = (int) Math.floor(mDays * MINUTES_PER_DAY / mStepMinutes + 1e-9) + 1;
+        final int tileSteps = Math.min(mTileSteps, numSteps);
+
+        final ExecutorService workers = Executors.newFixedThreadPool(mThreads);
+        final ExecutorService writerThread = Executors.newSingleThreadExecutor();
+        final EphemerisTile[] tiles = {
+                new EphemerisTile(mBlockSize, tileSteps), new EphemerisTile(mBlockSize, tileSteps)
+        };
+        final List<Future<Void>> pendingWrites = new ArrayList<>();
+        pendingWrites.add(null);
+        pendingWrites.add(null);
+
+        final String[] names = new String[mBlockSize];
+        final String[] lines1 = new String[mBlockSize];
+        final String[] lines2 = new String[mBlockSize];
+
+        try (BufferedReader input = Files.newBufferedReader(mTleFile, StandardCharsets.US_ASCII);
+             FileChannel output = FileChannel.open(mOutFile, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            final TleReader reader = new TleReader(input);
+            final EphemerisWriter writer = mFormat == Format.CSV
+                    ? new CsvEphemerisWriter(output) : new BinaryEphemerisWriter(output);
+            writer.writeHeader(mStartJulianDate, mStepMinutes, numSteps);
+
+            int current = 0;
+            int read;
+            while ((read = reader.read(names, lines1, lines2, mBlockSize)) > 0) {
+                final SGP4SatData[] block = initialize(workers, names, lines1, lines2, read);
+                final int count = compact(block, read);
+                mSatellites += count;
+                mSkipped += read - count;
+                if (count == 0) {
+                    continue;
+                }
+                for (int firstStep = 0; firstStep < numSteps; firstStep += tileSteps) {
+                    final EphemerisTile tile = tiles[current];
+                    await(pendingWrites.get(current));
+                    tile.numSatellites = count;
+                    tile.firstStep = firstStep;
+                    tile.numSteps = Math.min(tileSteps, numSteps - firstStep);
+                    propagate(workers, block, tile);
+                    pendingWrites.set(current, writerThread.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() throws IOException {
+                            writer.writeTile(tile);
+                            return null;
+                        }
+                    }));
+                    current ^= 1;
+                }
+            }
+            await(pendingWrites.get(0));
+            await(pendingWrites.get(1));
+            writer.close();
+        } finally {
+            workers.shutdownNow();
+            writerThread.shutdownNow();
+        }
+    }
+
+    private SGP4SatData[] initialize(ExecutorService workers, final String[] names,
+                                     final String[] lines1, final String[] lines2, int count) {
+        final SGP4SatData[] block = new SGP4SatData[count];
+        final List<Callable<Void>> tasks = new ArrayList<>();
+        for (int begin = 0; begin < count; begin += CHUNK_SIZE) {
+            final int from = begin;
+            final int to = Math.min(begin + CHUNK_SIZE, count);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (int i = from; i < to; ++i) {
+                        final SGP4SatData sat = new SGP4SatData();
+                        if (SGP4utils.readTLEandIniSGP4(names[i], lines1[i], lines2[i], OPSMODE,
+                                GRAVCONST, sat)) {
+                            block[i] = sat;
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+        invokeAll(workers, tasks);
+        return block;
+    }
+
+    // Moves the satellites that initialized to the front, reports the others.
+    private static int compact(SGP4SatData[] block, int count) {
+        int valid = 0;
+        for (int i = 0; i < count; ++i) {
+            if (block[i] != null) {
+                block[valid++] = block[i];
+            }
+        }
+        if (valid < count) {
+            System.err.println("ephemeris: skipped " + (count - valid)
+                    + " element sets that failed to initialize");
+        }
+        return valid;
+    }
+
+    private void propagate(ExecutorService workers, final SGP4SatData[] block,
+                           final EphemerisTile tile) {
+        final List<Callable<Long>> tasks = new ArrayList<>();
+        for (int begin = 0; begin < tile.numSatellites; begin += CHUNK_SIZE) {
+            final int from = begin;
+            final int to = Math.min(begin + CHUNK_SIZE, tile.numSatellites);
+            tasks.add(new Callable<Long>() {
+                @Override
+                public Long call() {
+                    final double[] r = new double[3];
+                    final double[] v = new double[3];
+                    long failed = 0;
+                    for (int i = from; i < to; ++i) {
+                        final SGP4SatData sat = block[i];
+                        tile.satnum[i] = sat.satnum;
+                        for (int k = 0, j = i * tile.numSteps; k < tile.numSteps; ++k, ++j) {
+                            final double julianDate = mStartJulianDate
+                                    + (tile.firstStep + k) * mStepMinutes / MINUTES_PER_DAY;
+                            final double minutes = (julianDate - sat.jdsatepoch) * MINUTES_PER_DAY;
+                            if (SGP4unit.sgp4(sat, minutes, r, v)) {
+                                tile.x[j] = (float) r[0];
+                                tile.y[j] = (float) r[1];
+                                tile.z[j] = (float) r[2];
+                                tile.vx[j] = (float) v[0];
+                                tile.vy[j] = (float) v[1];
+                                tile.vz[j] = (float) v[2];
+                                tile.error[j] = 0;
+                            } else {
+                                tile.x[j] = tile.y[j] = tile.z[j] = Float.NaN;
+                                tile.vx[j] = tile.vy[j] = tile.vz[j] = Float.NaN;
+                                tile.error[j] = (byte) Math.max(sat.error, 1);
+                                failed++;
+                            }
+                        }
+                    }
+                    return failed;
+                }
+            });
+        }
+        for (long failed : invokeAll(workers, tasks)) {
+            mFailedSamples += failed;
+        }
+        mSamples += tile.size();
+    }
+
+    private static <T> List<T> invokeAll(ExecutorService workers, List<Callable<T>> tasks) {
+        final List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> future : workers.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Ephemeris generation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Ephemeris generation failed", e.getCause());
+        }
+        return results;
+    }
+
+    private static void await(Future<Void> write) throws IOException {
+        if (write == null) {
+            return;
+        }
+        try {
+            write.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Ephemeris generation interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new RuntimeException("Ephemeris write failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.google.ar.core.examples.java.helloar.tools;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes tiles to a channel through a reusable buffer. Tiles are written in the order they are
+ * computed: all time steps of a block of satellites, then the next block.
+ */
+public abstract class EphemerisWriter {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    protected final WritableByteChannel mChannel;
+    protected final ByteBuffer mBuffer;
+
+    protected EphemerisWriter(WritableByteChannel channel) {
+        mChannel = channel;
+        mBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    /**
+     * Writes the file header. Called once, before the first tile.
+     *
+     * @param startJulianDate julian date of step 0
+     * @param stepMinutes time between steps
+     * @param numSteps number of steps of every satellite
+     */
+    public abstract void writeHeader(double startJulianDate, double stepMinutes, int numSteps)
+            throws IOException;
+
+    public abstract void writeTile(EphemerisTile tile) throws IOException;
+
+    /** Flushes the buffer and closes the channel. */
+    public void close() throws IOException {
+        flush();
+        mChannel.close();
+    }
+
+    protected void flush() throws IOException {
+        mBuffer.flip();
+        while (mBuffer.hasRemaining()) {
+            mChannel.write(mBuffer);
+        }
+        mBuffer.clear();
+    }
+
+    /** Makes room for at least {@code bytes} bytes, at most the buffer size. */
+    protected void ensureRemaining(int bytes) throws IOException {
+        if (mBuffer.remaining() < bytes) {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.google.ar.core.examples.java.helloar.tools;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Load generator for {@link PositionServer}. Concurrent clients request the positions of random
+ * ids from a TLE file for a fixed time, then throughput, latency percentiles and the number of
+ * catalog propagations the server did are printed.
+ */
+public class PositionLoadTest {
+
+    private static final String USAGE =
+            "usage: position-load-test --tle FILE [options]\n"
+            + "  --url URL        server (default: http://127.0.0.1:8080)\n"
+            + "  --clients N      concurrent clients (default: 16)\n"
+            + "  --seconds N      duration (default: 10)\n"
+            + "  --batch N        ids per request (default: 10)";
+
+    public static void main(String[] args) throws Exception {
+        String tle = null;
+        String url = "http://127.0.0.1:8080";
+        int clients = 16;
+        int seconds = 10;
+        int batch = 10;
+        try {
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                switch (args[i]) {
+                    case "--tle":     tle = args[i + 1]; break;
+                    case "--url":     url = args[i + 1]; break;
+                    case "--clients": clients = Integer.parseInt(args[i + 1]); break;
+                    case "--seconds": seconds = Integer.parseInt(args[i + 1]); break;
+                    case "--batch":   batch = Integer.parseInt(args[i + 1]); break;
+                    default: throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+            if (tle == null || args.length % 2 != 0 || clients < 1 || seconds < 1 || batch < 1) {
+                throw new IllegalArgumentException("Invalid arguments");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("position-load-test: " + e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        final int[] satnums = readSatnums(tle);
+        final String before = get(url + "/status");
+        final long deadline = System.nanoTime() + seconds * 1000000000L;
+        final ExecutorService pool = Executors.newFixedThreadPool(clients);
+        final List<Future<long[]>> results = new ArrayList<>();
+        for (int c = 0; c < clients; ++c) {
+            results.add(pool.submit(new Client(url, satnums, batch, deadline, c)));
+        }
+
+        long[] latencies = new long[0];
+        int errors = 0;
+        for (Future<long[]> result : results) {
+            try {
+                final long[] client = result.get();
+                final int offset = latencies.length;
+                latencies = Arrays.copyOf(latencies, offset + client.length);
+                System.arraycopy(client, 0, latencies, offset, client.length);
+            } catch (ExecutionException e) {
+                errors++;
+                System.err.println("position-load-test: client failed: " + e.getCause());
+            }
+        }
+        pool.shutdown();
+        final String after = get(url + "/status");
+
+        Arrays.sort(latencies);
+        System.out.println(String.format(Locale.US,
+                "%d requests in %d s, %.0f requests/s, %d failed clients",
+                latencies.length, seconds, latencies.length / (double) seconds, errors));
+        if (latencies.length > 0) {
+            System.out.println(String.format(Locale.US,
+                    "latency ms: p50 %.2f, p90 %.2f, p99 %.2f, max %.2f",
+                    percentile(latencies, 0.50), percentile(latencies, 0.90),
+                    percentile(latencies, 0.99), latencies[latencies.length - 1] * 1.0e-6));
+        }
+        System.out.println("server status before: " + before);
+        System.out.println("server status after:  " + after);
+    }
+
+    private static class Client implements Callable<long[]> {
+        private final String mUrl;
+        private final int[] mSatnums;
+        private final int mBatch;
+        private final long mDeadline;
+        private final Random mRandom;
+
+        Client(String url, int[] satnums, int batch, long deadline, long seed) {
+            mUrl = url;
+            mSatnums = satnums;
+            mBatch = batch;
+            mDeadline = deadline;
+            mRandom = new Random(seed);
+        }
+
+        @Override
+        public long[] call() throws IOException {
+            long[] latencies = new long[1024];
+            int count = 0;
+            final StringBuilder request = new StringBuilder();
+            while (System.nanoTime() < mDeadline) {
+                request.setLength(0);
+                request.append(mUrl).append("/positions?ids=");
+                for (int k = 0; k < mBatch; ++k) {
+                    request.append(k == 0 ? "" : ",")
+                            .append(mSatnums[mRandom.nextInt(mSatnums.length)]);
+                }
+                final long start = System.nanoTime();
+                get(request.toString());
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = System.nanoTime() - start;
+            }
+            return Arrays.copyOf(latencies, count);
+        }
+    }
+
+    private static String get(String url) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try (InputStream in = connection.getInputStream()) {
+            final ByteArrayOutputStream body = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                body.write(buffer, 0, read);
+            }
+            return new String(body.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // NORAD ids from columns 3-7 of the first TLE lines.
+    private static int[] readSatnums(String path) throws IOException {
+        final int batch = 1024;
+        final String[] names = new String[batch];
+        final String[] lines1 = new String[batch];
+        final String[] lines2 = new String[batch];
+        int[] satnums = new int[batch];
+        int count = 0;
+        try (BufferedReader input = Files.newBufferedReader(Paths.get(path),
+                StandardCharsets.US_ASCII)) {
+            final TleReader reader = new TleReader(input);
+            int read;
+            while ((read = reader.read(names, lines1, lines2, batch)) > 0) {
+                if (count + read > satnums.length) {
+                    satnums = Arrays.copyOf(satnums, 2 * (count + read));
+                }
+                for (int i = 0; i < read; ++i) {
+                    satnums[count++] = Integer.parseInt(lines1[i].substring(2, 7).trim());
+                }
+            }
+        }
+        if (count == 0) {
+            throw new IOException("No element sets in " + path);
+        }
+        return Arrays.copyOf(satnums, count);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))] * 1.0e-6;
+    }
+}
@@ -0,0 +1,354 @@
+package com.google.ar.core.examples.java.helloar.tools;
+
+import com.google.ar.core.examples.java.helloar.SGP4.PassPredictor;
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4SatData;
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4unit;
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4utils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local HTTP server answering position and pass queries for a TLE catalog. Responses are JSON.
+ *
+ * <pre>
+ * GET /positions?ids=25544,43013  TEME position (km) and velocity (km/s), geodetic latitude and
+ *                                 longitude (degrees) and altitude (km) at the current tick
+ * GET /passes?id=25544&amp;lat=48.1&amp;lon=11.6[&amp;alt=0.5][&amp;hours=24][&amp;minElevation=10]
+ *                                 passes over an observer (degrees, km), times as julian dates
+ * GET /status                     catalog size, ticks propagated and requests served
+ * </pre>
+ *
+ * Ids that are not in the catalog or failed to propagate are listed under "missing".
+ *
+ * Position queries read from a {@link SnapshotCache}, so the catalog is propagated at most once
+ * per tick however many clients ask. Requests run on a small fixed pool.
+ */
+public class PositionServer {
+
+    private static final String USAGE =
+            "usage: position-server --tle FILE [options]\n"
+            + "  --port N         port (default: 8080)\n"
+            + "  --bind ADDRESS   address to listen on (default: 127.0.0.1)\n"
+            + "  --threads N      request threads (default: 4)\n"
+            + "  --tick-ms N      maximum age of served positions (default: 1000)";
+
+    private static final double RAD_TO_DEG = 180.0 / Math.PI;
+    private static final double DEG_TO_RAD = Math.PI / 180.0;
+    private static final double MAX_PASS_HOURS = 7 * 24;
+    private static final int MAX_IDS = 10000;
+
+    private final SnapshotCache mCache;
+    private final AtomicLong mRequests = new AtomicLong();
+
+    public PositionServer(SnapshotCache cache) {
+        mCache = cache;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String tle = null;
+        String bind = "127.0.0.1";
+        int port = 8080;
+        int threads = 4;
+        long tickMillis = 1000;
+        try {
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                switch (args[i]) {
+                    case "--tle":     tle = args[i + 1]; break;
+                    case "--bind":    bind = args[i + 1]; break;
+                    case "--port":    port = Integer.parseInt(args[i + 1]); break;
+                    case "--threads": threads = Integer.parseInt(args[i + 1]); break;
+                    case "--tick-ms": tickMillis = Long.parseLong(args[i + 1]); break;
+                    default: throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+            if (tle == null || args.length % 2 != 0 || threads < 1 || tickMillis < 1) {
+                throw new IllegalArgumentException("Invalid arguments");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("position-server: " + e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        // Without it, the separate writes of headers and body wait on delayed ACKs, adding
+        // about 40 ms to every response.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        final SGP4SatData[] catalog = loadCatalog(tle);
+        final PositionServer server = new PositionServer(new SnapshotCache(catalog, tickMillis));
+        server.start(new InetSocketAddress(bind, port), Executors.newFixedThreadPool(threads));
+        System.err.println("position-server: " + catalog.length + " satellites on http://"
+                + bind + ":" + port);
+    }
+
+    static SGP4SatData[] loadCatalog(String path) throws IOException {
+        final int batch = 1024;
+        final String[] names = new String[batch];
+        final String[] lines1 = new String[batch];
+        final String[] lines2 = new String[batch];
+        final List<SGP4SatData> catalog = new ArrayList<>();
+        try (BufferedReader input = Files.newBufferedReader(Paths.get(path),
+                StandardCharsets.US_ASCII)) {
+            final TleReader reader = new TleReader(input);
+            int read;
+            while ((read = reader.read(names, lines1, lines2, batch)) > 0) {
+                for (int i = 0; i < read; ++i) {
+                    final SGP4SatData sat = new SGP4SatData();
+                    if (SGP4utils.readTLEandIniSGP4(names[i], lines1[i], lines2[i],
+                            SGP4utils.OPSMODE_IMPROVED, SGP4unit.Gravconsttype.wgs72, sat)) {
+                        catalog.add(sat);
+                    }
+                }
+            }
+        }
+        return catalog.toArray(new SGP4SatData[catalog.size()]);
+    }
+
+    /**
+     * Starts serving. The server runs until the process exits.
+     *
+     * @param executor runs the request handlers
+     */
+    public HttpServer start(InetSocketAddress address, ExecutorService executor)
+            throws IOException {
+        final HttpServer server = HttpServer.create(address, 0);
+        server.createContext("/positions", new JsonHandler() {
+            @Override
+            String handle(Map<String, String> query) {
+                return positions(query);
+            }
+        });
+        server.createContext("/passes", new JsonHandler() {
+            @Override
+            String handle(Map<String, String> query) {
+                return passes(query);
+            }
+        });
+        server.createContext("/status", new JsonHandler() {
+            @Override
+            String handle(Map<String, String> query) {
+                return status();
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+        return server;
+    }
+
+    String positions(Map<String, String> query) {
+        final String ids = query.get("ids");
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("ids is required");
+        }
+        final String[] tokens = ids.split(",");
+        if (tokens.length > MAX_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_IDS + " ids per request");
+        }
+        final SnapshotCache.Snapshot snapshot = mCache.get();
+        final StringBuilder json = new StringBuilder(64 + 256 * tokens.length);
+        final StringBuilder missing = new StringBuilder();
+        json.append("{\"julianDate\":").append(snapshot.julianDate).append(",\"satellites\":[");
+        boolean first = true;
+        for (String token : tokens) {
+            final int satnum = parseInt("ids", token.trim());
+            final int i = mCache.indexOf(satnum);
+            if (i < 0 || !snapshot.valid[i]) {
+                missing.append(missing.length() == 0 ? "" : ",").append(satnum);
+                continue;
+            }
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            final int j = 3 * i;
+            json.append("{\"satnum\":").append(satnum)
+                    .append(",\"name\":");
+            appendString(json, mCache.getSatellite(i).name);
+            json.append(",\"position\":[").append(snapshot.positions[j]).append(',')
+                    .append(snapshot.positions[j + 1]).append(',')
+                    .append(snapshot.positions[j + 2]).append(']')
+                    .append(",\"velocity\":[").append(snapshot.velocities[j]).append(',')
+                    .append(snapshot.velocities[j + 1]).append(',')
+                    .append(snapshot.velocities[j + 2]).append(']')
+                    .append(",\"latitude\":").append(snapshot.latLonAlt[j] * RAD_TO_DEG)
+                    .append(",\"longitude\":").append(snapshot.latLonAlt[j + 1] * RAD_TO_DEG)
+                    .append(",\"altitude\":").append(snapshot.latLonAlt[j + 2])
+                    .append('}');
+        }
+        json.append("],\"missing\":[").append(missing).append("]}");
+        return json.toString();
+    }
+
+    String passes(Map<String, String> query) {
+        final int satnum = parseInt("id", query.get("id"));
+        final double latitude = parseDouble(query, "lat", Double.NaN);
+        final double longitude = parseDouble(query, "lon", Double.NaN);
+        final double altitude = parseDouble(query, "alt", 0.0);
+        final double hours = parseDouble(query, "hours", 24.0);
+        final double minElevation = parseDouble(query, "minElevation", 10.0);
+        if (Double.isNaN(latitude) || Double.isNaN(longitude)) {
+            throw new IllegalArgumentException("lat and lon are required");
+        }
+        if (hours <= 0.0 || hours > MAX_PASS_HOURS) {
+            throw new IllegalArgumentException("hours must be in (0, " + MAX_PASS_HOURS + "]");
+        }
+        final int index = mCache.indexOf(satnum);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown id " + satnum);
+        }
+
+        // The cached satellite belongs to the snapshot propagation, predict on a private copy.
+        final SGP4SatData cached = mCache.getSatellite(index);
+        final SGP4SatData sat = new SGP4SatData();
+        if (!SGP4utils.readTLEandIniSGP4(cached.name, cached.line1, cached.line2,
+                SGP4utils.OPSMODE_IMPROVED, SGP4unit.Gravconsttype.wgs72, sat)) {
+            throw new IllegalArgumentException("Elements of " + satnum
+                    + " failed to initialize, error " + sat.error);
+        }
+
+        final double start = mCache.get().julianDate;
+        final List<PassPredictor.Pass> passes = new PassPredictor(latitude * DEG_TO_RAD,
+                longitude * DEG_TO_RAD, altitude).predict(sat, start, start + hours / 24.0,
+                minElevation * DEG_TO_RAD);
+
+        final StringBuilder json = new StringBuilder(64 + 160 * passes.size());
+        json.append("{\"satnum\":").append(satnum).append(",\"passes\":[");
+        for (int k = 0; k < passes.size(); ++k) {
+            final PassPredictor.Pass pass = passes.get(k);
+            json.append(k == 0 ? "" : ",")
+                    .append("{\"rise\":").append(pass.riseJulianDate)
+                    .append(",\"culmination\":").append(pass.culminationJulianDate)
+                    .append(",\"set\":").append(pass.setJulianDate)
+                    .append(",\"maxElevation\":").append(pass.maxElevation * RAD_TO_DEG)
+                    .append(",\"riseAzimuth\":").append(pass.riseAzimuth * RAD_TO_DEG)
+                    .append(",\"setAzimuth\":").append(pass.setAzimuth * RAD_TO_DEG)
+                    .append('}');
+        }
+        json.append("]}");
+        return json.toString();
+    }
+
+    String status() {
+        return "{\"satellites\":" + mCache.size()
+                + ",\"propagations\":" + mCache.getPropagations()
+                + ",\"requests\":" + mRequests.get() + "}";
+    }
+
+    private static int parseInt(String name, String value) {
+        if (value == null) {
+            throw new IllegalArgumentException(name + " is required");
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
+
+    private static double parseDouble(Map<String, String> query, String name,
+                                      double defaultValue) {
+        final String value = query.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); ++i) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * Parses the query string, answers with the returned JSON, 400 on bad arguments or 500 if the
+     * handler failed otherwise. The exchange is always closed, so clients never hang.
+     */
+    private abstract class JsonHandler implements HttpHandler {
+
+        abstract String handle(Map<String, String> query);
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            mRequests.incrementAndGet();
+            int status = 200;
+            String body;
+            try {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    status = 405;
+                    body = "{\"error\":\"Only GET is supported\"}";
+                } else {
+                    body = handle(parseQuery(exchange.getRequestURI().getRawQuery()));
+                }
+            } catch (IllegalArgumentException e) {
+                status = 400;
+                final StringBuilder error = new StringBuilder("{\"error\":");
+                appendString(error, String.valueOf(e.getMessage()));
+                body = error.append('}').toString();
+            } catch (RuntimeException e) {
+                System.err.println("position-server: " + exchange.getRequestURI() + " failed");
+                e.printStackTrace();
+                status = 500;
+                body = "{\"error\":\"Internal error\"}";
+            }
+            try {
+                final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(status, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            } finally {
+                exchange.close();
+            }
+        }
+
+        private Map<String, String> parseQuery(String rawQuery)
+                throws UnsupportedEncodingException {
+            final Map<String, String> query = new HashMap<>();
+            if (rawQuery == null) {
+                return query;
+            }
+            for (String pair : rawQuery.split("&")) {
+                final int separator = pair.indexOf('=');
+                if (separator > 0) {
+                    query.put(URLDecoder.decode(pair.substring(0, separator), "UTF-8"),
+                            URLDecoder.decode(pair.substring(separator + 1), "UTF-8"));
+                }
+            }
+            return query;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.google.ar.core.examples.java.helloar.tools;
+
+import com.google.ar.core.examples.java.helloar.SGP4.RenderPropagatorValidation;
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4SatData;
+import com.google.ar.core.examples.java.helloar.SGP4.SimulationClock;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Measures the error of the render fidelity propagator against full SGP4 over a TLE catalog, see
+ * {@link RenderPropagatorValidation}. Prints the report for the whole catalog, then for bands of
+ * the drag term |bstar|, since the render model drops some of the drag corrections.
+ */
+public class RenderValidationTool {
+
+    private static final String USAGE =
+            "usage: render-validation --tle FILE [options]\n"
+            + "  --start TIME     julian date or UTC date yyyy-mm-ddThh:mm:ss (default: now)\n"
+            + "  --days N         time span in days (default: 3)\n"
+            + "  --samples N      samples per satellite over the span (default: 200)";
+
+    // Upper bounds of the |bstar| bands, in 1/earth radii.
+    private static final double[] BSTAR_BANDS = {1.0e-4, 1.0e-3, 1.0e-2, Double.MAX_VALUE};
+
+    public static void main(String[] args) throws IOException {
+        String tle = null;
+        double start = SimulationClock.currentJulianDate();
+        double days = 3.0;
+        int samples = 200;
+        try {
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                switch (args[i]) {
+                    case "--tle":     tle = args[i + 1]; break;
+                    case "--start":   start = EphemerisTool.parseTime(args[i + 1]); break;
+                    case "--days":    days = Double.parseDouble(args[i + 1]); break;
+                    case "--samples": samples = Integer.parseInt(args[i + 1]); break;
+                    default: throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+            if (tle == null || args.length % 2 != 0 || days < 0.0 || samples < 1) {
+                throw new IllegalArgumentException("Invalid arguments");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("render-validation: " + e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        final SGP4SatData[] catalog = PositionServer.loadCatalog(tle);
+        final double end = start + days;
+        System.out.println("all: "
+                + RenderPropagatorValidation.validate(catalog, catalog.length, start, end, samples));
+
+        final SGP4SatData[] band = new SGP4SatData[catalog.length];
+        double lower = 0.0;
+        for (double upper : BSTAR_BANDS) {
+            int count = 0;
+            for (SGP4SatData sat : catalog) {
+                final double bstar = Math.abs(sat.bstar);
+                if (bstar >= lower && bstar < upper) {
+                    band[count++] = sat;
+                }
+            }
+            final String label = upper == Double.MAX_VALUE
+                    ? String.format(Locale.US, "|bstar| >= %.0e", lower)
+                    : String.format(Locale.US, "|bstar| < %.0e", upper);
+            if (count > 0) {
+                System.out.println(label + ": "
+                        + RenderPropagatorValidation.validate(band, count, start, end, samples));
+            }
+            lower = upper;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.google.ar.core.examples.java.helloar.tools;
+
+import com.google.ar.core.examples.java.helloar.SGP4.BatchPropagator;
+import com.google.ar.core.examples.java.helloar.SGP4.CoordConvert;
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4SatData;
+import com.google.ar.core.examples.java.helloar.SGP4.SGP4unit;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Positions of the whole catalog at the current tick, shared by every request.
+ *
+ * Wall clock time is divided into ticks. The first request of a tick propagates the catalog
+ * once, with {@link BatchPropagator}; concurrent requests of the same tick wait for that
+ * snapshot instead of propagating on their own, and later ones read it without locking.
+ * Snapshots are immutable, so a request may keep using one while the next tick is computed.
+ */
+public class SnapshotCache {
+
+    private static final double JD_UNIX_EPOCH  = 2440587.5;
+    private static final double MILLIS_PER_DAY = 86400000.0;
+
+    /** State of every satellite at one tick, indexed like the catalog. */
+    public static class Snapshot {
+        public final long tick;
+        public final double julianDate;
+        public final double[] positions;  // TEME x,y,z in km
+        public final double[] velocities; // TEME x,y,z in km/s
+        public final double[] latLonAlt;  // geodetic latitude, longitude in radians, altitude km
+        public final boolean[] valid;
+
+        Snapshot(long tick, double julianDate, int count) {
+            this.tick = tick;
+            this.julianDate = julianDate;
+            positions = new double[3 * count];
+            velocities = new double[3 * count];
+            latLonAlt = new double[3 * count];
+            valid = new boolean[count];
+        }
+    }
+
+    private final SGP4SatData[] mSatellites;
+    // Catalog indices sorted by satnum, for lookups by NORAD id.
+    private final int[] mSortedSatnums;
+    private final int[] mSortedIndices;
+
+    private final long mTickMillis;
+    private final BatchPropagator mPropagator = new BatchPropagator();
+    private final Object mLock = new Object();
+    private volatile Snapshot mSnapshot;
+    private final AtomicLong mPropagations = new AtomicLong();
+
+    /**
+     * @param satellites initialized satellites. They are propagated by the cache and must not be
+     *     used elsewhere.
+     * @param tickMillis duration of a tick, the maximum age of the positions served
+     */
+    public SnapshotCache(SGP4SatData[] satellites, long tickMillis) {
+        mSatellites = satellites;
+        mTickMillis = tickMillis;
+        mPropagator.setCatalog(satellites, satellites.length);
+
+        final long[] keys = new long[satellites.length];
+        for (int i = 0; i < satellites.length; ++i) {
+            keys[i] = ((long) satellites[i].satnum << 32) | i;
+        }
+        Arrays.sort(keys);
+        mSortedSatnums = new int[keys.length];
+        mSortedIndices = new int[keys.length];
+        for (int i = 0; i < keys.length; ++i) {
+            mSortedSatnums[i] = (int) (keys[i] >>> 32);
+            mSortedIndices[i] = (int) keys[i];
+        }
+    }
+
+    /**
+     * @return the snapshot of the current tick, propagating the catalog if this is the first
+     *     request of the tick
+     */
+    public Snapshot get() {
+        final long tick = System.currentTimeMillis() / mTickMillis;
+        Snapshot snapshot = mSnapshot;
+        if (snapshot != null && snapshot.tick >= tick) {
+            return snapshot;
+        }
+        synchronized (mLock) {
+            snapshot = mSnapshot;
+            if (snapshot == null || snapshot.tick < tick) {
+                snapshot = propagate(tick);
+                mSnapshot = snapshot;
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * @return the catalog index of a NORAD id, or -1 if it is not in the catalog. The first
+     *     element set wins if an id is listed more than once.
+     */
+    public int indexOf(int satnum) {
+        int index = Arrays.binarySearch(mSortedSatnums, satnum);
+        if (index < 0) {
+            return -1;
+        }
+        while (index > 0 && mSortedSatnums[index - 1] == satnum) {
+            index--;
+        }
+        return mSortedIndices[index];
+    }
+
+    /** @return the satellite at a catalog index. Read only, the cache propagates it. */
+    public SGP4SatData getSatellite(int index) {
+        return mSatellites[index];
+    }
+
+    public int size() {
+        return mSatellites.length;
+    }
+
+    /** @return the number of catalog propagations so far, one per tick with requests */
+    public long getPropagations() {
+        return mPropagations.get();
+    }
+
+    private Snapshot propagate(long tick) {
+        final double julianDate = JD_UNIX_EPOCH + tick * mTickMillis / MILLIS_PER_DAY;
+        final Snapshot snapshot = new Snapshot(tick, julianDate, mSatellites.length);
+        mPropagator.propagate(julianDate, snapshot.positions, snapshot.velocities,
+                snapshot.valid);
+
+        final double gmst = SGP4unit.gstime(julianDate);
+        final double[] r = new double[3];
+        final double[] lla = new double[3];
+        for (int i = 0; i < mSatellites.length; ++i) {
+            if (!snapshot.valid[i]) {
+                continue;
+            }
+            System.arraycopy(snapshot.positions, 3 * i, r, 0, 3);
+            CoordConvert.temeToLatLonAlt(r, gmst, lla);
+            System.arraycopy(lla, 0, snapshot.latLonAlt, 3 * i, 3);
+        }
+        mPropagations.incrementAndGet();
+        return snapshot;
+    }
+}
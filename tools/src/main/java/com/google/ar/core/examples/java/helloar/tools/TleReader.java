@@ -0,0 +1,67 @@
+package com.google.ar.core.examples.java.helloar.tools;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Streams element sets from a TLE file, a batch at a time, so that the catalog never has to fit
+ * in memory. Reads both the three line format with a name line, as downloaded by the app, and
+ * the bare two line format. Blank lines are skipped.
+ */
+public class TleReader {
+
+    private final BufferedReader mReader;
+    private int mLineNumber = 0;
+
+    public TleReader(BufferedReader reader) {
+        mReader = reader;
+    }
+
+    /**
+     * Reads up to {@code max} element sets.
+     *
+     * @param names receives the satellite names, empty for two line element sets
+     * @param lines1 receives the first TLE lines
+     * @param lines2 receives the second TLE lines
+     * @param max maximum number of element sets to read
+     * @return the number of element sets read, 0 at the end of the file
+     * @throws IOException on a read error or a truncated element set
+     */
+    public int read(String[] names, String[] lines1, String[] lines2, int max) throws IOException {
+        int count = 0;
+        while (count < max) {
+            String line = nextLine();
+            if (line == null) {
+                break;
+            }
+            String name = "";
+            if (!line.startsWith("1 ")) {
+                name = line.trim();
+                line = nextLine();
+            }
+            final String line2 = nextLine();
+            if (line == null || line2 == null || !line.startsWith("1 ")
+                    || !line2.startsWith("2 ")) {
+                throw new IOException("Malformed element set near line " + mLineNumber);
+            }
+            names[count] = name;
+            lines1[count] = line;
+            lines2[count] = line2;
+            count++;
+        }
+        return count;
+    }
+
+    public void close() throws IOException {
+        mReader.close();
+    }
+
+    private String nextLine() throws IOException {
+        String line;
+        do {
+            line = mReader.readLine();
+            mLineNumber++;
+        } while (line != null && line.trim().isEmpty());
+        return line;
+    }
+}